@@ -1,11 +1,14 @@
 package com.nc.airport.backend.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nc.airport.backend.model.dto.AirportDto;
 import com.nc.airport.backend.model.dto.ResponseFilteringWrapper;
 import com.nc.airport.backend.model.dto.SortingFilteringWrapper;
 import com.nc.airport.backend.model.entities.model.flight.Airport;
 import com.nc.airport.backend.service.AirportService;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigInteger;
 import java.util.List;
@@ -15,9 +18,11 @@ import java.util.List;
 @RequestMapping("/airports")
 public class AirportController {
     private AirportService airportService;
+    private ObjectMapper objectMapper;
 
-    public AirportController(AirportService airportService) {
+    public AirportController(AirportService airportService, ObjectMapper objectMapper) {
         this.airportService = airportService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping("/page={page}")
@@ -63,7 +68,7 @@ public class AirportController {
     }
 
     @GetMapping
-    public List<Airport> getAll() {
-        return airportService.getAll();
+    public ResponseEntity<StreamingResponseBody> getAll() {
+        return JsonArrayStream.of(objectMapper, airportService::forEach);
     }
 }
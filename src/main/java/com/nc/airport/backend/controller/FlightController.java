@@ -2,6 +2,7 @@ package com.nc.airport.backend.controller;
 
 import com.nc.airport.backend.model.dto.FlightDTO;
 import com.nc.airport.backend.model.dto.ResponseFilteringWrapper;
+import com.nc.airport.backend.model.dto.ResponseKeysetWrapper;
 import com.nc.airport.backend.model.dto.SortingFilteringWrapper;
 import com.nc.airport.backend.model.entities.model.airplane.Airplane;
 import com.nc.airport.backend.model.entities.model.flight.Airport;
@@ -71,6 +72,12 @@ public class FlightController {
         return flightService.searchFlights(page, wrapper.getSearchString(), wrapper.getSortList());
     }
 
+    @PostMapping("/flights/search")
+    public ResponseKeysetWrapper<FlightDTO> searchFlightsAfter(@RequestParam(name = "page", required = false) String page,
+                                                               @RequestBody SortingFilteringWrapper wrapper) {
+        return flightService.searchFlightsAfter(page, wrapper.getSearchString(), wrapper.getSortList());
+    }
+
     @GetMapping(value = "/flights/airports")
     public List<Airport> getAllAirports() {
         return flightService.getAllAirports();
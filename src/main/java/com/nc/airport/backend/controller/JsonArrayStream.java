@@ -0,0 +1,42 @@
+package com.nc.airport.backend.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Writes items to the response as a JSON array one by one while they are read,
+ * so a response with all the items of a class is never held in memory as a whole.
+ */
+final class JsonArrayStream {
+
+    private JsonArrayStream() {
+    }
+
+    /**
+     * @param items passes every item of the array to the consumer it is given
+     * @return response with the array written as its body
+     */
+    static ResponseEntity<StreamingResponseBody> of(ObjectMapper mapper, Consumer<Consumer<Object>> items) {
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+                generator.writeStartArray();
+                items.accept(item -> {
+                    try {
+                        generator.writeObject(item);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON_UTF8).body(body);
+    }
+}
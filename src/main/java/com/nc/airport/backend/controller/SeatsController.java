@@ -1,5 +1,6 @@
 package com.nc.airport.backend.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nc.airport.backend.model.dto.ResponseFilteringWrapper;
 import com.nc.airport.backend.model.dto.SortingFilteringWrapper;
 import com.nc.airport.backend.model.entities.model.airplane.Seat;
@@ -7,7 +8,9 @@ import com.nc.airport.backend.model.entities.model.airplane.dto.SeatDto;
 import com.nc.airport.backend.service.HybridFlightService;
 import com.nc.airport.backend.service.SeatService;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigInteger;
 import java.util.List;
@@ -20,10 +23,12 @@ public class SeatsController {
 
     HybridFlightService hybridService;
     SeatService seatService;
+    ObjectMapper objectMapper;
 
-    public SeatsController(HybridFlightService flightService, SeatService seatService) {
+    public SeatsController(HybridFlightService flightService, SeatService seatService, ObjectMapper objectMapper) {
         this.hybridService = flightService;
         this.seatService = seatService;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping
@@ -58,8 +63,8 @@ public class SeatsController {
     }
 
     @GetMapping
-    public List<Seat> getAll() {
-        return seatService.getAll();
+    public ResponseEntity<StreamingResponseBody> getAll() {
+        return JsonArrayStream.of(objectMapper, seatService::forEach);
     }
 
     @GetMapping("/flightId={objectId}")
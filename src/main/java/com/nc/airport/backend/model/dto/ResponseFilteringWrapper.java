@@ -6,10 +6,20 @@ import java.util.List;
 public class ResponseFilteringWrapper<T> {
     private List<T> entities;
     private BigInteger countOfPages;
+    private boolean countOfPagesCapped;
 
     public ResponseFilteringWrapper(List<T> entities, BigInteger countOfPages) {
+        this(entities, countOfPages, false);
+    }
+
+    /**
+     * @param countOfPagesCapped true if items were counted only up to some number and there are more of them,
+     *                           so there may be more pages than countOfPages
+     */
+    public ResponseFilteringWrapper(List<T> entities, BigInteger countOfPages, boolean countOfPagesCapped) {
         this.entities = entities;
         this.countOfPages = countOfPages;
+        this.countOfPagesCapped = countOfPagesCapped;
     }
 
     public List<T> getEntities() {
@@ -27,4 +37,12 @@ public class ResponseFilteringWrapper<T> {
     public void setCountOfPages(BigInteger countOfPages) {
         this.countOfPages = countOfPages;
     }
+
+    public boolean isCountOfPagesCapped() {
+        return countOfPagesCapped;
+    }
+
+    public void setCountOfPagesCapped(boolean countOfPagesCapped) {
+        this.countOfPagesCapped = countOfPagesCapped;
+    }
 }
@@ -0,0 +1,20 @@
+package com.nc.airport.backend.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Page of entities with the token of the page after it, null if there is no next page
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResponseKeysetWrapper<T> {
+    private List<T> entities;
+    private String nextPage;
+}
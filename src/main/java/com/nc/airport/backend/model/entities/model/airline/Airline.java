@@ -1,7 +1,9 @@
 package com.nc.airport.backend.model.entities.model.airline;
 
 import com.nc.airport.backend.model.BaseEntity;
+import com.nc.airport.backend.persistence.eav.annotations.CachePolicy;
 import com.nc.airport.backend.persistence.eav.annotations.ObjectType;
+import com.nc.airport.backend.persistence.eav.annotations.Searchable;
 import com.nc.airport.backend.persistence.eav.annotations.attribute.value.ValueField;
 import lombok.Getter;
 import lombok.Setter;
@@ -10,6 +12,8 @@ import lombok.ToString;
 import java.math.BigInteger;
 
 @ObjectType(ID = "4")
+@Searchable
+@CachePolicy(maxEntries = 300, ttlSeconds = 3600)
 @Getter
 @Setter
 @ToString(callSuper = true)
@@ -2,6 +2,7 @@ package com.nc.airport.backend.model.entities.model.airplane;
 
 import com.nc.airport.backend.model.BaseEntity;
 import com.nc.airport.backend.model.entities.model.airplane.dto.AirplaneDto;
+import com.nc.airport.backend.persistence.eav.annotations.CachePolicy;
 import com.nc.airport.backend.persistence.eav.annotations.ObjectType;
 import com.nc.airport.backend.persistence.eav.annotations.attribute.value.ReferenceField;
 import com.nc.airport.backend.persistence.eav.annotations.attribute.value.ValueField;
@@ -12,6 +13,7 @@ import lombok.ToString;
 import java.math.BigInteger;
 
 @ObjectType(ID = "5")
+@CachePolicy(maxEntries = 1000, ttlSeconds = 600)
 @Getter
 @Setter
 @ToString(callSuper = true)
@@ -1,6 +1,7 @@
 package com.nc.airport.backend.model.entities.model.airplane;
 
 import com.nc.airport.backend.model.BaseEntity;
+import com.nc.airport.backend.persistence.eav.annotations.CachePolicy;
 import com.nc.airport.backend.persistence.eav.annotations.ObjectType;
 import com.nc.airport.backend.persistence.eav.annotations.attribute.value.ValueField;
 import lombok.Getter;
@@ -11,6 +12,7 @@ import java.math.BigInteger;
 import java.util.Objects;
 
 @ObjectType(ID = "9")
+@CachePolicy(maxEntries = 50, ttlSeconds = 3600, eviction = CachePolicy.Eviction.LFU)
 @Getter
 @Setter
 @ToString(callSuper = true)
@@ -1,7 +1,9 @@
 package com.nc.airport.backend.model.entities.model.flight;
 
 import com.nc.airport.backend.model.BaseEntity;
+import com.nc.airport.backend.persistence.eav.annotations.CachePolicy;
 import com.nc.airport.backend.persistence.eav.annotations.ObjectType;
+import com.nc.airport.backend.persistence.eav.annotations.Searchable;
 import com.nc.airport.backend.persistence.eav.annotations.attribute.value.ReferenceField;
 import com.nc.airport.backend.persistence.eav.annotations.attribute.value.ValueField;
 import lombok.Getter;
@@ -11,6 +13,8 @@ import lombok.ToString;
 import java.math.BigInteger;
 
 @ObjectType(ID = "2")
+@Searchable
+@CachePolicy(maxEntries = 1000, ttlSeconds = 3600)
 @Getter
 @Setter
 @ToString(callSuper = true)
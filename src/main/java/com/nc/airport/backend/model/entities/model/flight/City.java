@@ -1,6 +1,7 @@
 package com.nc.airport.backend.model.entities.model.flight;
 
 import com.nc.airport.backend.model.BaseEntity;
+import com.nc.airport.backend.persistence.eav.annotations.CachePolicy;
 import com.nc.airport.backend.persistence.eav.annotations.ObjectType;
 import com.nc.airport.backend.persistence.eav.annotations.attribute.value.ReferenceField;
 import com.nc.airport.backend.persistence.eav.annotations.attribute.value.ValueField;
@@ -11,6 +12,7 @@ import lombok.ToString;
 import java.math.BigInteger;
 
 @ObjectType(ID = "19")
+@CachePolicy(maxEntries = 1000, ttlSeconds = 3600)
 @Getter
 @Setter
 @ToString(callSuper = true)
@@ -1,6 +1,7 @@
 package com.nc.airport.backend.model.entities.model.flight;
 
 import com.nc.airport.backend.model.BaseEntity;
+import com.nc.airport.backend.persistence.eav.annotations.CachePolicy;
 import com.nc.airport.backend.persistence.eav.annotations.ObjectType;
 import com.nc.airport.backend.persistence.eav.annotations.attribute.value.ValueField;
 import lombok.Getter;
@@ -8,6 +9,7 @@ import lombok.Setter;
 import lombok.ToString;
 
 @ObjectType(ID = "1")
+@CachePolicy(maxEntries = 300, ttlSeconds = 3600)
 @Getter
 @Setter
 @ToString(callSuper = true)
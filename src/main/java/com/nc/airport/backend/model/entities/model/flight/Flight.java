@@ -2,6 +2,8 @@ package com.nc.airport.backend.model.entities.model.flight;
 
 
 import com.nc.airport.backend.model.BaseEntity;
+import com.nc.airport.backend.persistence.eav.annotations.CachePolicy;
+import com.nc.airport.backend.persistence.eav.annotations.FlatView;
 import com.nc.airport.backend.persistence.eav.annotations.ObjectType;
 import com.nc.airport.backend.persistence.eav.annotations.attribute.value.DateField;
 import com.nc.airport.backend.persistence.eav.annotations.attribute.value.ListField;
@@ -16,6 +18,8 @@ import java.math.BigInteger;
 import java.time.LocalDateTime;
 
 @ObjectType(ID = "3")
+@FlatView(table = "FLAT_FLIGHTS")
+@CachePolicy(maxEntries = 1000, ttlSeconds = 30, mode = CachePolicy.Mode.WRITE_THROUGH)
 @Getter
 @Setter
 @ToString(callSuper = true)
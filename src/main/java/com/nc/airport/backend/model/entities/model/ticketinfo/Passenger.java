@@ -2,6 +2,7 @@ package com.nc.airport.backend.model.entities.model.ticketinfo;
 
 import com.nc.airport.backend.model.BaseEntity;
 import com.nc.airport.backend.persistence.eav.annotations.ObjectType;
+import com.nc.airport.backend.persistence.eav.annotations.Searchable;
 import com.nc.airport.backend.persistence.eav.annotations.attribute.value.ReferenceField;
 import com.nc.airport.backend.persistence.eav.annotations.attribute.value.ValueField;
 import lombok.Getter;
@@ -11,6 +12,7 @@ import lombok.ToString;
 import java.math.BigInteger;
 
 @ObjectType(ID = "13")
+@Searchable
 @Getter
 @Setter
 @ToString(callSuper = true)
@@ -1,6 +1,7 @@
 package com.nc.airport.backend.model.entities.model.ticketinfo;
 
 import com.nc.airport.backend.model.BaseEntity;
+import com.nc.airport.backend.persistence.eav.annotations.FlatView;
 import com.nc.airport.backend.persistence.eav.annotations.ObjectType;
 import com.nc.airport.backend.persistence.eav.annotations.attribute.value.ListField;
 import com.nc.airport.backend.persistence.eav.annotations.attribute.value.ReferenceField;
@@ -9,6 +10,7 @@ import lombok.*;
 import java.math.BigInteger;
 
 @ObjectType(ID = "10")
+@FlatView(table = "FLAT_TICKETS")
 @Getter
 @Setter
 @ToString(callSuper = true)
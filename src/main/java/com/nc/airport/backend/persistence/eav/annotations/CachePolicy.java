@@ -0,0 +1,68 @@
+package com.nc.airport.backend.persistence.eav.annotations;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Specifies that objects of the class annotated with ObjectType are kept in memory after they were read,
+ * so the repository can find them by id without going to the database.
+ * Classes without this annotation are never cached.
+ *
+ * <pre>
+ *     Example:
+ *     &#064;ObjectType(ID = "1")
+ *     &#064;CachePolicy(maxEntries = 300, ttlSeconds = 3600)
+ *     class Country extends BaseEntity {
+ *         &#064;ValueField(ID = "1")
+ *         String name;
+ *     }
+ * </pre>
+ */
+@Target(TYPE)
+@Retention(RUNTIME)
+public @interface CachePolicy {
+    /**
+     * Max number of cached objects of the class
+     */
+    int maxEntries() default 1000;
+
+    /**
+     * Time an object stays in the cache after it was put there
+     */
+    long ttlSeconds() default 600;
+
+    /**
+     * Which object is evicted when there are maxEntries of them already
+     */
+    Eviction eviction() default Eviction.LRU;
+
+    /**
+     * What happens to the cached object when it is written through the repository
+     */
+    Mode mode() default Mode.READ_THROUGH;
+
+    enum Eviction {
+        /**
+         * Least recently used object is evicted
+         */
+        LRU,
+        /**
+         * Least frequently used object is evicted, for a few objects that are read all the time
+         */
+        LFU
+    }
+
+    enum Mode {
+        /**
+         * Written object is evicted and read from the database the next time it is needed
+         */
+        READ_THROUGH,
+        /**
+         * Written object is read again after the commit and put to the cache
+         */
+        WRITE_THROUGH
+    }
+}
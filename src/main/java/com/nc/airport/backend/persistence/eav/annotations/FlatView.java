@@ -0,0 +1,34 @@
+package com.nc.airport.backend.persistence.eav.annotations;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Specifies that objects of the class annotated with ObjectType are also kept in a flat table,
+ * one row per object and one ATTR column per annotated field, so lists and searches of the class
+ * read one table instead of joining ATTRIBUTES once for every field.
+ * <p>
+ * The table is written together with the object and is used only if eav.flat-views.enabled is set
+ * and the table exists. If it does not, statements creating and filling it are logged at startup.
+ *
+ * <pre>
+ *     Example:
+ *     &#064;ObjectType(ID = "3")
+ *     &#064;FlatView(table = "FLAT_FLIGHTS")
+ *     class Flight extends BaseEntity {
+ *         &#064;ValueField(ID = "62")
+ *         String flightNumber;
+ *     }
+ * </pre>
+ */
+@Target(TYPE)
+@Retention(RUNTIME)
+public @interface FlatView {
+    /**
+     * Name of the table, at most 20 characters: letters, digits and underscores
+     */
+    String table();
+}
@@ -0,0 +1,30 @@
+package com.nc.airport.backend.persistence.eav.annotations;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Specifies that value fields of the class annotated with ObjectType are kept in the search index,
+ * so a free-text search of the class reads the index instead of checking every attribute of every object
+ * with LIKE. Date, list and reference fields are not searched then.
+ * <p>
+ * The index is written together with the object and is used only if eav.search-index.enabled is set
+ * and the index table exists. If it does not, statements creating and filling it are logged at startup.
+ *
+ * <pre>
+ *     Example:
+ *     &#064;ObjectType(ID = "4")
+ *     &#064;Searchable
+ *     class Airline extends BaseEntity {
+ *         &#064;ValueField(ID = "12")
+ *         String name;
+ *     }
+ * </pre>
+ */
+@Target(TYPE)
+@Retention(RUNTIME)
+public @interface Searchable {
+}
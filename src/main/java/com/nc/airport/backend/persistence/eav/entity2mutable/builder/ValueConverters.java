@@ -0,0 +1,107 @@
+package com.nc.airport.backend.persistence.eav.entity2mutable.builder;
+
+import lombok.extern.log4j.Log4j2;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Registry of converters from String stored in ATTRIBUTES.VALUE to types of fields annotated with ValueField.
+ * <p>
+ * Common types are converted with direct calls, enums with valueOf. Any other type falls back to its
+ * String constructor, which is looked up once for the type. Custom converters can be registered
+ * for types that have no such constructor.
+ * <p>
+ * Converters of entity fields are resolved from the {@link #shared()} registry once, when metadata of the entity
+ * class is built, so custom converters have to be registered before that.
+ */
+@Log4j2
+public class ValueConverters {
+    private static final ValueConverters SHARED = new ValueConverters();
+
+    private final Map<Class<?>, Function<String, ?>> converters = new ConcurrentHashMap<>();
+
+    public ValueConverters() {
+        register(String.class, Function.identity());
+        register(Integer.class, Integer::valueOf);
+        register(Long.class, Long::valueOf);
+        register(Short.class, Short::valueOf);
+        register(Byte.class, Byte::valueOf);
+        register(Double.class, Double::valueOf);
+        register(Float.class, Float::valueOf);
+        register(Boolean.class, Boolean::valueOf);
+        register(BigInteger.class, BigInteger::new);
+        register(BigDecimal.class, BigDecimal::new);
+    }
+
+    /**
+     * @return registry used to resolve converters of fields annotated with ValueField
+     */
+    public static ValueConverters shared() {
+        return SHARED;
+    }
+
+    /**
+     * Replaces the converter of the type if there was one
+     *
+     * @param type      type of annotated fields
+     * @param converter creates a value of the type from its String form
+     */
+    public <T> void register(Class<T> type, Function<String, ? extends T> converter) {
+        converters.put(type, converter);
+    }
+
+    /**
+     * @param type type of annotated field
+     * @return converter of the type, resolved on the first call for it
+     * @throws IllegalArgumentException if the type can not be created from String
+     */
+    public Function<String, ?> converterFor(Class<?> type) {
+        Function<String, ?> converter = converters.get(type);
+        if (converter == null) {
+            converter = converters.computeIfAbsent(type, this::resolveConverter);
+        }
+        return converter;
+    }
+
+    private Function<String, ?> resolveConverter(Class<?> type) {
+        if (type.isEnum()) {
+            return enumConverter(type);
+        }
+
+        Constructor<?> constructor;
+        try {
+            constructor = type.getConstructor(String.class);
+        } catch (NoSuchMethodException e) {
+            String message = "No constructor " + type.getName() + "(String)";
+            IllegalArgumentException exception = new IllegalArgumentException(message, e);
+            log.error(message, exception);
+            throw exception;
+        }
+
+        return value -> {
+            try {
+                return constructor.newInstance(value);
+            } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+                String message = "Cannot create an instance of " + type + "; argument: " + value;
+                IllegalArgumentException exception = new IllegalArgumentException(message, e);
+                log.error(message, exception);
+                throw exception;
+            }
+        };
+    }
+
+    /*
+    Type is checked to be an enum by the caller
+     */
+    @SuppressWarnings("unchecked")
+    private static <E extends Enum<E>> Function<String, E> enumConverter(Class<?> type) {
+        Class<E> enumType = (Class<E>) type;
+        return value -> Enum.valueOf(enumType, value);
+    }
+}
@@ -6,9 +6,8 @@ import com.nc.airport.backend.persistence.eav.annotations.attribute.value.DateFi
 import com.nc.airport.backend.persistence.eav.annotations.attribute.value.ListField;
 import com.nc.airport.backend.persistence.eav.annotations.attribute.value.ReferenceField;
 import com.nc.airport.backend.persistence.eav.annotations.attribute.value.ValueField;
-import com.nc.airport.backend.persistence.eav.annotations.enums.ListValue;
 import com.nc.airport.backend.persistence.eav.entity2mutable.builder.EntityBuilder;
-import com.nc.airport.backend.persistence.eav.entity2mutable.util.ReflectionHelper;
+import com.nc.airport.backend.persistence.eav.entity2mutable.util.EntityMetadata;
 import com.nc.airport.backend.persistence.eav.exceptions.InvalidAnnotatedClassException;
 import lombok.extern.log4j.Log4j2;
 import org.apache.logging.log4j.Marker;
@@ -16,12 +15,11 @@ import org.apache.logging.log4j.MarkerManager;
 import org.springframework.stereotype.Component;
 
 import java.lang.annotation.Annotation;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
 import java.math.BigInteger;
 import java.time.LocalDateTime;
 import java.util.Map;
+import java.util.function.Function;
 
 /**
  * TODO javadoc
@@ -42,152 +40,103 @@ public class DefaultEntityBuilder implements EntityBuilder {
         entity.setParentId(mutable.getParentId());
         entity.setObjectName(mutable.getObjectName());
         entity.setObjectDescription(mutable.getObjectDescription());
-        fillValueFields(entity, mutable);
-        fillDateFields(entity, mutable);
-        fillListFields(entity, mutable);
-        fillReferenceFields(entity, mutable);
+
+        EntityMetadata metadata = EntityMetadata.of(clazz);
+        fillValueFields(entity, mutable, metadata);
+        fillDateFields(entity, mutable, metadata);
+        fillListFields(entity, mutable, metadata);
+        fillReferenceFields(entity, mutable, metadata);
 
         return entity;
     }
 
-    // TODO: 23.11.2018 refactor
-    private <T extends BaseEntity> void fillReferenceFields(T entity, Mutable mutable) {
+    private <T extends BaseEntity> void fillReferenceFields(T entity, Mutable mutable, EntityMetadata metadata) {
         Map<BigInteger, BigInteger> references = mutable.getReferences();
         if (references == null) {
             return;
         }
 
-        Class<? extends BaseEntity> entityClass = entity.getClass();
-
         for (Map.Entry<BigInteger, BigInteger> idToRef : references.entrySet()) {
 //            OBJREFERENCE.ATTR_ID - @ReferenceField(ID = "123")
-            BigInteger id = idToRef.getKey();
-
-            BigInteger referenceId = idToRef.getValue();
-
-            Field entityField = ReflectionHelper.getFieldByAnnotationId(entityClass, ReferenceField.class, id);
-            if (entityField != null) {
-                ReflectionHelper.setFieldValue(entity, entityField, referenceId);
-            } else {
-                String message = getMessageNoFieldAnnotated(idToRef.getKey(), ReferenceField.class);
-                logAndThrowDataLossEx(message, new InvalidAnnotatedClassException(message, entityClass));
-            }
+            MethodHandle setter = getSetter(metadata, ReferenceField.class, idToRef.getKey());
+            setFieldValue(setter, entity, idToRef.getValue());
         }
     }
 
-
-    // FIXME: 23.11.2018 implement
-
-    private <T extends BaseEntity> void fillListFields(T entity, Mutable mutable) {
+    private <T extends BaseEntity> void fillListFields(T entity, Mutable mutable, EntityMetadata metadata) {
         Map<BigInteger, BigInteger> listValues = mutable.getListValues();
         if (listValues == null) {
             return;
         }
 
-        Class<? extends BaseEntity> entityClass = entity.getClass();
-
         for (Map.Entry<BigInteger, BigInteger> idToEnumId : listValues.entrySet()) {
 //            LISTS.ATTR_ID - @ListField(ID = "123")
             BigInteger id = idToEnumId.getKey();
 //            LISTS.LIST_VALUE_ID - corresponding id is inside of @ListValue(ID = "123") annotation
             BigInteger enumId = idToEnumId.getValue();
 
-            Field entityField = ReflectionHelper.getFieldByAnnotationId(entityClass, ListField.class, id);
-            if (entityField != null) {
-//                entityField.setAccessible(true);
-                Class<Enum> enumClass = (Class<Enum>) entityField.getType();
-
-                Object enumValue = null;
-                for (Field enumField : enumClass.getFields()) {
-                    ListValue enumAnnotation = enumField.getAnnotation(ListValue.class);
-                    if (enumAnnotation != null) {
-                        if (enumId.equals(new BigInteger(enumAnnotation.ID()))) {
-                            try {
-                                enumValue = enumField.get(null);
-                            } catch (IllegalAccessException e) {
-                                String msg = "Can't access enum field of " + enumClass;
-                                RuntimeException exception = new InvalidAnnotatedClassException(msg, enumClass, e);
-                                log.error(msg);
-                                throw exception;
-                            }
-                        }
-                    }
-                }
-                ReflectionHelper.setFieldValue(entity, entityField, enumValue);
-            } else {
-                String message = getMessageNoFieldAnnotated(idToEnumId.getKey(), ListValue.class);
-                logAndThrowDataLossEx(message, new InvalidAnnotatedClassException(message, entityClass));
-            }
+            MethodHandle setter = getSetter(metadata, ListField.class, id);
+            setFieldValue(setter, entity, enumId == null ? null : metadata.getEnum(id, enumId));
         }
     }
 
-    // TODO: 23.11.2018 refactor
-    private <T extends BaseEntity> void fillDateFields(T entity, Mutable mutable) {
+    private <T extends BaseEntity> void fillDateFields(T entity, Mutable mutable, EntityMetadata metadata) {
         Map<BigInteger, LocalDateTime> dateValues = mutable.getDateValues();
         if (dateValues == null) {
             return;
         }
 
-        Class<? extends BaseEntity> entityClass = entity.getClass();
-
         for (Map.Entry<BigInteger, LocalDateTime> idToDate : dateValues.entrySet()) {
-            BigInteger id = idToDate.getKey();
-            LocalDateTime date = idToDate.getValue();
-
-            Field entityField = ReflectionHelper.getFieldByAnnotationId(entityClass, DateField.class, id);
-            if (entityField != null) {
-                ReflectionHelper.setFieldValue(entity, entityField, date);
-            } else {
-                String message = getMessageNoFieldAnnotated(idToDate.getKey(), DateField.class);
-                logAndThrowDataLossEx(message, new InvalidAnnotatedClassException(message, entityClass));
-            }
+            MethodHandle setter = getSetter(metadata, DateField.class, idToDate.getKey());
+            setFieldValue(setter, entity, idToDate.getValue());
         }
     }
 
-    // TODO: 23.11.2018 refactor
-    private <T extends BaseEntity> void fillValueFields(T entity, Mutable mutable) {
+    private <T extends BaseEntity> void fillValueFields(T entity, Mutable mutable, EntityMetadata metadata) {
         Map<BigInteger, String> mutableValues = mutable.getValues();
         if (mutableValues == null) {
             return;
         }
 
-        Class<? extends BaseEntity> entityClass = entity.getClass();
-
         for (Map.Entry<BigInteger, String> idToVal : mutableValues.entrySet()) {
-            Field entityField = ReflectionHelper.getFieldByAnnotationId(
-                    entityClass, ValueField.class, idToVal.getKey());
-            if (entityField != null) {
-                Class fieldClass = entityField.getType();
-                if (idToVal.getValue() != null) {
-                    Object injectableValue = newStringConstructorInstance(fieldClass, idToVal.getValue());
-                    ReflectionHelper.setFieldValue(entity, entityField, injectableValue);
-                }
-            } else {
-                String message = getMessageNoFieldAnnotated(idToVal.getKey(), ValueField.class);
-                logAndThrowDataLossEx(message, new InvalidAnnotatedClassException(message, entityClass));
+            MethodHandle setter = getSetter(metadata, ValueField.class, idToVal.getKey());
+            if (idToVal.getValue() != null) {
+                Function<String, ?> converter = metadata.getValueConverter(idToVal.getKey());
+                Object injectableValue = convertValue(converter, entity, idToVal.getValue());
+                setFieldValue(setter, entity, injectableValue);
             }
         }
     }
 
-    private Object newStringConstructorInstance(Class classToCreate, String initArg) {
-        Object newInstance = null;
-        if (initArg == null) {
-            initArg = "";
+    /*
+    Missing field means that database has an attribute the class doesn't know about, its value would be lost
+     */
+    private MethodHandle getSetter(EntityMetadata metadata, Class<? extends Annotation> annotationClass, BigInteger id) {
+        MethodHandle setter = metadata.getSetter(annotationClass, id);
+        if (setter == null) {
+            String message = getMessageNoFieldAnnotated(id, annotationClass);
+            logAndThrowDataLossEx(message, new InvalidAnnotatedClassException(message, metadata.getEntityClass()));
         }
+        return setter;
+    }
 
+    private void setFieldValue(MethodHandle setter, BaseEntity entity, Object value) {
         try {
-            Constructor<?> constructor = classToCreate.getConstructor(String.class);
-            try {
-                newInstance = constructor.newInstance(initArg);
-            } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
-                String message = "Cannot create an instance of " + classToCreate + "; argument: " + initArg;
-                logAndThrowDataLossEx(message, e);
-            }
-        } catch (NoSuchMethodException e) {
-            String message = "No constructor " + classToCreate.getName() + "(String)";
+            setter.invokeExact((Object) entity, value);
+        } catch (Throwable e) {
+            String message = "Cannot set value " + value + " to " + entity.getClass();
+            logAndThrowDataLossEx(message, e);
+        }
+    }
+
+    private Object convertValue(Function<String, ?> converter, BaseEntity entity, String value) {
+        try {
+            return converter.apply(value);
+        } catch (RuntimeException e) {
+            String message = "Cannot convert \"" + value + "\" to a field of " + entity.getClass();
             logAndThrowDataLossEx(message, e);
         }
-        return newInstance;
+        return null;
     }
 
     private <T extends BaseEntity> T newEntity(Class<T> clazz) {
@@ -1,13 +1,12 @@
 package com.nc.airport.backend.persistence.eav.entity2mutable.parser.impl;
 
 import com.nc.airport.backend.model.BaseEntity;
-import com.nc.airport.backend.persistence.eav.annotations.ObjectType;
 import com.nc.airport.backend.persistence.eav.annotations.attribute.value.DateField;
 import com.nc.airport.backend.persistence.eav.annotations.attribute.value.ListField;
 import com.nc.airport.backend.persistence.eav.annotations.attribute.value.ReferenceField;
 import com.nc.airport.backend.persistence.eav.annotations.attribute.value.ValueField;
-import com.nc.airport.backend.persistence.eav.annotations.enums.ListValue;
 import com.nc.airport.backend.persistence.eav.entity2mutable.parser.EntityParser;
+import com.nc.airport.backend.persistence.eav.entity2mutable.util.EntityMetadata;
 import com.nc.airport.backend.persistence.eav.entity2mutable.util.ReflectionHelper;
 import com.nc.airport.backend.persistence.eav.exceptions.InvalidAnnotatedClassException;
 import lombok.extern.log4j.Log4j2;
@@ -29,16 +28,16 @@ public class DefaultEntityParser implements EntityParser {
 
     @Override
     public BigInteger parseObjectTypeId(BaseEntity entity) {
-        ObjectType objectTypeAnnotation = entity.getClass().getAnnotation(ObjectType.class);
+        BigInteger objectTypeId = EntityMetadata.of(entity.getClass()).getObjectTypeId();
 
-        if (objectTypeAnnotation == null) {
+        if (objectTypeId == null) {
             String message = "Class " + entity.getClass() + " is not annotated with @ObjectType";
             RuntimeException exception = new InvalidAnnotatedClassException(message, entity.getClass());
             log.warn(message, entity);
             throw exception;
         }
 
-        return new BigInteger(objectTypeAnnotation.ID());
+        return objectTypeId;
     }
 
 
@@ -105,6 +104,7 @@ public class DefaultEntityParser implements EntityParser {
         Map<BigInteger, BigInteger> idToEnumId = new HashMap<>();
 
 
+        EntityMetadata metadata = EntityMetadata.of(entity.getClass());
         Map<BigInteger, Object> idToValue = getParsedMap(entity, ListField.class);
 
         for (Map.Entry<BigInteger, Object> pair : idToValue.entrySet()) {
@@ -113,23 +113,13 @@ public class DefaultEntityParser implements EntityParser {
 //                annotated field's value
             Enum value = (Enum) pair.getValue();
 
-            Field enumField;
-            try {
-                enumField = value.getDeclaringClass().getField(value.name());
-            } catch (NoSuchFieldException e) {
-                String msg = "Annotated field's value does not exist in original Enum";
-                log.error(msg, e);
-                throw new InvalidAnnotatedClassException(msg, value.getDeclaringClass(), e);
-            }
-
-            ListValue annotation = enumField.getAnnotation(ListValue.class);
-            if (annotation == null) {
+            BigInteger valueId = metadata.getListValueId(id, value);
+            if (valueId == null) {
                 String msg = "Parsed enum is not annotated";
                 InvalidAnnotatedClassException exception = new InvalidAnnotatedClassException(msg, value.getDeclaringClass());
                 log.error(msg + " {}", value.getDeclaringClass());
                 throw exception;
             }
-            BigInteger valueId = new BigInteger(annotation.ID());
 
             idToEnumId.put(id, valueId);
         }
@@ -172,14 +162,12 @@ public class DefaultEntityParser implements EntityParser {
      * @return map of annotation id and value of field that was annotated
      */
     private Map<BigInteger, Object> getParsedMap(BaseEntity entity, Class<? extends Annotation> annotationClass) {
-        List<Field> allFields = ReflectionHelper.getAllFields(entity.getClass());
-        List<Field> valueAnnotatedFields = ReflectionHelper.getFieldsFilteredByAnnotation(allFields, annotationClass);
+        EntityMetadata metadata = EntityMetadata.of(entity.getClass());
 
         Map<BigInteger, Object> idToValue = new HashMap<>();
 
-        for (Field field : valueAnnotatedFields) {
-            Annotation annotation = field.getAnnotation(annotationClass);
-            BigInteger id = ReflectionHelper.getIdFromAnnotation(annotation);
+        for (Field field : metadata.getFields(annotationClass)) {
+            BigInteger id = metadata.getAttributeIdByFieldName(annotationClass, field.getName());
             Object value = ReflectionHelper.getFieldValue(entity, field);
             if (value != null) {
                 idToValue.put(id, value);
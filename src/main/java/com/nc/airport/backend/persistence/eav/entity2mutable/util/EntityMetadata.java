@@ -0,0 +1,290 @@
+package com.nc.airport.backend.persistence.eav.entity2mutable.util;
+
+import com.nc.airport.backend.model.BaseEntity;
+import com.nc.airport.backend.persistence.eav.annotations.CachePolicy;
+import com.nc.airport.backend.persistence.eav.annotations.FlatView;
+import com.nc.airport.backend.persistence.eav.annotations.ObjectType;
+import com.nc.airport.backend.persistence.eav.annotations.Searchable;
+import com.nc.airport.backend.persistence.eav.annotations.attribute.value.DateField;
+import com.nc.airport.backend.persistence.eav.annotations.attribute.value.ListField;
+import com.nc.airport.backend.persistence.eav.annotations.attribute.value.ReferenceField;
+import com.nc.airport.backend.persistence.eav.annotations.attribute.value.ValueField;
+import com.nc.airport.backend.persistence.eav.annotations.enums.ListValue;
+import com.nc.airport.backend.persistence.eav.entity2mutable.builder.ValueConverters;
+import com.nc.airport.backend.persistence.eav.exceptions.InvalidAnnotatedClassException;
+import lombok.extern.log4j.Log4j2;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Immutable description of an entity class: its object type id, attribute ids and annotated fields.
+ * <p>
+ * Metadata of a class is built once, by {@link EntityMetadataScanner} at startup for the model package
+ * or on the first request for any other class, and then shared, so reading and writing entities
+ * is done with map lookups instead of scanning fields and parsing annotation ids every call.
+ */
+@Log4j2
+public final class EntityMetadata {
+    private static final List<Class<? extends Annotation>> FIELD_ANNOTATIONS =
+            Arrays.asList(ValueField.class, DateField.class, ListField.class, ReferenceField.class);
+    private static final Map<Class<? extends BaseEntity>, EntityMetadata> REGISTRY = new ConcurrentHashMap<>();
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final Class<? extends BaseEntity> entityClass;
+    private final BigInteger objectTypeId;
+    private final CachePolicy cachePolicy;
+    private final FlatView flatView;
+    private final boolean searchable;
+    private final Map<Class<? extends Annotation>, List<BigInteger>> idsByAnnotation = new HashMap<>();
+    private final Map<Class<? extends Annotation>, Map<BigInteger, Field>> fieldsByAnnotation = new HashMap<>();
+    private final Map<Class<? extends Annotation>, Map<BigInteger, MethodHandle>> settersByAnnotation = new HashMap<>();
+    private final Map<BigInteger, Function<String, ?>> valueConverters = new HashMap<>();
+    private final Map<Class<? extends Annotation>, List<Field>> annotatedFields = new HashMap<>();
+    private final Map<Class<? extends Annotation>, Map<String, BigInteger>> idsByFieldName = new HashMap<>();
+    private final Map<BigInteger, Map<BigInteger, Enum<?>>> enumsByListValueId = new HashMap<>();
+    private final Map<BigInteger, Map<Enum<?>, BigInteger>> listValueIdsByEnum = new HashMap<>();
+    private final List<BigInteger> attributeIds;
+
+    private EntityMetadata(Class<? extends BaseEntity> entityClass) {
+        this.entityClass = entityClass;
+        ObjectType objectType = entityClass.getAnnotation(ObjectType.class);
+        this.objectTypeId = objectType == null ? null : ReflectionHelper.getIdFromAnnotation(objectType);
+        this.cachePolicy = objectType == null ? null : entityClass.getAnnotation(CachePolicy.class);
+        this.flatView = objectType == null ? null : entityClass.getAnnotation(FlatView.class);
+        this.searchable = objectType != null && entityClass.isAnnotationPresent(Searchable.class);
+
+        for (Class<? extends Annotation> annotationClass : FIELD_ANNOTATIONS) {
+            idsByAnnotation.put(annotationClass, new ArrayList<>());
+            fieldsByAnnotation.put(annotationClass, new HashMap<>());
+            settersByAnnotation.put(annotationClass, new HashMap<>());
+            annotatedFields.put(annotationClass, new ArrayList<>());
+            idsByFieldName.put(annotationClass, new HashMap<>());
+        }
+
+        for (Field field : entityClass.getDeclaredFields()) {
+            for (Class<? extends Annotation> annotationClass : FIELD_ANNOTATIONS) {
+                Annotation annotation = field.getAnnotation(annotationClass);
+                if (annotation != null) {
+                    addField(field, annotationClass, ReflectionHelper.getIdFromAnnotation(annotation));
+                }
+            }
+        }
+
+        List<BigInteger> allIds = new ArrayList<>();
+        for (Class<? extends Annotation> annotationClass : FIELD_ANNOTATIONS) {
+            allIds.addAll(idsByAnnotation.get(annotationClass));
+            idsByAnnotation.put(annotationClass, Collections.unmodifiableList(idsByAnnotation.get(annotationClass)));
+            annotatedFields.put(annotationClass, Collections.unmodifiableList(annotatedFields.get(annotationClass)));
+        }
+        this.attributeIds = Collections.unmodifiableList(allIds);
+    }
+
+    /**
+     * @param entityClass any class extending BaseEntity
+     * @return metadata of the class, built on the first call for this class
+     */
+    public static EntityMetadata of(Class<? extends BaseEntity> entityClass) {
+        EntityMetadata metadata = REGISTRY.get(entityClass);
+        if (metadata == null) {
+            metadata = REGISTRY.computeIfAbsent(entityClass, EntityMetadata::new);
+        }
+        return metadata;
+    }
+
+    public Class<? extends BaseEntity> getEntityClass() {
+        return entityClass;
+    }
+
+    /**
+     * @return id from ObjectType annotation or null if the class is not annotated
+     */
+    public BigInteger getObjectTypeId() {
+        return objectTypeId;
+    }
+
+    /**
+     * @return CachePolicy annotation or null if objects of the class are not cached
+     */
+    public CachePolicy getCachePolicy() {
+        return cachePolicy;
+    }
+
+    /**
+     * @return FlatView annotation or null if objects of the class are not kept in a flat table
+     */
+    public FlatView getFlatView() {
+        return flatView;
+    }
+
+    /**
+     * @return true if value fields of the class are kept in the search index
+     */
+    public boolean isSearchable() {
+        return searchable;
+    }
+
+    /**
+     * @return ids of all annotated fields: value, date, list and reference ones in this order
+     */
+    public List<BigInteger> getAttributeIds() {
+        return attributeIds;
+    }
+
+    public List<BigInteger> getValueFieldIds() {
+        return idsByAnnotation.get(ValueField.class);
+    }
+
+    public List<BigInteger> getDateFieldIds() {
+        return idsByAnnotation.get(DateField.class);
+    }
+
+    public List<BigInteger> getListFieldIds() {
+        return idsByAnnotation.get(ListField.class);
+    }
+
+    public List<BigInteger> getReferenceFieldIds() {
+        return idsByAnnotation.get(ReferenceField.class);
+    }
+
+    /**
+     * @param annotationClass ValueField, DateField, ListField or ReferenceField
+     * @return accessible fields annotated with it in declaration order
+     */
+    public List<Field> getFields(Class<? extends Annotation> annotationClass) {
+        List<Field> fields = annotatedFields.get(annotationClass);
+        return fields == null ? Collections.emptyList() : fields;
+    }
+
+    /**
+     * @param annotationClass ValueField, DateField, ListField or ReferenceField
+     * @param id              id mentioned in the annotation
+     * @return accessible field or null if there is no field annotated with this id
+     */
+    public Field getField(Class<? extends Annotation> annotationClass, BigInteger id) {
+        Map<BigInteger, Field> fields = fieldsByAnnotation.get(annotationClass);
+        return fields == null ? null : fields.get(id);
+    }
+
+    /**
+     * Setter handle is resolved once, so entities are filled without reflective field lookups.
+     *
+     * @param annotationClass ValueField, DateField, ListField or ReferenceField
+     * @param id              id mentioned in the annotation
+     * @return handle taking (entity, value) or null if there is no field annotated with this id
+     */
+    public MethodHandle getSetter(Class<? extends Annotation> annotationClass, BigInteger id) {
+        Map<BigInteger, MethodHandle> setters = settersByAnnotation.get(annotationClass);
+        return setters == null ? null : setters.get(id);
+    }
+
+    /**
+     * Converter is resolved together with the setter, so values are converted without registry lookups.
+     *
+     * @param valueFieldId id mentioned in ValueField annotation
+     * @return converter from String to the type of the field or null if there is no field annotated with this id
+     */
+    public Function<String, ?> getValueConverter(BigInteger valueFieldId) {
+        return valueConverters.get(valueFieldId);
+    }
+
+    /**
+     * @param annotationClass ValueField, DateField, ListField or ReferenceField
+     * @return id of the field with given name or null if there is no such field annotated with it
+     */
+    public BigInteger getAttributeIdByFieldName(Class<? extends Annotation> annotationClass, String fieldName) {
+        Map<String, BigInteger> ids = idsByFieldName.get(annotationClass);
+        return ids == null ? null : ids.get(fieldName);
+    }
+
+    /**
+     * @param listFieldId id of ListField annotation of an enum field
+     * @param listValueId id of ListValue annotation of one of the enum constants
+     * @return enum constant or null if there is no constant annotated with this id
+     */
+    public Enum<?> getEnum(BigInteger listFieldId, BigInteger listValueId) {
+        Map<BigInteger, Enum<?>> enums = enumsByListValueId.get(listFieldId);
+        return enums == null ? null : enums.get(listValueId);
+    }
+
+    /**
+     * @param listFieldId id of ListField annotation of an enum field
+     * @param value       one of the enum constants
+     * @return id of ListValue annotation of the constant or null if it is not annotated
+     */
+    public BigInteger getListValueId(BigInteger listFieldId, Enum<?> value) {
+        Map<Enum<?>, BigInteger> ids = listValueIdsByEnum.get(listFieldId);
+        return ids == null ? null : ids.get(value);
+    }
+
+    private void addField(Field field, Class<? extends Annotation> annotationClass, BigInteger id) {
+        field.setAccessible(true);
+        idsByAnnotation.get(annotationClass).add(id);
+        fieldsByAnnotation.get(annotationClass).put(id, field);
+        settersByAnnotation.get(annotationClass).put(id, unreflectSetter(field));
+        annotatedFields.get(annotationClass).add(field);
+        idsByFieldName.get(annotationClass).put(field.getName(), id);
+
+        if (annotationClass == ValueField.class) {
+            valueConverters.put(id, resolveValueConverter(field));
+        }
+        if (annotationClass == ListField.class && field.getType().isEnum()) {
+            Map<BigInteger, Enum<?>> enums = mapEnumConstants(field.getType());
+            Map<Enum<?>, BigInteger> listValueIds = new HashMap<>();
+            for (Map.Entry<BigInteger, Enum<?>> idToEnum : enums.entrySet()) {
+                listValueIds.put(idToEnum.getValue(), idToEnum.getKey());
+            }
+            enumsByListValueId.put(id, enums);
+            listValueIdsByEnum.put(id, listValueIds);
+        }
+    }
+
+    private MethodHandle unreflectSetter(Field field) {
+        try {
+            return LOOKUP.unreflectSetter(field).asType(SETTER_TYPE);
+        } catch (IllegalAccessException e) {
+            String msg = "Can't access field " + field.getName() + " of " + entityClass;
+            RuntimeException exception = new InvalidAnnotatedClassException(msg, entityClass, e);
+            log.error(msg);
+            throw exception;
+        }
+    }
+
+    private Function<String, ?> resolveValueConverter(Field field) {
+        try {
+            return ValueConverters.shared().converterFor(field.getType());
+        } catch (IllegalArgumentException e) {
+            String msg = "Can't convert values of field " + field.getName() + " of " + entityClass
+                    + " from String to " + field.getType().getName();
+            RuntimeException exception = new InvalidAnnotatedClassException(msg, entityClass, e);
+            log.error(msg);
+            throw exception;
+        }
+    }
+
+    private Map<BigInteger, Enum<?>> mapEnumConstants(Class<?> enumClass) {
+        Map<BigInteger, Enum<?>> enums = new HashMap<>();
+        for (Field enumField : enumClass.getFields()) {
+            ListValue enumAnnotation = enumField.getAnnotation(ListValue.class);
+            if (enumAnnotation != null) {
+                try {
+                    enums.put(new BigInteger(enumAnnotation.ID()), (Enum<?>) enumField.get(null));
+                } catch (IllegalAccessException e) {
+                    String msg = "Can't access enum field of " + enumClass;
+                    RuntimeException exception = new InvalidAnnotatedClassException(msg, enumClass, e);
+                    log.error(msg);
+                    throw exception;
+                }
+            }
+        }
+        return enums;
+    }
+}
@@ -0,0 +1,65 @@
+package com.nc.airport.backend.persistence.eav.entity2mutable.util;
+
+import com.nc.airport.backend.model.BaseEntity;
+import com.nc.airport.backend.persistence.eav.annotations.FlatView;
+import com.nc.airport.backend.persistence.eav.annotations.ObjectType;
+import com.nc.airport.backend.persistence.eav.annotations.Searchable;
+import com.nc.airport.backend.persistence.eav.mutable2query.data.FlatViewTable;
+import com.nc.airport.backend.persistence.eav.mutable2query.data.FlatViews;
+import com.nc.airport.backend.persistence.eav.mutable2query.data.SearchIndex;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Builds {@link EntityMetadata} of every class of the model package annotated with ObjectType at startup,
+ * so badly annotated entities fail the start instead of the first request that uses them.
+ * Flat tables of classes annotated with {@link FlatView} and value fields of classes annotated
+ * with {@link Searchable} are registered as well.
+ */
+@Log4j2
+@Component
+public class EntityMetadataScanner {
+    private static final String MODEL_PACKAGE = BaseEntity.class.getPackage().getName();
+
+    private final FlatViews flatViews;
+    private final SearchIndex searchIndex;
+
+    @Autowired
+    public EntityMetadataScanner(FlatViews flatViews, SearchIndex searchIndex) {
+        this.flatViews = flatViews;
+        this.searchIndex = searchIndex;
+    }
+
+    @PostConstruct
+    public void scanModelPackage() {
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
+        scanner.addIncludeFilter(new AnnotationTypeFilter(ObjectType.class));
+
+        int scanned = 0;
+        for (BeanDefinition candidate : scanner.findCandidateComponents(MODEL_PACKAGE)) {
+            Class<?> clazz = ClassUtils.resolveClassName(candidate.getBeanClassName(), getClass().getClassLoader());
+            if (BaseEntity.class.isAssignableFrom(clazz)) {
+                EntityMetadata metadata = EntityMetadata.of(clazz.asSubclass(BaseEntity.class));
+                if (metadata.getFlatView() != null) {
+                    flatViews.register(new FlatViewTable(metadata.getFlatView().table(), metadata.getObjectTypeId(),
+                            metadata.getValueFieldIds(), metadata.getDateFieldIds(),
+                            metadata.getListFieldIds(), metadata.getReferenceFieldIds()));
+                }
+                if (metadata.isSearchable()) {
+                    searchIndex.register(metadata.getObjectTypeId(), metadata.getValueFieldIds());
+                }
+                scanned++;
+            } else {
+                log.warn("{} is annotated with @ObjectType but does not extend BaseEntity", clazz);
+            }
+        }
+        log.info("Built metadata of {} entity classes", scanned);
+    }
+}
@@ -152,16 +152,11 @@ public final class ReflectionHelper {
      * @return field of a class that has given id. If no field present - returns null
      */
     public static Field getFieldByAnnotationId(Class<? extends BaseEntity> entityClazz, Class<? extends Annotation> annotationClazz, BigInteger givenId) {
-        List<Field> allFields = getAllFields(entityClazz);
-        List<Field> annotatedFields = getFieldsFilteredByAnnotation(allFields, annotationClazz);
-        for (Field annotatedField : annotatedFields) {
-            BigInteger actualId = getIdFromAnnotation(annotatedField.getAnnotation(annotationClazz));
-            if (givenId.equals(actualId)) {
-                return annotatedField;
-            }
+        Field field = EntityMetadata.of(entityClazz).getField(annotationClazz, givenId);
+        if (field == null) {
+            log.error(DATA_LOSS, "No field in {} with {} annotation.", entityClazz, annotationClazz);
         }
-        log.error(DATA_LOSS, "No field in {} with {} annotation.", entityClazz, annotationClazz);
-        return null;
+        return field;
     }
 
     /**
@@ -171,8 +166,7 @@ public final class ReflectionHelper {
      * @return ID of ObjType annotation
      */
     public static BigInteger getObjTypeId(Class<? extends BaseEntity> entityClass) {
-        Annotation objTypeAnnotation = entityClass.getAnnotation(ObjectType.class);
-        return getIdFromAnnotation(objTypeAnnotation);
+        return EntityMetadata.of(entityClass).getObjectTypeId();
     }
 
 
@@ -183,49 +177,32 @@ public final class ReflectionHelper {
      * @return unsorted list of attribute ids that class contains.
      */
     public static List<BigInteger> getAttributeIds(Class<? extends BaseEntity> entityClass) {
-        List<BigInteger> attributeIds = new ArrayList<>();
-
-        List<Field> fields = getAllFields(entityClass);
-
-        attributeIds.addAll(getAnnotationIdsFromFields(fields, ValueField.class));
-        attributeIds.addAll(getAnnotationIdsFromFields(fields, DateField.class));
-        attributeIds.addAll(getAnnotationIdsFromFields(fields, ListField.class));
-        attributeIds.addAll(getAnnotationIdsFromFields(fields, ReferenceField.class));
-
-        return attributeIds;
+        return new ArrayList<>(EntityMetadata.of(entityClass).getAttributeIds());
     }
 
     public static BigInteger getAttributeIdByFieldName(Class<? extends BaseEntity> entityClass,
                                                        Class<? extends Annotation> fieldAnnotation,
                                                        String fieldName) {
-        List<Field> fields = getAllFields(entityClass);
-        for (Field field : fields) {
-            if (field.getName().equals(fieldName)) {
-                return getAnnotationIdFromField(field, fieldAnnotation);
-            }
-        }
-        return null;
+        return EntityMetadata.of(entityClass).getAttributeIdByFieldName(fieldAnnotation, fieldName);
     }
 
-    // FIXME: 18.12.2018 REFACTOR
+    /*
+    Next methods return copies, so callers are free to change them without breaking the shared metadata
+     */
     public static List<BigInteger> getValueFieldIds(Class<? extends BaseEntity> entityClass) {
-        List<Field> fields = getAllFields(entityClass);
-        return new ArrayList<>(getAnnotationIdsFromFields(fields, ValueField.class));
+        return new ArrayList<>(EntityMetadata.of(entityClass).getValueFieldIds());
     }
 
     public static List<BigInteger> getListFieldIds(Class<? extends BaseEntity> entityClass) {
-        List<Field> fields = getAllFields(entityClass);
-        return new ArrayList<>(getAnnotationIdsFromFields(fields, ListField.class));
+        return new ArrayList<>(EntityMetadata.of(entityClass).getListFieldIds());
     }
 
     public static List<BigInteger> getDateFieldIds(Class<? extends BaseEntity> entityClass) {
-        List<Field> fields = getAllFields(entityClass);
-        return new ArrayList<>(getAnnotationIdsFromFields(fields, DateField.class));
+        return new ArrayList<>(EntityMetadata.of(entityClass).getDateFieldIds());
     }
 
     public static List<BigInteger> getReferenceFieldIds(Class<? extends BaseEntity> entityClass) {
-        List<Field> fields = getAllFields(entityClass);
-        return new ArrayList<>(getAnnotationIdsFromFields(fields, ReferenceField.class));
+        return new ArrayList<>(EntityMetadata.of(entityClass).getReferenceFieldIds());
     }
 
     /**
@@ -239,19 +216,4 @@ public final class ReflectionHelper {
         attributeIds.sort(BigInteger::compareTo);
         return attributeIds;
     }
-
-    private static List<BigInteger> getAnnotationIdsFromFields(List<Field> fields, Class<? extends Annotation> annotationClass) {
-        List<BigInteger> ids = new ArrayList<>();
-
-        for (Field field : getFieldsFilteredByAnnotation(fields, annotationClass)) {
-            ids.add(getAnnotationIdFromField(field, annotationClass));
-        }
-
-        return ids;
-    }
-
-    private static BigInteger getAnnotationIdFromField(Field field, Class<? extends Annotation> annotationClass) {
-        Annotation annotation = field.getAnnotation(annotationClass);
-        return getIdFromAnnotation(annotation);
-    }
 }
@@ -3,11 +3,17 @@ package com.nc.airport.backend.persistence.eav.mutable2query;
 import com.nc.airport.backend.persistence.eav.Mutable;
 import com.nc.airport.backend.persistence.eav.exceptions.BadDBRequestException;
 import com.nc.airport.backend.persistence.eav.exceptions.DatabaseConnectionException;
+import com.nc.airport.backend.persistence.eav.mutable2query.data.FlatViews;
+import com.nc.airport.backend.persistence.eav.mutable2query.data.SearchIndex;
+import com.nc.airport.backend.persistence.eav.mutable2query.data.acquisition.FetchSizes;
+import com.nc.airport.backend.persistence.eav.mutable2query.data.acquisition.JoinedMutables;
 import com.nc.airport.backend.persistence.eav.mutable2query.data.acquisition.MetaDataDBFetcher;
+import com.nc.airport.backend.persistence.eav.mutable2query.data.acquisition.ReferenceJoin;
 import com.nc.airport.backend.persistence.eav.mutable2query.data.acquisition.TallLazyDBFetcher;
 import com.nc.airport.backend.persistence.eav.mutable2query.data.acquisition.WidePickyDBFetcher;
 import com.nc.airport.backend.persistence.eav.mutable2query.data.modification.DeleteSequenceBuilder;
 import com.nc.airport.backend.persistence.eav.mutable2query.data.modification.InsertSequenceBuilder;
+import com.nc.airport.backend.persistence.eav.mutable2query.data.modification.ObjectIdAllocator;
 import com.nc.airport.backend.persistence.eav.mutable2query.data.modification.SequenceBuilder;
 import com.nc.airport.backend.persistence.eav.mutable2query.data.modification.UpdateSequenceBuilder;
 import com.nc.airport.backend.persistence.eav.mutable2query.filtering2sorting.filtering.FilterEntity;
@@ -16,7 +22,12 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.tomcat.jdbc.pool.DataSource;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigInteger;
 import java.sql.Connection;
@@ -24,27 +35,67 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 //                          TODO MAKE PAGES BIG INTS
+/**
+ * Entry point of the EAV data layer. Every public call borrows a connection from the pool
+ * (or joins the one bound to the current Spring transaction) and returns it on completion.
+ */
 @Component
 public class Mutable2Query {
     private final Logger logger = LogManager.getLogger(Mutable2Query.class.getSimpleName());
-    private Connection connection;
+    private javax.sql.DataSource dataSource;
+    private TransactionTemplate transactionTemplate;
+    private ObjectIdAllocator idAllocator;
+    private FlatViews flatViews;
+    private SearchIndex searchIndex;
+
+    @Value("${eav.jdbc.batch-size:" + UpdateSequenceBuilder.DEFAULT_BATCH_SIZE + "}")
+    private int batchSize = UpdateSequenceBuilder.DEFAULT_BATCH_SIZE;
+
+    @Value("${eav.jdbc.fetch-size.single:" + FetchSizes.DEFAULT_SINGLE + "}")
+    private int singleFetchSize = FetchSizes.DEFAULT_SINGLE;
+
+    @Value("${eav.jdbc.fetch-size.page:" + FetchSizes.DEFAULT_PAGE + "}")
+    private int pageFetchSize = FetchSizes.DEFAULT_PAGE;
+
+    @Value("${eav.jdbc.fetch-size.stream:" + FetchSizes.DEFAULT_STREAM + "}")
+    private int streamFetchSize = FetchSizes.DEFAULT_STREAM;
 
     @Autowired
-    public Mutable2Query(DataSource dataSource) {
-        try {
-//            dataSource.setJdbcInterceptors("org.apache.tomcat.jdbc.pool.interceptor.StatementFinalizer");
-            connection = dataSource.getConnection();
-        } catch (SQLException e) {
-            String message = "Cannot establish connection";
-            logger.error(message, e);
-            throw new DatabaseConnectionException("Couldn't get connection from dataSource", e);
-        }
+    public Mutable2Query(DataSource dataSource, ObjectIdAllocator idAllocator, FlatViews flatViews,
+                         SearchIndex searchIndex) {
+        this((javax.sql.DataSource) dataSource, idAllocator, flatViews, searchIndex);
     }
 
     public Mutable2Query(Connection connection) {
-        this.connection = connection;
+        this(new SingleConnectionDataSource(connection, true),
+                new ObjectIdAllocator(ObjectIdAllocator.DEFAULT_BLOCK_SIZE), null, null);
+    }
+
+    private Mutable2Query(javax.sql.DataSource dataSource, ObjectIdAllocator idAllocator, FlatViews flatViews,
+                          SearchIndex searchIndex) {
+        this.dataSource = dataSource;
+        this.idAllocator = idAllocator;
+        this.flatViews = flatViews;
+        this.searchIndex = searchIndex;
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    /**
+     * Runs given work as a single unit of work: every statement issued through this Mutable2Query
+     * inside of it shares one connection and is committed once at the end.
+     * If the work throws, everything it has written is rolled back.
+     * Nested calls join the outer unit of work.
+     *
+     * @param work statements to be grouped
+     * @return result of the work
+     */
+    public <R> R inTransaction(Supplier<R> work) {
+        return transactionTemplate.execute(status -> work.get());
     }
 
     /**
@@ -53,7 +104,9 @@ public class Mutable2Query {
      * @param mutable mutable representation of object to be inserted
      */
     public Mutable sqlInsert(Mutable mutable) {
-        return buildASequence(new InsertSequenceBuilder(connection), mutable);
+        return inTransaction(() ->
+                withConnection(connection ->
+                        buildASequence(new InsertSequenceBuilder(connection, idAllocator, batchSize, flatViews, searchIndex), mutable)));
     }
 
     /**
@@ -64,7 +117,9 @@ public class Mutable2Query {
      * @param mutable mutable representation of object to be updated
      */
     public Mutable sqlUpdate(Mutable mutable) {
-        return buildASequence(new UpdateSequenceBuilder(connection), mutable);
+        return inTransaction(() ->
+                withConnection(connection ->
+                        buildASequence(new UpdateSequenceBuilder(connection, idAllocator, batchSize, flatViews, searchIndex), mutable)));
     }
 
     /**
@@ -73,7 +128,8 @@ public class Mutable2Query {
      * @param objectId id of object to be deleted
      */
     public Mutable sqlDelete(BigInteger objectId) {
-        return new DeleteSequenceBuilder(connection).build(objectId);
+        return inTransaction(() ->
+                withConnection(connection -> new DeleteSequenceBuilder(connection).build(objectId)));
     }
 
     /**
@@ -82,41 +138,49 @@ public class Mutable2Query {
      * @param mutable mutable representation of object to be deleted
      */
     public Mutable sqlDelete(Mutable mutable) {
-        return buildASequence(new DeleteSequenceBuilder(connection), mutable);
+        return inTransaction(() ->
+                withConnection(connection -> buildASequence(new DeleteSequenceBuilder(connection), mutable)));
     }
 
     private Mutable buildASequence(SequenceBuilder sequenceBuilder, Mutable mutable) {
         return sequenceBuilder.build(mutable);
     }
 
+    /**
+     * Inserts all given mutables as new objects in one transaction. Rows of every table are sent
+     * in JDBC batches of eav.jdbc.batch-size, whatever the number of mutables is.
+     *
+     * @param mutables mutable representations of objects to be inserted
+     * @return the same mutables in the same order with their new objectId set
+     */
     public List<Mutable> sqlInsertMultipleMutables(Collection<Mutable> mutables) {
-        List<Mutable> insertedMutables = new ArrayList<>();
-
-        for (Mutable mutable : mutables) {
-            sqlInsert(mutable);
-            insertedMutables.add(mutable);
-        }
-
-        return insertedMutables;
+        return inTransaction(() ->
+                withConnection(connection ->
+                        new InsertSequenceBuilder(connection, idAllocator, batchSize, flatViews, searchIndex).build(mutables)));
     }
 
+    /**
+     * Updates or inserts all given mutables in one transaction. Rows of every table are sent
+     * in JDBC batches of eav.jdbc.batch-size, whatever the number of mutables is.
+     *
+     * @param mutables mutable representations of objects to be updated
+     * @return the same mutables in the same order, new ones with objectId set
+     */
     public List<Mutable> sqlUpdateMultipleMutables(Collection<Mutable> mutables) {
-        List<Mutable> updatedMutables = new ArrayList<>();
-        for (Mutable mutable : mutables) {
-            sqlUpdate(mutable);
-            updatedMutables.add(mutable);
-        }
-
-        return updatedMutables;
+        return inTransaction(() ->
+                withConnection(connection ->
+                        new UpdateSequenceBuilder(connection, idAllocator, batchSize, flatViews, searchIndex).build(mutables)));
     }
 
     public List<Mutable> sqlDeleteMultipleMutables(Collection<Mutable> mutables) {
-        List<Mutable> deletedMutables = new ArrayList<>();
-        for (Mutable mutable : mutables) {
-            sqlDelete(mutable);
-            deletedMutables.add(mutable);
-        }
-        return deletedMutables;
+        return inTransaction(() -> {
+            List<Mutable> deletedMutables = new ArrayList<>();
+            for (Mutable mutable : mutables) {
+                sqlDelete(mutable);
+                deletedMutables.add(mutable);
+            }
+            return deletedMutables;
+        });
     }
 
     /**
@@ -134,8 +198,8 @@ public class Mutable2Query {
      *                                     to the server
      */
     public Mutable getSingleMutable(BigInteger objectId, Collection<BigInteger> attributesId) {
-        return new TallLazyDBFetcher(connection)
-                .getMutable(objectId, attributesId);
+        return withConnection(connection -> new TallLazyDBFetcher(connection, fetchSizes())
+                .getMutable(objectId, attributesId));
     }
 
     /**
@@ -159,8 +223,8 @@ public class Mutable2Query {
      */
     public List<Mutable> getMutablesFromDB(BigInteger objType, Collection<BigInteger> attributesId,
                                            int pagingFrom, int pagingTo) {
-        return new TallLazyDBFetcher(connection)
-                .getMutables(objType, attributesId, pagingFrom, pagingTo);
+        return withConnection(connection -> new TallLazyDBFetcher(connection, fetchSizes())
+                .getMutables(objType, attributesId, pagingFrom, pagingTo));
     }
 
     /**
@@ -180,15 +244,16 @@ public class Mutable2Query {
      */
     public List<Mutable> getMutablesFromDB(List<BigInteger> objectsId,
                                            Collection<BigInteger> attributesId) {
-        return new TallLazyDBFetcher(connection)
-                .getMutables(objectsId, attributesId);
+        return withConnection(connection -> new TallLazyDBFetcher(connection, fetchSizes())
+                .getMutables(objectsId, attributesId));
     }
 
     /**
      * @param values     values attr_id List
      * @param dateValues dateValues attr_id List
      * @param listValues listValues attr_id List
-     * @param references references attr_id List
+     * @param references   references attr_id List
+     * @param objectTypeId type of the objects
      * @param pagingFrom
      * @param pagingTo
      * @param sortBy
@@ -201,16 +266,18 @@ public class Mutable2Query {
                                            List<BigInteger> dateValues,
                                            List<BigInteger> listValues,
                                            List<BigInteger> references,
+                                           BigInteger objectTypeId,
                                            int pagingFrom, int pagingTo,
                                            List<SortEntity> sortBy) {
-        return getMutablesFromDB(values, dateValues, listValues, references, pagingFrom, pagingTo, sortBy, null);
+        return getMutablesFromDB(values, dateValues, listValues, references, objectTypeId, pagingFrom, pagingTo, sortBy, null);
     }
 
     /**
      * @param values     values attr_id List
      * @param dateValues dateValues attr_id List
      * @param listValues listValues attr_id List
-     * @param references references attr_id List
+     * @param references   references attr_id List
+     * @param objectTypeId type of the objects
      * @param pagingFrom
      * @param pagingTo
      * @param sortBy
@@ -224,11 +291,13 @@ public class Mutable2Query {
                                            List<BigInteger> dateValues,
                                            List<BigInteger> listValues,
                                            List<BigInteger> references,
+                                           BigInteger objectTypeId,
                                            int pagingFrom, int pagingTo,
                                            List<SortEntity> sortBy,
                                            List<FilterEntity> filterBy) {
-        return new WidePickyDBFetcher(connection)
-                .getMutables(values, dateValues, listValues, references, pagingFrom, pagingTo, sortBy, filterBy);
+        return withConnection(connection -> new WidePickyDBFetcher(connection, flatViews, fetchSizes())
+                .getMutables(values, dateValues, listValues, references, objectTypeId,
+                        pagingFrom, pagingTo, sortBy, filterBy));
     }
 
     /**
@@ -238,7 +307,7 @@ public class Mutable2Query {
      * @return true if exists, false if not. False if objectId is null.
      */
     public boolean existsByObjId(BigInteger objectId) {
-        return new MetaDataDBFetcher(connection).existsByObjId(objectId);
+        return withConnection(connection -> new MetaDataDBFetcher(connection).existsByObjId(objectId));
     }
 
     /**
@@ -248,7 +317,7 @@ public class Mutable2Query {
      * @return number of objects
      */
     public BigInteger countById(BigInteger objTypeId) {
-        return new MetaDataDBFetcher(connection).countById(objTypeId);
+        return withConnection(connection -> new MetaDataDBFetcher(connection).countById(objTypeId));
     }
 
     /**
@@ -258,7 +327,7 @@ public class Mutable2Query {
      * @return number of references
      */
     public BigInteger countOfReferencesById(BigInteger objectId) {
-        return new MetaDataDBFetcher(connection).getCountOfReferences(objectId);
+        return withConnection(connection -> new MetaDataDBFetcher(connection).getCountOfReferences(objectId));
     }
 
     /**
@@ -273,14 +342,15 @@ public class Mutable2Query {
     }
 
     /**
-     * Get count of returned items by filtering
+     * Get count of objects of given type matching the filters
      *
-     * @param values     values attr_id List
-     * @param dateValues dateValues attr_id List
-     * @param listValues listValues attr_id List
-     * @param references references attr_id List
-     * @param filterBy
-     * @return Total count of pages
+     * @param values       values attr_id List
+     * @param dateValues   dateValues attr_id List
+     * @param listValues   listValues attr_id List
+     * @param references   references attr_id List
+     * @param objectTypeId type of the objects
+     * @param filterBy     filtering criteria
+     * @return Total count of objects
      * @throws BadDBRequestException       when arguments are invalid
      * @throws DatabaseConnectionException when there's some problems with database or with it's connection
      *                                     to the server
@@ -289,11 +359,30 @@ public class Mutable2Query {
                                     List<BigInteger> dateValues,
                                     List<BigInteger> listValues,
                                     List<BigInteger> references,
+                                    BigInteger objectTypeId,
                                     List<FilterEntity> filterBy) {
-        int countOfItems = new WidePickyDBFetcher(connection)
-                .getCountOfMutables(values, dateValues, listValues, references, filterBy);
+        return countByFilter(values, dateValues, listValues, references, objectTypeId, filterBy, null);
+    }
 
-        return BigInteger.valueOf(countOfItems == 0 ? 1 : (int) Math.ceil((double) countOfItems / (double) 10));
+    /**
+     * Get count of objects of given type matching the filters, which stops at limit + 1 objects
+     *
+     * @param limit null to count all the objects
+     * @return Total count of objects, not more than limit + 1 if the limit is given
+     * @throws BadDBRequestException       when arguments are invalid
+     * @throws DatabaseConnectionException when there's some problems with database or with it's connection
+     *                                     to the server
+     */
+    public BigInteger countByFilter(List<BigInteger> values,
+                                    List<BigInteger> dateValues,
+                                    List<BigInteger> listValues,
+                                    List<BigInteger> references,
+                                    BigInteger objectTypeId,
+                                    List<FilterEntity> filterBy,
+                                    Integer limit) {
+        int countOfItems = withConnection(connection -> new WidePickyDBFetcher(connection, flatViews, fetchSizes())
+                .getCountOfMutables(values, dateValues, listValues, references, objectTypeId, filterBy, limit));
+        return BigInteger.valueOf(countOfItems);
     }
 
 
@@ -302,8 +391,8 @@ public class Mutable2Query {
                                                      List<BigInteger> listValues,
                                                      List<BigInteger> references,
                                                      int pagingFrom, int pagingTo, BigInteger parentId, BigInteger objectTypeId) {
-        return new WidePickyDBFetcher(connection)
-                .getMutablesByParentId(values, dateValues, listValues, references, pagingFrom, pagingTo, parentId, objectTypeId);
+        return withConnection(connection -> new WidePickyDBFetcher(connection, flatViews, fetchSizes())
+                .getMutablesByParentId(values, dateValues, listValues, references, pagingFrom, pagingTo, parentId, objectTypeId));
     }
 
     public List<Mutable> getMutablesFromDBByParentId(List<BigInteger> values,
@@ -313,8 +402,74 @@ public class Mutable2Query {
                                                      int pagingFrom, int pagingTo, BigInteger parentId, BigInteger objectTypeId,
                                                      List<SortEntity> sortBy,
                                                      List<FilterEntity> filterBy) {
-        return new WidePickyDBFetcher(connection)
-                .getMutablesByParentId(values, dateValues, listValues, references, pagingFrom, pagingTo, parentId, objectTypeId, sortBy, filterBy);
+        return withConnection(connection -> new WidePickyDBFetcher(connection, flatViews, fetchSizes())
+                .getMutablesByParentId(values, dateValues, listValues, references, pagingFrom, pagingTo, parentId, objectTypeId, sortBy, filterBy));
+    }
+
+    /**
+     * Fetching a page of objects of given type with the objects they reference joined in the same query
+     *
+     * @param objectTypeId type of the root objects
+     * @param joins        reference hops of the query
+     * @return rows of the page and total number of rows matching the filters
+     * @throws BadDBRequestException       when arguments are invalid
+     * @throws DatabaseConnectionException when there's some problems with database or with it's connection
+     *                                     to the server
+     */
+    public JoinedMutables getJoinedMutables(List<BigInteger> values,
+                                            List<BigInteger> dateValues,
+                                            List<BigInteger> listValues,
+                                            List<BigInteger> references,
+                                            BigInteger objectTypeId,
+                                            List<ReferenceJoin> joins,
+                                            int pagingFrom, int pagingTo,
+                                            List<SortEntity> sortBy,
+                                            List<FilterEntity> filterBy) {
+        return withConnection(connection -> new WidePickyDBFetcher(connection, flatViews, fetchSizes())
+                .getJoinedMutables(values, dateValues, listValues, references, objectTypeId, joins,
+                        pagingFrom, pagingTo, sortBy, filterBy));
+    }
+
+    /**
+     * Fetching a page of objects of given type that follows the last row of the previous page (keyset paging)
+     *
+     * @param objectTypeId type of the objects
+     * @param lastKey      values of sortBy columns in the last row of the previous page, null for the first page
+     * @param lastObjectId OBJECT_ID of the last row of the previous page
+     * @param size         max number of objects in the page
+     * @return objects of the page in the order of sortBy and OBJECT_ID
+     * @throws BadDBRequestException       when arguments are invalid
+     * @throws DatabaseConnectionException when there's some problems with database or with it's connection
+     *                                     to the server
+     */
+    public List<Mutable> getMutablesAfter(List<BigInteger> values,
+                                          List<BigInteger> dateValues,
+                                          List<BigInteger> listValues,
+                                          List<BigInteger> references,
+                                          BigInteger objectTypeId,
+                                          List<SortEntity> sortBy,
+                                          List<FilterEntity> filterBy,
+                                          List<Object> lastKey,
+                                          BigInteger lastObjectId,
+                                          int size) {
+        return withConnection(connection -> new WidePickyDBFetcher(connection, flatViews, fetchSizes())
+                .getMutablesAfter(values, dateValues, listValues, references, objectTypeId,
+                        sortBy, filterBy, lastKey, lastObjectId, size));
+    }
+
+    /**
+     * Fetching objects by their ids in as few queries as possible
+     *
+     * @param objectIds ids of the objects, duplicates are allowed
+     * @return found objects, one for each distinct id, in no particular order
+     */
+    public List<Mutable> getMutablesByIds(List<BigInteger> values,
+                                          List<BigInteger> dateValues,
+                                          List<BigInteger> listValues,
+                                          List<BigInteger> references,
+                                          Collection<BigInteger> objectIds) {
+        return withConnection(connection -> new WidePickyDBFetcher(connection, flatViews, fetchSizes())
+                .getMutablesByIds(values, dateValues, listValues, references, objectIds));
     }
 
     public Mutable getSingleMutableByReference(List<BigInteger> values,
@@ -322,8 +477,8 @@ public class Mutable2Query {
                                                List<BigInteger> listValues,
                                                List<BigInteger> references,
                                                BigInteger objectId) {
-        return new WidePickyDBFetcher(connection)
-                .getSingleMutableByReference(values, dateValues, listValues, references, objectId);
+        return withConnection(connection -> new WidePickyDBFetcher(connection, flatViews, fetchSizes())
+                .getSingleMutableByReference(values, dateValues, listValues, references, objectId));
     }
 
     public List<Mutable> getMutablesByReference(List<BigInteger> values,
@@ -331,20 +486,91 @@ public class Mutable2Query {
                                                 List<BigInteger> listValues,
                                                 List<BigInteger> references,
                                                 BigInteger objectId) {
-        return new WidePickyDBFetcher(connection)
-                .getMutablesByReference(values, dateValues, listValues, references, objectId);
+        return withConnection(connection -> new WidePickyDBFetcher(connection, flatViews, fetchSizes())
+                .getMutablesByReference(values, dateValues, listValues, references, objectId));
     }
 
     public List<Mutable> getMutablesBySeveralReferences(List<BigInteger> values,
                                                         List<BigInteger> dateValues,
                                                         List<BigInteger> listValues,
                                                         List<BigInteger> references,
+                                                        BigInteger objectTypeId,
                                                         List<FilterEntity> filterEntities) {
-        return new WidePickyDBFetcher(connection)
-                .getMutablesBySeveralReferences(values, dateValues, listValues, references, filterEntities);
+        return withConnection(connection -> new WidePickyDBFetcher(connection, flatViews, fetchSizes())
+                .getMutablesBySeveralReferences(values, dateValues, listValues, references, objectTypeId,
+                        filterEntities));
+    }
+
+    /**
+     * Streaming all objects of given type matching the filters, see {@link WidePickyDBFetcher#streamMutables}.
+     * The connection stays borrowed until the stream is closed
+     *
+     * @param fetchSize number of rows read in one round-trip
+     * @return stream of the objects, it has to be closed
+     * @throws DatabaseConnectionException when there's some problems with database or with it's connection
+     *                                     to the server
+     */
+    public Stream<Mutable> streamMutables(List<BigInteger> values,
+                                          List<BigInteger> dateValues,
+                                          List<BigInteger> listValues,
+                                          List<BigInteger> references,
+                                          BigInteger objectTypeId,
+                                          List<SortEntity> sortBy,
+                                          List<FilterEntity> filterBy,
+                                          int fetchSize) {
+        Connection connection = getConnection();
+        try {
+            return new WidePickyDBFetcher(connection, flatViews, fetchSizes())
+                    .streamMutables(values, dateValues, listValues, references, objectTypeId, sortBy, filterBy, fetchSize)
+                    .onClose(() -> DataSourceUtils.releaseConnection(connection, dataSource));
+        } catch (RuntimeException e) {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+            throw e;
+        }
+    }
+
+    /**
+     * @return true if objects of the type can be searched with {@link SearchIndex}
+     */
+    public boolean isSearchIndexed(BigInteger objectTypeId) {
+        return searchIndex != null && searchIndex.isAvailable(objectTypeId);
+    }
+
+    public int getStreamFetchSize() {
+        return fetchSizes().forStream();
     }
 
     public BigInteger getNewObjectId() {
-        return new InsertSequenceBuilder(connection).getNewObjectId();
+        return withConnection(idAllocator::allocate);
+    }
+
+    /**
+     * Runs the action on a connection borrowed for this call only. If a Spring transaction
+     * is active on the current thread, its connection is reused and left open for it.
+     *
+     * @param action work to be done with the connection
+     * @return result of the action
+     * @throws DatabaseConnectionException when no connection can be obtained from the pool
+     */
+    private <R> R withConnection(Function<Connection, R> action) {
+        Connection connection = getConnection();
+        try {
+            return action.apply(connection);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    private FetchSizes fetchSizes() {
+        return new FetchSizes(singleFetchSize, pageFetchSize, streamFetchSize);
+    }
+
+    private Connection getConnection() {
+        try {
+            return DataSourceUtils.doGetConnection(dataSource);
+        } catch (SQLException e) {
+            logger.error("Cannot establish connection", e);
+            throw new DatabaseConnectionException("Couldn't get connection from dataSource", e);
+        }
     }
 }
@@ -0,0 +1,64 @@
+package com.nc.airport.backend.persistence.eav.mutable2query.data;
+
+import lombok.extern.log4j.Log4j2;
+import org.apache.tomcat.jdbc.pool.ConnectionPool;
+import org.apache.tomcat.jdbc.pool.interceptor.StatementCache;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tomcat JDBC StatementCache which also counts how often prepared statements were taken from the cache.
+ * <p>
+ * Fetchers and sequence builders prepare and close their statements within one call,
+ * with the cache a closed statement stays open on its pooled connection and the next call
+ * with the same SQL text skips the parse round-trip.
+ * It is enabled in spring.datasource.tomcat.jdbc-interceptors, max is the cache size per connection.
+ * Tomcat creates an interceptor for every connection, so the counters are shared by the whole pool.
+ * The hit ratio is logged every {@value #REPORT_EVERY} prepared statements and when the pool is closed.
+ */
+@Log4j2
+public class CountingStatementCache extends StatementCache {
+    private static final long REPORT_EVERY = 10_000;
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+
+    public static long getHits() {
+        return HITS.get();
+    }
+
+    public static long getMisses() {
+        return MISSES.get();
+    }
+
+    /**
+     * @return part of prepared statements taken from the cache, 0 if nothing was prepared yet
+     */
+    public static double getHitRatio() {
+        long hits = HITS.get();
+        long total = hits + MISSES.get();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public CachedStatement isCached(Method method, Object[] args) {
+        CachedStatement cached = super.isCached(method, args);
+        if (cached != null) {
+            HITS.incrementAndGet();
+        } else {
+            MISSES.incrementAndGet();
+        }
+        if ((getHits() + getMisses()) % REPORT_EVERY == 0) {
+            log.info("Statement cache: {} hits, {} misses, hit ratio {}",
+                    getHits(), getMisses(), String.format("%.3f", getHitRatio()));
+        }
+        return cached;
+    }
+
+    @Override
+    public void poolClosed(ConnectionPool pool) {
+        log.info("Statement cache of pool {}: {} hits, {} misses, hit ratio {}",
+                pool.getName(), getHits(), getMisses(), String.format("%.3f", getHitRatio()));
+        super.poolClosed(pool);
+    }
+}
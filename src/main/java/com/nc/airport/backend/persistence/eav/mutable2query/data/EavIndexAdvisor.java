@@ -0,0 +1,169 @@
+package com.nc.airport.backend.persistence.eav.mutable2query.data;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * Checks at startup that the indexes EAV fetchers rely on exist, and reports the missing ones.
+ * <p>
+ * Every fetcher joins ATTRIBUTES and OBJREFERENCE by ATTR_ID and OBJECT_ID and filters OBJECTS
+ * by type or parent, without the indexes each of these joins scans the whole table.
+ * Indexes are created by {@link #INDEX_SCRIPT}. An index is found by its columns, not by its name,
+ * so an index created by hand whose leading columns are the same is good enough.
+ * The check can be turned off with eav.index-check.enabled.
+ */
+@Log4j2
+@Component
+public class EavIndexAdvisor {
+    public static final String INDEX_SCRIPT = "database/sql/eav-schema/EAV_indexes_v1.sql";
+
+    /**
+     * Indexes of {@link #INDEX_SCRIPT}, column expressions are written as Oracle keeps them, without quotes
+     */
+    static final List<IndexDefinition> EXPECTED_INDEXES = Collections.unmodifiableList(Arrays.asList(
+            new IndexDefinition("IDX_ATTRIBUTES_ATTR_OBJECT", "ATTRIBUTES", "ATTR_ID", "OBJECT_ID"),
+            new IndexDefinition("IDX_OBJREFERENCE_OBJECT_ATTR", "OBJREFERENCE", "OBJECT_ID", "ATTR_ID"),
+            new IndexDefinition("IDX_ATTRIBUTES_OBJECT", "ATTRIBUTES", "OBJECT_ID"),
+            new IndexDefinition("IDX_ATTRIBUTES_ATTR_VALUE", "ATTRIBUTES", "ATTR_ID", "VALUE"),
+            new IndexDefinition("IDX_ATTRIBUTES_ATTR_LOWER", "ATTRIBUTES", "ATTR_ID", "LOWER(VALUE)"),
+            new IndexDefinition("IDX_ATTRIBUTES_ATTR_DATE", "ATTRIBUTES", "ATTR_ID", "DATE_VALUE"),
+            new IndexDefinition("IDX_ATTRIBUTES_ATTR_LIST", "ATTRIBUTES", "ATTR_ID", "LIST_VALUE_ID"),
+            new IndexDefinition("IDX_OBJREFERENCE_REFERENCE", "OBJREFERENCE", "REFERENCE"),
+            new IndexDefinition("IDX_OBJECTS_TYPE", "OBJECTS", "OBJECT_TYPE_ID"),
+            new IndexDefinition("IDX_OBJECTS_PARENT_TYPE", "OBJECTS", "PARENT_ID", "OBJECT_TYPE_ID")));
+
+    private static final String INDEX_COLUMNS_QUERY =
+            "SELECT C.TABLE_NAME, C.INDEX_NAME, C.COLUMN_NAME, E.COLUMN_EXPRESSION " +
+                    "FROM USER_IND_COLUMNS C " +
+                    "LEFT JOIN USER_IND_EXPRESSIONS E " +
+                    "  ON E.INDEX_NAME = C.INDEX_NAME AND E.COLUMN_POSITION = C.COLUMN_POSITION " +
+                    "WHERE C.TABLE_NAME IN ('OBJECTS', 'ATTRIBUTES', 'OBJREFERENCE') " +
+                    "ORDER BY C.TABLE_NAME, C.INDEX_NAME, C.COLUMN_POSITION";
+
+    private final DataSource dataSource;
+    private final boolean enabled;
+
+    @Autowired
+    public EavIndexAdvisor(DataSource dataSource, @Value("${eav.index-check.enabled:true}") boolean enabled) {
+        this.dataSource = dataSource;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Logs a warning for every missing index. Problems with the check itself are logged too,
+     * they never stop the application
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void checkIndexes() {
+        if (!enabled) {
+            return;
+        }
+        List<IndexDefinition> missing;
+        try (Connection connection = dataSource.getConnection()) {
+            missing = findMissing(readIndexColumns(connection));
+        } catch (SQLException e) {
+            log.warn("Could not check indexes of EAV tables", e);
+            return;
+        }
+
+        if (missing.isEmpty()) {
+            log.info("All {} indexes of EAV tables are in place", EXPECTED_INDEXES.size());
+            return;
+        }
+        for (IndexDefinition index : missing) {
+            log.warn("EAV index is missing, joins on {} will scan the table: CREATE INDEX {}",
+                    index.getTable(), index);
+        }
+        log.warn("{} of {} EAV indexes are missing, run {}", missing.size(), EXPECTED_INDEXES.size(), INDEX_SCRIPT);
+    }
+
+    /**
+     * @param existingIndexes columns of every existing index by table, in the order of the index
+     * @return expected indexes no existing index starts with
+     */
+    static List<IndexDefinition> findMissing(Map<String, List<List<String>>> existingIndexes) {
+        List<IndexDefinition> missing = new ArrayList<>();
+        for (IndexDefinition expected : EXPECTED_INDEXES) {
+            boolean found = false;
+            for (List<String> columns : existingIndexes.getOrDefault(expected.getTable(), Collections.emptyList())) {
+                if (columns.size() >= expected.getColumns().size()
+                        && columns.subList(0, expected.getColumns().size()).equals(expected.getColumns())) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                missing.add(expected);
+            }
+        }
+        return missing;
+    }
+
+    /*
+    Function-based index has a hidden column, its expression is kept in USER_IND_EXPRESSIONS
+     */
+    private Map<String, List<List<String>>> readIndexColumns(Connection connection) throws SQLException {
+        Map<String, Map<String, List<String>>> indexes = new HashMap<>();
+        try (PreparedStatement statement = connection.prepareStatement(INDEX_COLUMNS_QUERY);
+             ResultSet result = statement.executeQuery()) {
+            while (result.next()) {
+                String table = result.getString("TABLE_NAME");
+                String expression = result.getString("COLUMN_EXPRESSION");
+                String column = expression == null ? result.getString("COLUMN_NAME") : normalize(expression);
+                indexes.computeIfAbsent(table, key -> new LinkedHashMap<>())
+                        .computeIfAbsent(result.getString("INDEX_NAME"), key -> new ArrayList<>())
+                        .add(column);
+            }
+        }
+
+        Map<String, List<List<String>>> columnsByTable = new HashMap<>();
+        for (Map.Entry<String, Map<String, List<String>>> table : indexes.entrySet()) {
+            columnsByTable.put(table.getKey(), new ArrayList<>(table.getValue().values()));
+        }
+        return columnsByTable;
+    }
+
+    static String normalize(String expression) {
+        return expression.replace("\"", "").replace(" ", "").toUpperCase(Locale.ROOT);
+    }
+
+    static final class IndexDefinition {
+        private final String name;
+        private final String table;
+        private final List<String> columns;
+
+        IndexDefinition(String name, String table, String... columns) {
+            this.name = name;
+            this.table = table;
+            this.columns = Collections.unmodifiableList(Arrays.asList(columns));
+        }
+
+        String getName() {
+            return name;
+        }
+
+        String getTable() {
+            return table;
+        }
+
+        List<String> getColumns() {
+            return columns;
+        }
+
+        @Override
+        public String toString() {
+            return name + " ON " + table + " (" + String.join(", ", columns) + ")";
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.nc.airport.backend.persistence.eav.mutable2query.data;
+
+import lombok.extern.log4j.Log4j2;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Flat table of one object type: OBJECT_ID, PARENT_ID, OBJECT_TYPE_ID, NAME and DESCRIPTION
+ * of the object followed by ATTR columns named the same way as in the wide picky query,
+ * so everything built on top of that query can read the table instead, see QueryCreator.createFlatQuery.
+ * <p>
+ * Attributes are single valued, every row is filled from EAV tables with a scalar subquery per attribute.
+ * Row is deleted together with its object and a reference column is set to null when the referenced
+ * object is deleted, both by foreign keys of the table.
+ */
+@Log4j2
+public final class FlatViewTable {
+    private static final String TABLE_NAME = "[A-Z][A-Z0-9_]{0,19}";
+
+    private final String table;
+    private final BigInteger objectTypeId;
+    private final List<BigInteger> values;
+    private final List<BigInteger> dateValues;
+    private final List<BigInteger> listValues;
+    private final List<BigInteger> references;
+
+    /**
+     * @param table name of the table, upper case, at most 20 characters
+     * @throws IllegalArgumentException if the table name cannot be used in SQL as it is
+     */
+    public FlatViewTable(String table,
+                         BigInteger objectTypeId,
+                         List<BigInteger> values,
+                         List<BigInteger> dateValues,
+                         List<BigInteger> listValues,
+                         List<BigInteger> references) {
+        if (table == null || !table.matches(TABLE_NAME)) {
+            String message = "Flat view table name " + table + " must match " + TABLE_NAME;
+            IllegalArgumentException exception = new IllegalArgumentException(message);
+            log.error(message, exception);
+            throw exception;
+        }
+        this.table = table;
+        this.objectTypeId = objectTypeId;
+        this.values = Collections.unmodifiableList(new ArrayList<>(values));
+        this.dateValues = Collections.unmodifiableList(new ArrayList<>(dateValues));
+        this.listValues = Collections.unmodifiableList(new ArrayList<>(listValues));
+        this.references = Collections.unmodifiableList(new ArrayList<>(references));
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public BigInteger getObjectTypeId() {
+        return objectTypeId;
+    }
+
+    /**
+     * @return true if the table has columns of all given attributes with the same kind
+     */
+    public boolean covers(List<BigInteger> values,
+                          List<BigInteger> dateValues,
+                          List<BigInteger> listValues,
+                          List<BigInteger> references) {
+        return this.values.containsAll(values)
+                && this.dateValues.containsAll(dateValues)
+                && this.listValues.containsAll(listValues)
+                && this.references.containsAll(references);
+    }
+
+    public String createTableStatement() {
+        StringBuilder statement = new StringBuilder("CREATE TABLE ").append(table).append("\n(\n")
+                .append("    OBJECT_ID      NUMBER(20) NOT NULL,\n")
+                .append("    PARENT_ID      NUMBER(20),\n")
+                .append("    OBJECT_TYPE_ID NUMBER(20) NOT NULL,\n")
+                .append("    NAME           VARCHAR2(2000 BYTE),\n")
+                .append("    DESCRIPTION    VARCHAR2(4000 BYTE),\n");
+        appendColumns(statement, values, "VARCHAR2(4000 BYTE)");
+        appendColumns(statement, dateValues, "DATE");
+        appendColumns(statement, listValues, "NUMBER(10)");
+        appendColumns(statement, references, "NUMBER(20)");
+        statement.append("    CONSTRAINT PK_").append(table).append(" PRIMARY KEY (OBJECT_ID),\n")
+                .append("    CONSTRAINT FK_").append(table)
+                .append(" FOREIGN KEY (OBJECT_ID) REFERENCES OBJECTS (OBJECT_ID) ON DELETE CASCADE");
+        for (BigInteger reference : references) {
+            statement.append(",\n    CONSTRAINT FK_").append(table).append("_").append(reference)
+                    .append(" FOREIGN KEY (ATTR").append(reference)
+                    .append(") REFERENCES OBJECTS (OBJECT_ID) ON DELETE SET NULL");
+        }
+        return statement.append("\n)").toString();
+    }
+
+    /**
+     * @return statement filling the table with all the objects of its type, for a new or outdated table
+     */
+    public String populateStatement() {
+        return "INSERT INTO " + table + " " + createRowsQuery("O.OBJECT_TYPE_ID = " + objectTypeId);
+    }
+
+    /**
+     * @return statement writing the row of one object, OBJECT_ID is bound
+     */
+    public String insertRowStatement() {
+        return "INSERT INTO " + table + " " + createRowsQuery("O.OBJECT_ID = ?");
+    }
+
+    /**
+     * @return statement deleting the row of one object, OBJECT_ID is bound
+     */
+    public String deleteRowStatement() {
+        return "DELETE FROM " + table + " WHERE OBJECT_ID = ?";
+    }
+
+    /**
+     * @return names of all columns of the table, in the order of the table
+     */
+    public List<String> getColumns() {
+        List<String> columns = new ArrayList<>(Arrays.asList("OBJECT_ID", "PARENT_ID", "OBJECT_TYPE_ID", "NAME", "DESCRIPTION"));
+        for (List<BigInteger> attrs : Arrays.asList(values, dateValues, listValues, references)) {
+            for (BigInteger attr : attrs) {
+                columns.add("ATTR" + attr);
+            }
+        }
+        return columns;
+    }
+
+    private StringBuilder createRowsQuery(String whereCondition) {
+        StringBuilder query = new StringBuilder("(").append(String.join(", ", getColumns())).append(") ")
+                .append("SELECT O.OBJECT_ID, O.PARENT_ID, O.OBJECT_TYPE_ID, O.NAME, O.DESCRIPTION");
+        appendSubqueries(query, values, "VALUE", "ATTRIBUTES");
+        appendSubqueries(query, dateValues, "DATE_VALUE", "ATTRIBUTES");
+        appendSubqueries(query, listValues, "LIST_VALUE_ID", "ATTRIBUTES");
+        appendSubqueries(query, references, "REFERENCE", "OBJREFERENCE");
+        return query.append(" FROM OBJECTS O WHERE ").append(whereCondition);
+    }
+
+    private void appendColumns(StringBuilder statement, List<BigInteger> attrs, String type) {
+        for (BigInteger attr : attrs) {
+            statement.append("    ATTR").append(attr).append(" ").append(type).append(",\n");
+        }
+    }
+
+    private void appendSubqueries(StringBuilder query, List<BigInteger> attrs, String column, String attrTable) {
+        for (BigInteger attr : attrs) {
+            query.append(", (SELECT A.").append(column).append(" FROM ").append(attrTable)
+                    .append(" A WHERE A.OBJECT_ID = O.OBJECT_ID AND A.ATTR_ID = ").append(attr).append(")");
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.nc.airport.backend.persistence.eav.mutable2query.data;
+
+import com.nc.airport.backend.persistence.eav.Mutable;
+import com.nc.airport.backend.persistence.eav.exceptions.DatabaseConnectionException;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Flat tables of object types, see {@link FlatViewTable}.
+ * <p>
+ * Tables are registered at startup and become available once it is checked that they exist
+ * with all their columns. Fetchers read an available table instead of joining EAV tables,
+ * sequence builders write its rows in the same transaction as the objects themselves.
+ * Flat views are turned off by default, eav.flat-views.enabled turns them on. A table that was not
+ * written while they were off has to be filled again with the logged populate statement.
+ */
+@Log4j2
+@Component
+public class FlatViews {
+    private final Map<BigInteger, FlatViewTable> registered = new ConcurrentHashMap<>();
+    private final Map<BigInteger, FlatViewTable> available = new ConcurrentHashMap<>();
+    private final DataSource dataSource;
+    private final boolean enabled;
+
+    @Autowired
+    public FlatViews(DataSource dataSource, @Value("${eav.flat-views.enabled:false}") boolean enabled) {
+        this.dataSource = dataSource;
+        this.enabled = enabled;
+    }
+
+    public void register(FlatViewTable table) {
+        if (enabled) {
+            registered.put(table.getObjectTypeId(), table);
+        }
+    }
+
+    /**
+     * @return flat table of the type or null if the type has no table or it is not available
+     */
+    public FlatViewTable find(BigInteger objectTypeId) {
+        return objectTypeId == null ? null : available.get(objectTypeId);
+    }
+
+    /**
+     * Makes registered tables available if they exist with all their columns.
+     * Statements creating and filling a missing table are logged instead
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void checkTables() {
+        if (registered.isEmpty()) {
+            return;
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            for (FlatViewTable table : registered.values()) {
+                Set<String> columns = readColumns(connection, table.getTable());
+                if (columns.containsAll(table.getColumns())) {
+                    available.put(table.getObjectTypeId(), table);
+                    log.info("Objects of type {} are read from flat table {}", table.getObjectTypeId(), table.getTable());
+                } else {
+                    log.warn("Flat table {} does not exist or lacks columns, objects of type {} are read from EAV tables. " +
+                                    "Create and fill it with:\n{};\n{};", table.getTable(), table.getObjectTypeId(),
+                            table.createTableStatement(), table.populateStatement());
+                }
+            }
+        } catch (SQLException e) {
+            log.warn("Could not check flat tables, objects are read from EAV tables", e);
+        }
+    }
+
+    /**
+     * Writes rows of the written objects again from EAV tables, so they are the same
+     * whatever part of the object was written
+     *
+     * @param connection connection the objects were written with
+     * @param mutables   written objects, objects of types without available tables are skipped
+     */
+    public void refresh(Connection connection, Collection<Mutable> mutables) {
+        if (available.isEmpty()) {
+            return;
+        }
+        Map<FlatViewTable, List<BigInteger>> idsByTable = new LinkedHashMap<>();
+        for (Mutable mutable : mutables) {
+            FlatViewTable table = find(mutable.getObjectTypeId());
+            if (table != null && mutable.getObjectId() != null) {
+                idsByTable.computeIfAbsent(table, key -> new ArrayList<>()).add(mutable.getObjectId());
+            }
+        }
+
+        for (Map.Entry<FlatViewTable, List<BigInteger>> tableIds : idsByTable.entrySet()) {
+            FlatViewTable table = tableIds.getKey();
+            executeForEach(connection, table.deleteRowStatement(), tableIds.getValue());
+            executeForEach(connection, table.insertRowStatement(), tableIds.getValue());
+        }
+    }
+
+    private void executeForEach(Connection connection, String sql, List<BigInteger> objectIds) {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (BigInteger objectId : objectIds) {
+                statement.setObject(1, objectId);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        } catch (SQLException e) {
+            log.error(e);
+            throw new DatabaseConnectionException("Could not write flat table rows", e);
+        }
+    }
+
+    private Set<String> readColumns(Connection connection, String table) throws SQLException {
+        Set<String> columns = new HashSet<>();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT COLUMN_NAME FROM USER_TAB_COLUMNS WHERE TABLE_NAME = ?")) {
+            statement.setString(1, table);
+            try (ResultSet result = statement.executeQuery()) {
+                while (result.next()) {
+                    columns.add(result.getString(1));
+                }
+            }
+        }
+        return columns;
+    }
+}
@@ -0,0 +1,197 @@
+package com.nc.airport.backend.persistence.eav.mutable2query.data;
+
+import com.nc.airport.backend.persistence.eav.Mutable;
+import com.nc.airport.backend.persistence.eav.exceptions.DatabaseConnectionException;
+import com.nc.airport.backend.persistence.eav.mutable2query.filtering2sorting.filtering.FilterSearch;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Inverted index of value fields of searchable object types, see {@link FilterSearch}.
+ * <p>
+ * Every value is split into lower case trigrams starting at each of its characters, the last two are padded
+ * with spaces, and every trigram becomes a row of SEARCH_TOKENS keyed by object type and the trigram.
+ * Trigrams are cut by the database itself, so the index is the same whether it is filled by the logged
+ * populate statement or written together with the objects by sequence builders.
+ * Rows are deleted together with their object by the foreign key of the table.
+ * <p>
+ * The index is turned off by default, eav.search-index.enabled turns it on. Object types written while
+ * it was off have to be filled again with the logged populate statement.
+ */
+@Log4j2
+@Component
+public class SearchIndex {
+    public static final String TABLE = "SEARCH_TOKENS";
+    private static final List<String> COLUMNS = Arrays.asList("OBJECT_TYPE_ID", "TOKEN", "OBJECT_ID", "ATTR_ID");
+
+    private final Map<BigInteger, List<BigInteger>> registered = new ConcurrentHashMap<>();
+    private final Map<BigInteger, List<BigInteger>> available = new ConcurrentHashMap<>();
+    private final DataSource dataSource;
+    private final boolean enabled;
+
+    @Autowired
+    public SearchIndex(DataSource dataSource, @Value("${eav.search-index.enabled:false}") boolean enabled) {
+        this.dataSource = dataSource;
+        this.enabled = enabled;
+    }
+
+    /**
+     * @param valueFieldIds attributes that are indexed, types without value fields are not registered
+     */
+    public void register(BigInteger objectTypeId, List<BigInteger> valueFieldIds) {
+        if (enabled && !valueFieldIds.isEmpty()) {
+            registered.put(objectTypeId, Collections.unmodifiableList(new ArrayList<>(valueFieldIds)));
+        }
+    }
+
+    /**
+     * @return true if value fields of the type are indexed and the index table exists
+     */
+    public boolean isAvailable(BigInteger objectTypeId) {
+        return objectTypeId != null && available.containsKey(objectTypeId);
+    }
+
+    /**
+     * Makes registered types available if the index table exists with all its columns.
+     * Statements creating the table and filling it are logged instead
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void checkTable() {
+        if (registered.isEmpty()) {
+            return;
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            if (readColumns(connection).containsAll(COLUMNS)) {
+                available.putAll(registered);
+                log.info("Objects of types {} are searched with {}", available.keySet(), TABLE);
+            } else {
+                StringBuilder statements = new StringBuilder(createTableStatement()).append(";\n")
+                        .append(createIndexStatement()).append(";");
+                for (Map.Entry<BigInteger, List<BigInteger>> type : registered.entrySet()) {
+                    statements.append('\n').append(populateStatement(type.getKey(), type.getValue())).append(';');
+                }
+                log.warn("Search index {} does not exist or lacks columns, objects of types {} are searched " +
+                        "with LIKE on every attribute. Create and fill it with:\n{}", TABLE, registered.keySet(), statements);
+            }
+        } catch (SQLException e) {
+            log.warn("Could not check search index, objects are searched with LIKE on every attribute", e);
+        }
+    }
+
+    /**
+     * Writes tokens of the written objects again from ATTRIBUTES, so they are the same
+     * whatever part of the object was written
+     *
+     * @param connection connection the objects were written with
+     * @param mutables   written objects, objects of types that are not available are skipped
+     */
+    public void refresh(Connection connection, Collection<Mutable> mutables) {
+        if (available.isEmpty()) {
+            return;
+        }
+        Map<BigInteger, List<BigInteger>> idsByType = new LinkedHashMap<>();
+        for (Mutable mutable : mutables) {
+            if (isAvailable(mutable.getObjectTypeId()) && mutable.getObjectId() != null) {
+                idsByType.computeIfAbsent(mutable.getObjectTypeId(), key -> new ArrayList<>()).add(mutable.getObjectId());
+            }
+        }
+
+        for (Map.Entry<BigInteger, List<BigInteger>> typeIds : idsByType.entrySet()) {
+            executeForEach(connection, "DELETE FROM " + TABLE + " WHERE OBJECT_ID = ?", 1, typeIds.getValue());
+            executeForEach(connection, insertTokensStatement(available.get(typeIds.getKey()), "O.OBJECT_ID = ?"), 2,
+                    typeIds.getValue());
+        }
+    }
+
+    public static String createTableStatement() {
+        return "CREATE TABLE " + TABLE + "\n(\n" +
+                "    OBJECT_TYPE_ID NUMBER(20) NOT NULL,\n" +
+                "    TOKEN          VARCHAR2(12 BYTE) NOT NULL,\n" +
+                "    OBJECT_ID      NUMBER(20) NOT NULL,\n" +
+                "    ATTR_ID        NUMBER(10) NOT NULL,\n" +
+                "    CONSTRAINT PK_" + TABLE + " PRIMARY KEY (OBJECT_TYPE_ID, TOKEN, OBJECT_ID, ATTR_ID),\n" +
+                "    CONSTRAINT FK_" + TABLE + " FOREIGN KEY (OBJECT_ID) REFERENCES OBJECTS (OBJECT_ID) ON DELETE CASCADE\n" +
+                ") ORGANIZATION INDEX";
+    }
+
+    /**
+     * @return index of the tokens of an object, for its deletion and for the cascade of the foreign key
+     */
+    public static String createIndexStatement() {
+        return "CREATE INDEX IDX_" + TABLE + "_OBJECT ON " + TABLE + " (OBJECT_ID)";
+    }
+
+    /**
+     * @return statement filling the index with all the objects of the type, for a new or outdated index
+     */
+    public static String populateStatement(BigInteger objectTypeId, List<BigInteger> valueFieldIds) {
+        return "DELETE FROM " + TABLE + " WHERE OBJECT_TYPE_ID = " + objectTypeId + ";\n"
+                + insertTokensStatement(valueFieldIds, "O.OBJECT_TYPE_ID = " + objectTypeId);
+    }
+
+    /*
+    Position of every trigram comes from a row generator as long as the longest indexed value
+    the condition selects, so a write of an object generates as many rows as its own values need.
+    The condition is used twice, once for the generator and once for the values
+     */
+    static String insertTokensStatement(List<BigInteger> valueFieldIds, String whereCondition) {
+        StringBuilder attrIds = new StringBuilder();
+        for (BigInteger attrId : valueFieldIds) {
+            attrIds.append(attrIds.length() == 0 ? "" : ", ").append(attrId);
+        }
+        String values = "FROM OBJECTS O " +
+                "JOIN ATTRIBUTES A ON A.OBJECT_ID = O.OBJECT_ID AND A.ATTR_ID IN (" + attrIds + ") ";
+        return "INSERT INTO " + TABLE + " (" + String.join(", ", COLUMNS) + ") " +
+                "SELECT DISTINCT O.OBJECT_TYPE_ID, RPAD(SUBSTR(LOWER(A.VALUE), P.N, " + FilterSearch.TOKEN_LENGTH + "), "
+                + FilterSearch.TOKEN_LENGTH + "), A.OBJECT_ID, A.ATTR_ID " + values +
+                "JOIN (SELECT LEVEL N FROM DUAL CONNECT BY LEVEL <= " +
+                "(SELECT MAX(LENGTH(A.VALUE)) " + values + "WHERE " + whereCondition + ")) P " +
+                "ON P.N <= LENGTH(A.VALUE) " +
+                "WHERE " + whereCondition;
+    }
+
+    /*
+    Object id is bound to every one of the parameters of the statement
+     */
+    private void executeForEach(Connection connection, String sql, int parameterCount, List<BigInteger> objectIds) {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (BigInteger objectId : objectIds) {
+                for (int i = 1; i <= parameterCount; i++) {
+                    statement.setObject(i, objectId);
+                }
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        } catch (SQLException e) {
+            log.error(e);
+            throw new DatabaseConnectionException("Could not write search index rows", e);
+        }
+    }
+
+    private Set<String> readColumns(Connection connection) throws SQLException {
+        Set<String> columns = new HashSet<>();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT COLUMN_NAME FROM USER_TAB_COLUMNS WHERE TABLE_NAME = ?")) {
+            statement.setString(1, TABLE);
+            try (ResultSet result = statement.executeQuery()) {
+                while (result.next()) {
+                    columns.add(result.getString(1));
+                }
+            }
+        }
+        return columns;
+    }
+}
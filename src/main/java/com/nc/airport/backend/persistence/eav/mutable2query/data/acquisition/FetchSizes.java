@@ -0,0 +1,80 @@
+package com.nc.airport.backend.persistence.eav.mutable2query.data.acquisition;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Number of rows fetchers ask the driver to read in one round-trip, by the kind of the query.
+ * <p>
+ * Oracle driver reads 10 rows per round-trip unless told otherwise and allocates buffers for the whole
+ * fetch size up front, so a query that knows how many rows it returns asks for one row more than that,
+ * for the end of the rows to come in the same round-trip, and never more than the maximum of its kind:
+ * single object queries read the attributes of one object, page queries read a page or a few hundred ids,
+ * streams read until they are closed.
+ */
+@Log4j2
+public final class FetchSizes {
+    public static final int DEFAULT_SINGLE = 100;
+    public static final int DEFAULT_PAGE = 200;
+    public static final int DEFAULT_STREAM = 500;
+    public static final FetchSizes DEFAULTS = new FetchSizes(DEFAULT_SINGLE, DEFAULT_PAGE, DEFAULT_STREAM);
+
+    private final int single;
+    private final int page;
+    private final int stream;
+
+    /**
+     * @param single max fetch size of queries of one object, e.g. tall query of its attributes
+     * @param page   max fetch size of queries of a page of objects or of objects with given ids
+     * @param stream fetch size of streams, they read all the rows whatever their number is
+     * @throws IllegalArgumentException if any of the sizes is not positive
+     */
+    public FetchSizes(int single, int page, int stream) {
+        this.single = positive(single);
+        this.page = positive(page);
+        this.stream = positive(stream);
+    }
+
+    /**
+     * @param expectedRows number of rows the query of one object returns
+     */
+    public int forSingle(long expectedRows) {
+        return bounded(expectedRows, single);
+    }
+
+    /**
+     * @param expectedRows number of rows the query returns at most, e.g. page size
+     */
+    public int forPage(long expectedRows) {
+        return bounded(expectedRows, page);
+    }
+
+    /**
+     * @return fetch size of queries returning an unknown number of rows that are read as a whole
+     */
+    public int forPage() {
+        return page;
+    }
+
+    public int forStream() {
+        return stream;
+    }
+
+    private static int bounded(long expectedRows, int max) {
+        return (int) Math.max(1, Math.min(expectedRows + 1, max));
+    }
+
+    private static int positive(int size) {
+        if (size <= 0) {
+            String message = "Fetch size must be positive: " + size;
+            IllegalArgumentException exception = new IllegalArgumentException(message);
+            log.error(message, exception);
+            throw exception;
+        }
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return "single " + single + ", page " + page + ", stream " + stream;
+    }
+}
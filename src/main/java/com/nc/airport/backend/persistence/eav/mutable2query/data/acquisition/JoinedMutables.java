@@ -0,0 +1,30 @@
+package com.nc.airport.backend.persistence.eav.mutable2query.data.acquisition;
+
+import com.nc.airport.backend.persistence.eav.Mutable;
+
+import java.util.List;
+
+/**
+ * Page of a joined wide query together with the total number of rows matching the filters
+ */
+public class JoinedMutables {
+    private final List<List<Mutable>> rows;
+    private final int total;
+
+    JoinedMutables(List<List<Mutable>> rows, int total) {
+        this.rows = rows;
+        this.total = total;
+    }
+
+    /**
+     * @return rows of the page. The first mutable of a row is the root object,
+     * the others are joined objects in the order of joins, null if the reference is not set
+     */
+    public List<List<Mutable>> getRows() {
+        return rows;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+}
@@ -4,6 +4,7 @@ import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.Logger;
 
 import java.math.BigInteger;
+import java.util.Arrays;
 import java.util.List;
 
 class QueryCreator {
@@ -96,72 +97,121 @@ class QueryCreator {
                                     ON A3.ATTR_ID = 45 AND A3.OBJECT_ID = O.OBJECT_ID
                                LEFT JOIN OBJREFERENCE A4
                                     ON A4.ATTR_ID = 55 AND A4.OBJECT_ID = O.OBJECT_ID
+                        WHERE O.OBJECT_TYPE_ID = 8
+                          AND (EXISTS (SELECT 1 FROM ATTRIBUTES F
+                                       WHERE F.OBJECT_ID = O.OBJECT_ID AND F.ATTR_ID = 45
+                                         AND (F.LIST_VALUE_ID = 1 OR F.LIST_VALUE_ID = 2)))
                       )
-                     WHERE (ATTR45 = 1 OR ATTR45 = 2) ORDER BY ATTR50 DESC;
+                     ORDER BY ATTR50 DESC;
                   ) a
                 WHERE rownum <= 2)
             WHERE rnum >= 1
     */
-    StringBuilder createWidePickyQuery(List<BigInteger> values,
-                                       List<BigInteger> dateValues,
-                                       List<BigInteger> listValues,
-                                       List<BigInteger> references) {
-        StringBuilder query = new StringBuilder
-                ("  SELECT O.OBJECT_ID, O.PARENT_ID, O.OBJECT_TYPE_ID, O.NAME, O.DESCRIPTION, ");
-        transferAttributesSelection(query, values, dateValues, listValues, references);
-        query.append(" FROM OBJECTS O ");
-        transferAttributesJoin(query, values, dateValues, listValues, references);
-
+    WideQuery createWidePickyQuery(List<BigInteger> values,
+                                   List<BigInteger> dateValues,
+                                   List<BigInteger> listValues,
+                                   List<BigInteger> references) {
+        WideQuery query = selectObject(new WideQuery("OBJECTS"), "O", null);
+        joinAttributes(query, "O", "ATTR", 1, values, dateValues, listValues, references);
         return query;
     }
 
-    private void transferAttributesSelection(StringBuilder transferTo,
-                                             List<BigInteger> values,
-                                             List<BigInteger> dateValues,
-                                             List<BigInteger> listValues,
-                                             List<BigInteger> references) {
-        int i = 1;
-        i = selectEachAttr(values, "VALUE", transferTo, i);
-        i = selectEachAttr(dateValues, "DATE_VALUE", transferTo, i);
-        i = selectEachAttr(listValues, "LIST_VALUE_ID", transferTo, i);
-        selectEachAttr(references, "REFERENCE", transferTo, i);
-        transferTo.delete(transferTo.lastIndexOf(","), transferTo.length() - 1);
+    /*  Wide picky query of the root object with objects it references joined to it, columns of the joined objects
+        are aliased with the prefix of their join
+
+        SELECT O.OBJECT_ID, O.PARENT_ID, O.OBJECT_TYPE_ID, O.NAME, O.DESCRIPTION,
+               A1.VALUE ATTR51,
+               J1.OBJECT_ID J1_OBJECT_ID, J1.PARENT_ID J1_PARENT_ID, J1.OBJECT_TYPE_ID J1_OBJECT_TYPE_ID,
+               J1.NAME J1_NAME, J1.DESCRIPTION J1_DESCRIPTION,
+               A2.VALUE J1_ATTR12
+        FROM OBJECTS O
+               LEFT JOIN ATTRIBUTES A1
+                    ON A1.ATTR_ID = 51 AND A1.OBJECT_ID = O.OBJECT_ID
+               LEFT JOIN OBJREFERENCE R1
+                    ON R1.ATTR_ID = 55 AND R1.OBJECT_ID = O.OBJECT_ID
+               LEFT JOIN OBJECTS J1
+                    ON J1.OBJECT_ID = R1.REFERENCE
+               LEFT JOIN ATTRIBUTES A2
+                    ON A2.ATTR_ID = 12 AND A2.OBJECT_ID = J1.OBJECT_ID
+    */
+    WideQuery createWideJoinedQuery(List<BigInteger> values,
+                                    List<BigInteger> dateValues,
+                                    List<BigInteger> listValues,
+                                    List<BigInteger> references,
+                                    List<ReferenceJoin> joins) {
+        WideQuery query = selectObject(new WideQuery("OBJECTS"), "O", null);
+        int i = joinAttributes(query, "O", "ATTR", 1, values, dateValues, listValues, references);
+        for (int k = 1; k <= joins.size(); k++) {
+            ReferenceJoin join = joins.get(k - 1);
+            String owner = join.getFromIndex() == 0 ? "O" : "J" + join.getFromIndex();
+            String alias = "J" + k;
+            query.join("LEFT JOIN", "OBJREFERENCE", "R" + k,
+                    "R" + k + ".ATTR_ID = ? AND R" + k + ".OBJECT_ID = " + owner + ".OBJECT_ID")
+                    .join("LEFT JOIN", "OBJECTS", alias, alias + ".OBJECT_ID = R" + k + ".REFERENCE");
+            selectObject(query, alias, alias + "_");
+            i = joinAttributes(query, alias, alias + "_ATTR", i,
+                    join.getValues(), join.getDateValues(), join.getListValues(), join.getReferences());
+        }
+        return query;
     }
 
-    private int selectEachAttr(List<BigInteger> attrs,
-                               String attrColumnType,
-                               StringBuilder transferTo,
-                               int i) {
+    /*
+        SELECT O.OBJECT_ID, O.PARENT_ID, O.OBJECT_TYPE_ID, O.NAME, O.DESCRIPTION,
+               O.ATTR62, O.ATTR64, O.ATTR63, O.ATTR8
+        FROM FLAT_FLIGHTS O
+     */
+    WideQuery createFlatQuery(String table,
+                              List<BigInteger> values,
+                              List<BigInteger> dateValues,
+                              List<BigInteger> listValues,
+                              List<BigInteger> references) {
+        WideQuery query = selectObject(new WideQuery(table), "O", null);
+        for (List<BigInteger> attrs : Arrays.asList(values, dateValues, listValues, references)) {
+            for (BigInteger attr : attrs) {
+                query.select("O.ATTR" + attr);
+            }
+        }
+        return query;
+    }
 
-        for (BigInteger attr : attrs) {
-            transferTo.append("A").append(i++).append(".").append(attrColumnType)
-                    .append(" ATTR").append(attr).append(", ");
+    /*
+    Columns of a joined object are aliased with the prefix, so they do not clash with columns of O
+     */
+    private WideQuery selectObject(WideQuery query, String alias, String columnPrefix) {
+        for (String column : new String[]{"OBJECT_ID", "PARENT_ID", "OBJECT_TYPE_ID", "NAME", "DESCRIPTION"}) {
+            query.select(columnPrefix == null
+                    ? alias + "." + column
+                    : alias + "." + column + " " + columnPrefix + column);
         }
-        return i;
+        return query;
     }
 
-    private void transferAttributesJoin(StringBuilder transferTo,
-                                        List<BigInteger> values,
-                                        List<BigInteger> dateValues,
-                                        List<BigInteger> listValues,
-                                        List<BigInteger> references) {
-        int i = 1;
-        i = joinEachAttr(values, "ATTRIBUTES", transferTo, i);
-        i = joinEachAttr(dateValues, "ATTRIBUTES", transferTo, i);
-        i = joinEachAttr(listValues, "ATTRIBUTES", transferTo, i);
-        joinEachAttr(references, "OBJREFERENCE", transferTo, i);
+    /*
+    Attributes are joined in the order their ids are bound: values, dates, lists and references
+     */
+    private int joinAttributes(WideQuery query,
+                               String owner,
+                               String columnPrefix,
+                               int i,
+                               List<BigInteger> values,
+                               List<BigInteger> dateValues,
+                               List<BigInteger> listValues,
+                               List<BigInteger> references) {
+        i = joinEachAttr(query, values, "ATTRIBUTES", "VALUE", owner, columnPrefix, i);
+        i = joinEachAttr(query, dateValues, "ATTRIBUTES", "DATE_VALUE", owner, columnPrefix, i);
+        i = joinEachAttr(query, listValues, "ATTRIBUTES", "LIST_VALUE_ID", owner, columnPrefix, i);
+        return joinEachAttr(query, references, "OBJREFERENCE", "REFERENCE", owner, columnPrefix, i);
     }
 
-    private int joinEachAttr(List<BigInteger> attrs,
+    private int joinEachAttr(WideQuery query,
+                             List<BigInteger> attrs,
                              String attrTableType,
-                             StringBuilder transferTo,
+                             String attrColumnType,
+                             String owner,
+                             String columnPrefix,
                              int i) {
-
-        for (int j = 0; j < attrs.size(); j++) {
-            String alias = " A" + (i++);
-            transferTo.append(" LEFT JOIN ").append(attrTableType).append(alias)
-                    .append(" ON").append(alias).append(".ATTR_ID = ?")
-                    .append(" AND").append(alias).append(".OBJECT_ID = O.OBJECT_ID ");
+        for (BigInteger attr : attrs) {
+            query.attribute(attrTableType, "A" + (i++), owner, attrColumnType, columnPrefix + attr);
         }
         return i;
     }
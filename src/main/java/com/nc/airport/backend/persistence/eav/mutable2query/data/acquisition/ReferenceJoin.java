@@ -0,0 +1,65 @@
+package com.nc.airport.backend.persistence.eav.mutable2query.data.acquisition;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One reference hop of a joined wide query: objects referenced by an attribute of the root object
+ * (or of an object joined before) are LEFT JOINed together with their own attributes.
+ */
+public class ReferenceJoin {
+    private final int fromIndex;
+    private final BigInteger referenceAttrId;
+    private final List<BigInteger> values;
+    private final List<BigInteger> dateValues;
+    private final List<BigInteger> listValues;
+    private final List<BigInteger> references;
+
+    /**
+     * @param fromIndex       0 if the reference is held by the root object,
+     *                        otherwise 1-based position of the join that holds it. It has to be less than the position of this join
+     * @param referenceAttrId attr_id of the reference
+     * @param values          values attr_id List of the referenced objects
+     * @param dateValues      dateValues attr_id List of the referenced objects
+     * @param listValues      listValues attr_id List of the referenced objects
+     * @param references      references attr_id List of the referenced objects
+     */
+    public ReferenceJoin(int fromIndex,
+                         BigInteger referenceAttrId,
+                         List<BigInteger> values,
+                         List<BigInteger> dateValues,
+                         List<BigInteger> listValues,
+                         List<BigInteger> references) {
+        this.fromIndex = fromIndex;
+        this.referenceAttrId = referenceAttrId;
+        this.values = values == null ? new ArrayList<>() : values;
+        this.dateValues = dateValues == null ? new ArrayList<>() : dateValues;
+        this.listValues = listValues == null ? new ArrayList<>() : listValues;
+        this.references = references == null ? new ArrayList<>() : references;
+    }
+
+    public int getFromIndex() {
+        return fromIndex;
+    }
+
+    public BigInteger getReferenceAttrId() {
+        return referenceAttrId;
+    }
+
+    public List<BigInteger> getValues() {
+        return values;
+    }
+
+    public List<BigInteger> getDateValues() {
+        return dateValues;
+    }
+
+    public List<BigInteger> getListValues() {
+        return listValues;
+    }
+
+    public List<BigInteger> getReferences() {
+        return references;
+    }
+}
@@ -15,11 +15,20 @@ import java.util.*;
 public class TallLazyDBFetcher {
     private Logger logger = LogManager.getLogger(TallLazyDBFetcher.class.getSimpleName());
     private Connection connection;
+    private FetchSizes fetchSizes = FetchSizes.DEFAULTS;
 
     public TallLazyDBFetcher(Connection connection) {
         this.connection = connection;
     }
 
+    /**
+     * @param fetchSizes rows read in one round-trip by the kind of the query, every attribute is a row
+     */
+    public TallLazyDBFetcher(Connection connection, FetchSizes fetchSizes) {
+        this(connection);
+        this.fetchSizes = fetchSizes;
+    }
+
     public Mutable getMutable(BigInteger objectId, Collection<BigInteger> attributesId) {
         QueryCreator queryCreator = new QueryCreator();
         Mutable mutable = new Mutable();
@@ -32,7 +41,7 @@ public class TallLazyDBFetcher {
 
         queryCreator.logSequence(logger, fullQuery);
 
-        try (PreparedStatement statement = connection.prepareStatement(fullQuery);
+        try (PreparedStatement statement = prepareStatement(fullQuery, fetchSizes.forSingle(attributesId.size()));
              ResultSet result = resultSingleMutable(attributesId, statement)) {
 //            statement = connection.prepareStatement(fullQuery);
 //            result = resultSingleMutable(attributesId, statement);
@@ -66,7 +75,8 @@ public class TallLazyDBFetcher {
 
         queryCreator.logSequence(logger, fullQuery);
 
-        try (PreparedStatement statement = connection.prepareStatement(fullQuery);
+        try (PreparedStatement statement = prepareStatement(fullQuery,
+                fetchSizes.forPage((long) (pagingTo - pagingFrom + 1) * attributesId.size()));
              ResultSet result = resultMultipleMutables(attributesId, statement)) {
 //            statement = connection.prepareStatement(fullQuery);
 //            result = resultMultipleMutables(attributesId, statement);
@@ -99,7 +109,8 @@ public class TallLazyDBFetcher {
 
         queryCreator.logSequence(logger, fullQuery);
 
-        try (PreparedStatement statement = connection.prepareStatement(fullQuery);
+        try (PreparedStatement statement = prepareStatement(fullQuery,
+                fetchSizes.forPage((long) objectsId.size() * attributesId.size()));
              ResultSet result = resultMultipleMutables(objectsId, attributesId, statement)) {
 //            statement = connection.prepareStatement(fullQuery);
 //            result = resultMultipleMutables(objectsId, attributesId, statement);
@@ -118,6 +129,17 @@ public class TallLazyDBFetcher {
         return mutables;
     }
 
+    private PreparedStatement prepareStatement(String query, int fetchSize) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(query);
+        try {
+            statement.setFetchSize(fetchSize);
+        } catch (SQLException e) {
+            statement.close();
+            throw e;
+        }
+        return statement;
+    }
+
     private void closeResultSetAndStatement(ResultSet result, Statement statement) {
         if (result != null)
             try {
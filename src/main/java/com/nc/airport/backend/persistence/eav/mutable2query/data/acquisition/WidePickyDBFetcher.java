@@ -3,10 +3,14 @@ package com.nc.airport.backend.persistence.eav.mutable2query.data.acquisition;
 import com.nc.airport.backend.persistence.eav.Mutable;
 import com.nc.airport.backend.persistence.eav.exceptions.BadDBRequestException;
 import com.nc.airport.backend.persistence.eav.exceptions.DatabaseConnectionException;
-import com.nc.airport.backend.persistence.eav.mutable2query.filtering2sorting.FilteringToSortingDescriptor;
+import com.nc.airport.backend.persistence.eav.mutable2query.data.FlatViewTable;
+import com.nc.airport.backend.persistence.eav.mutable2query.data.FlatViews;
+import com.nc.airport.backend.persistence.eav.mutable2query.filtering2sorting.PropertiesEntityType;
 import com.nc.airport.backend.persistence.eav.mutable2query.filtering2sorting.filtering.FilterEntity;
+import com.nc.airport.backend.persistence.eav.mutable2query.filtering2sorting.filtering.FilteringDescriptor;
 import com.nc.airport.backend.persistence.eav.mutable2query.filtering2sorting.paging.PagingDescriptor;
 import com.nc.airport.backend.persistence.eav.mutable2query.filtering2sorting.sorting.SortEntity;
+import com.nc.airport.backend.persistence.eav.mutable2query.filtering2sorting.sorting.SortingDescriptor;
 import io.jsonwebtoken.lang.Collections;
 import lombok.extern.log4j.Log4j2;
 
@@ -14,109 +18,196 @@ import java.math.BigInteger;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Log4j2
 public class WidePickyDBFetcher {
+    /**
+     * Max number of ids fetched by one query. It is a power of two below
+     * {@link FilteringDescriptor#MAX_IN_LIST_SIZE}, so a padded chunk is always a single IN-list
+     */
+    public static final int ID_CHUNK_SIZE = 512;
     private Connection connection;
+    private FlatViews flatViews;
+    private FetchSizes fetchSizes = FetchSizes.DEFAULTS;
 
     public WidePickyDBFetcher(Connection connection) {
         this.connection = connection;
     }
 
+    /**
+     * @param flatViews flat tables pages, counts and keyset pages of their types are read from, may be null
+     */
+    public WidePickyDBFetcher(Connection connection, FlatViews flatViews) {
+        this.connection = connection;
+        this.flatViews = flatViews;
+    }
+
+    /**
+     * @param fetchSizes rows read in one round-trip by the kind of the query
+     */
+    public WidePickyDBFetcher(Connection connection, FlatViews flatViews, FetchSizes fetchSizes) {
+        this(connection, flatViews);
+        this.fetchSizes = fetchSizes;
+    }
+
     public List<Mutable> getMutables(List<BigInteger> values,
                                      List<BigInteger> dateValues,
                                      List<BigInteger> listValues,
                                      List<BigInteger> references,
+                                     BigInteger objectTypeId,
                                      int pagingFrom, int pagingTo,
                                      List<SortEntity> sortBy,
                                      List<FilterEntity> filterBy) {
 
-        QueryCreator queryCreator = new QueryCreator();
-        List<Mutable> mutables = new ArrayList<>();
-//        PreparedStatement statement = null;
-//        ResultSet result = null;
-        PagingDescriptor paging = new PagingDescriptor();
-        FilteringToSortingDescriptor.DescriptorBuilder descBuilder =
-                new FilteringToSortingDescriptor.DescriptorBuilder();
-
         values = ensureNonNullSecurity(values);
         dateValues = ensureNonNullSecurity(dateValues);
         listValues = ensureNonNullSecurity(listValues);
         references = ensureNonNullSecurity(references);
 
-        if (!Collections.isEmpty(filterBy))
-            descBuilder.filter(filterBy);
-        if (!Collections.isEmpty(sortBy))
-            descBuilder.sort(sortBy);
+        FlatViewTable flatView = flatViewOf(objectTypeId, values, dateValues, listValues, references);
+        List<Object> shape = WideQueryTemplates.shapeOf(kindOf("page", flatView),
+                values, dateValues, listValues, references, filterBy, sortBy);
+        String fullQuery = WideQueryTemplates.get(shape);
+        if (fullQuery == null) {
+            WideQuery filteredSortedQuery = createFilteredSortedQuery("SELECT * FROM (", flatView,
+                    values, dateValues, listValues, references, "O.OBJECT_TYPE_ID = ?", sortBy, filterBy);
+            fullQuery = WideQueryTemplates.put(shape,
+                    new PagingDescriptor().getParameterizedPaging(filteredSortedQuery.render()));
+        }
 
-        StringBuilder basicQuery = queryCreator.createWidePickyQuery(values, dateValues, listValues, references);
-        StringBuilder filteredSortedQuery = new StringBuilder("SELECT * FROM (").append(basicQuery).append(") ");
-        filteredSortedQuery.append(descBuilder.build().getQueryBuilder());
-        String fullQuery = paging.getPaging(filteredSortedQuery, pagingFrom, pagingTo);
+        List<Object> parameters = readParameters(flatView, values, dateValues, listValues, references);
+        parameters.add(objectTypeId);
+        addFilterParameters(parameters, filterBy, flatView);
+        addPagingParameters(parameters, pagingFrom, pagingTo);
+        return fetchMutables(fullQuery, parameters, fetchSizes.forPage(pagingTo - pagingFrom + 1),
+                values, dateValues, listValues, references);
+    }
 
-        queryCreator.logSequence(log, fullQuery);
+    /**
+     * Reads all objects of given type matching the filters with one forward-only query.
+     * Rows are read from the database as the stream is consumed, fetchSize rows per round-trip,
+     * and every row becomes a Mutable only when the stream gets to it.
+     * <p>
+     * The stream holds the statement open, it has to be closed, e.g. with try-with-resources.
+     *
+     * @param objectTypeId type of the objects
+     * @param fetchSize    number of rows the driver reads in one round-trip
+     * @return stream of the objects in the order of sortBy
+     */
+    public Stream<Mutable> streamMutables(List<BigInteger> values,
+                                          List<BigInteger> dateValues,
+                                          List<BigInteger> listValues,
+                                          List<BigInteger> references,
+                                          BigInteger objectTypeId,
+                                          List<SortEntity> sortBy,
+                                          List<FilterEntity> filterBy,
+                                          int fetchSize) {
+
+        List<BigInteger> valueIds = ensureNonNullSecurity(values);
+        List<BigInteger> dateIds = ensureNonNullSecurity(dateValues);
+        List<BigInteger> listIds = ensureNonNullSecurity(listValues);
+        List<BigInteger> referenceIds = ensureNonNullSecurity(references);
+
+        FlatViewTable flatView = flatViewOf(objectTypeId, valueIds, dateIds, listIds, referenceIds);
+        List<Object> shape = WideQueryTemplates.shapeOf(kindOf("stream", flatView),
+                valueIds, dateIds, listIds, referenceIds, filterBy, sortBy);
+        String fullQuery = WideQueryTemplates.get(shape);
+        if (fullQuery == null) {
+            fullQuery = WideQueryTemplates.put(shape, createFilteredSortedQuery("SELECT * FROM (", flatView,
+                    valueIds, dateIds, listIds, referenceIds, "O.OBJECT_TYPE_ID = ?", sortBy, filterBy).toString());
+        }
 
-        try (PreparedStatement statement = connection.prepareStatement(fullQuery);
-             ResultSet result = resultMultipleMutables(statement, values, dateValues, listValues, references, filterBy)) {
-//            statement = connection.prepareStatement(fullQuery);
-//            result = resultMultipleMutables(statement, values, dateValues, listValues, references, filterBy);
-            while (result.next()) {
-                Mutable mutable = new Mutable();
-                pullGeneralInfo(result, mutable);
-                pullAttributes(result, mutable, values, dateValues, listValues, references);
-                mutables.add(mutable);
-            }
+        List<Object> parameters = readParameters(flatView, valueIds, dateIds, listIds, referenceIds);
+        parameters.add(objectTypeId);
+        addFilterParameters(parameters, filterBy, flatView);
+        new QueryCreator().logSequence(log, fullQuery);
+
+        PreparedStatement statement;
+        try {
+            statement = connection.prepareStatement(fullQuery, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
         } catch (SQLException e) {
             log.error(e);
             throw new DatabaseConnectionException("Could not open statement", e);
-        } finally {
-//            closeResultSetAndStatement(result, statement);
         }
-        return mutables;
+        ResultSet result;
+        try {
+            result = executeQuery(statement, parameters);
+        } catch (RuntimeException e) {
+            closeResultSetAndStatement(null, statement);
+            throw e;
+        }
+
+        Spliterator<Mutable> rows = new Spliterators.AbstractSpliterator<Mutable>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super Mutable> action) {
+                Mutable mutable = new Mutable();
+                try {
+                    if (!result.next())
+                        return false;
+                    pullGeneralInfo(result, mutable);
+                    pullAttributes(result, mutable, valueIds, dateIds, listIds, referenceIds);
+                } catch (SQLException e) {
+                    log.error(e);
+                    throw new DatabaseConnectionException("Could not read the next row", e);
+                }
+                action.accept(mutable);
+                return true;
+            }
+        };
+        return StreamSupport.stream(rows, false)
+                .onClose(() -> closeResultSetAndStatement(result, statement));
     }
 
+    /**
+     * Counts objects of given type matching the filters. Filters are checked on OBJECTS themselves,
+     * so no attributes are joined and the count costs a fraction of the page query.
+     *
+     * @param objectTypeId type of the objects
+     * @param limit        null to count all the objects, otherwise counting stops at limit + 1 objects
+     * @return number of objects, not more than limit + 1 if the limit is given
+     */
     public int getCountOfMutables(List<BigInteger> values,
                                   List<BigInteger> dateValues,
                                   List<BigInteger> listValues,
                                   List<BigInteger> references,
-                                  List<FilterEntity> filterBy) {
-
-        QueryCreator queryCreator = new QueryCreator();
-//        PreparedStatement statement = null;
-//        ResultSet result = null;
-        FilteringToSortingDescriptor.DescriptorBuilder descBuilder =
-                new FilteringToSortingDescriptor.DescriptorBuilder();
-        int countOfItems = 0;
+                                  BigInteger objectTypeId,
+                                  List<FilterEntity> filterBy,
+                                  Integer limit) {
 
         values = ensureNonNullSecurity(values);
         dateValues = ensureNonNullSecurity(dateValues);
         listValues = ensureNonNullSecurity(listValues);
         references = ensureNonNullSecurity(references);
 
-        if (!Collections.isEmpty(filterBy))
-            descBuilder.filter(filterBy);
-
-        StringBuilder basicQuery = queryCreator.createWidePickyQuery(values, dateValues, listValues, references);
-        StringBuilder countFilteredSortedQuery = new StringBuilder("SELECT COUNT(*) AS total FROM (").append(basicQuery).append(") ");
-        countFilteredSortedQuery.append(descBuilder.build().getQueryBuilder());
-        String fullQuery = countFilteredSortedQuery.toString();
-
-        queryCreator.logSequence(log, fullQuery);
-
-        try (PreparedStatement statement = connection.prepareStatement(fullQuery);
-             ResultSet result = resultMultipleMutables(statement, values, dateValues, listValues, references, filterBy)) {
-//            statement = connection.prepareStatement(fullQuery);
-//            result = resultMultipleMutables(statement, values, dateValues, listValues, references, filterBy);
-            while (result.next()) {
-                countOfItems = result.getInt("total");
+        FlatViewTable flatView = flatViewOf(objectTypeId, values, dateValues, listValues, references);
+        List<Object> shape = WideQueryTemplates.shapeOf(kindOf(limit == null ? "count" : "cappedCount", flatView),
+                values, dateValues, listValues, references, filterBy, null);
+        String fullQuery = WideQueryTemplates.get(shape);
+        if (fullQuery == null) {
+            WideQuery countQuery = new WideQuery(flatView == null ? "OBJECTS" : flatView.getTable())
+                    .select("COUNT(*) AS total")
+                    .where("O.OBJECT_TYPE_ID = ?");
+            if (!Collections.isEmpty(filterBy)) {
+                countQuery.where(filterCondition(filterBy, flatView, values, dateValues, listValues, references));
             }
-        } catch (SQLException e) {
-            log.error(e);
-            throw new DatabaseConnectionException("Could not open statement", e);
-        } finally {
-//            closeResultSetAndStatement(result, statement);
+            if (limit != null) {
+                countQuery.where("rownum <= ?");
+            }
+            fullQuery = WideQueryTemplates.put(shape, countQuery.toString());
         }
-        return countOfItems;
+
+        List<Object> parameters = new ArrayList<>();
+        parameters.add(objectTypeId);
+        addFilterParameters(parameters, filterBy, flatView);
+        if (limit != null) {
+            parameters.add(limit + 1);
+        }
+        return fetchCount(fullQuery, parameters);
     }
 
     public List<Mutable> getMutablesByParentId(List<BigInteger> values,
@@ -125,79 +216,362 @@ public class WidePickyDBFetcher {
                                                List<BigInteger> references, int pagingFrom, int pagingTo,
                                                BigInteger parentId, BigInteger objectTypeId) {
 
-        QueryCreator queryCreator = new QueryCreator();
-        List<Mutable> mutables = new ArrayList<>();
-//        PreparedStatement statement = null;
-//        ResultSet result = null;
-        PagingDescriptor paging = new PagingDescriptor();
+        return getMutablesByParentId(values, dateValues, listValues, references, pagingFrom, pagingTo,
+                parentId, objectTypeId, null, null);
+    }
+
+    public List<Mutable> getMutablesByParentId(List<BigInteger> values,
+                                               List<BigInteger> dateValues,
+                                               List<BigInteger> listValues,
+                                               List<BigInteger> references, int pagingFrom, int pagingTo,
+                                               BigInteger parentId, BigInteger objectTypeId, List<SortEntity> sortBy,
+                                               List<FilterEntity> filterBy) {
 
         values = ensureNonNullSecurity(values);
         dateValues = ensureNonNullSecurity(dateValues);
         listValues = ensureNonNullSecurity(listValues);
         references = ensureNonNullSecurity(references);
 
-        StringBuilder basicQuery = queryCreator.createWidePickyQuery(values, dateValues, listValues, references);
-        basicQuery.append("WHERE O.PARENT_ID = ").append(parentId).append(" AND O.OBJECT_TYPE_ID = ").append(objectTypeId);
-        String fullQuery = paging.getPaging(basicQuery, pagingFrom, pagingTo);
+        FlatViewTable flatView = flatViewOf(objectTypeId, values, dateValues, listValues, references);
+        List<Object> shape = WideQueryTemplates.shapeOf(kindOf("pageByParent", flatView),
+                values, dateValues, listValues, references, filterBy, sortBy);
+        String fullQuery = WideQueryTemplates.get(shape);
+        if (fullQuery == null) {
+            WideQuery filteredSortedQuery = createFilteredSortedQuery("SELECT * FROM (", flatView,
+                    values, dateValues, listValues, references,
+                    "O.PARENT_ID = ? AND O.OBJECT_TYPE_ID = ?", sortBy, filterBy);
+            fullQuery = WideQueryTemplates.put(shape,
+                    new PagingDescriptor().getParameterizedPaging(filteredSortedQuery.render()));
+        }
 
-        queryCreator.logSequence(log, fullQuery);
+        List<Object> parameters = readParameters(flatView, values, dateValues, listValues, references);
+        parameters.add(parentId);
+        parameters.add(objectTypeId);
+        addFilterParameters(parameters, filterBy, flatView);
+        addPagingParameters(parameters, pagingFrom, pagingTo);
+        return fetchMutables(fullQuery, parameters, fetchSizes.forPage(pagingTo - pagingFrom + 1),
+                values, dateValues, listValues, references);
+    }
 
-        try (PreparedStatement statement = connection.prepareStatement(fullQuery);
-             ResultSet result = resultMultipleMutables(statement, values, dateValues, listValues, references, null)) {
-//            statement = connection.prepareStatement(fullQuery);
-//            result = resultMultipleMutables(statement, values, dateValues, listValues, references, null);
-            while (result.next()) {
-                Mutable mutable = new Mutable();
-                pullGeneralInfo(result, mutable);
-                pullAttributes(result, mutable, values, dateValues, listValues, references);
-                mutables.add(mutable);
+    /**
+     * Fetches a page of objects of given type that go after the last row of the previous page
+     * in the order of sortBy and OBJECT_ID, instead of skipping rows by their number.
+     *
+     * @param sortBy       sorting by ATTR columns or properties of the objects
+     * @param lastKey      values of sortBy columns in the last row of the previous page, null for the first page
+     * @param lastObjectId OBJECT_ID of the last row of the previous page
+     * @param size         max number of objects in the page
+     */
+    public List<Mutable> getMutablesAfter(List<BigInteger> values,
+                                          List<BigInteger> dateValues,
+                                          List<BigInteger> listValues,
+                                          List<BigInteger> references,
+                                          BigInteger objectTypeId,
+                                          List<SortEntity> sortBy,
+                                          List<FilterEntity> filterBy,
+                                          List<Object> lastKey,
+                                          BigInteger lastObjectId,
+                                          int size) {
+
+        values = ensureNonNullSecurity(values);
+        dateValues = ensureNonNullSecurity(dateValues);
+        listValues = ensureNonNullSecurity(listValues);
+        references = ensureNonNullSecurity(references);
+        sortBy = sortBy == null ? new ArrayList<>() : sortBy;
+
+        List<String> columns = new ArrayList<>();
+        List<Boolean> orders = new ArrayList<>();
+        List<Class<?>> types = new ArrayList<>();
+        for (SortEntity sort : sortBy) {
+            String column = keysetColumn(sort.getType());
+            columns.add(column);
+            orders.add(sort.getOrder());
+            types.add(keysetType(column, dateValues, listValues, references));
+        }
+        new PagingDescriptor().checkLastKey(types, lastKey, lastObjectId);
+
+        FlatViewTable flatView = flatViewOf(objectTypeId, values, dateValues, listValues, references);
+        StringBuilder keyShape = new StringBuilder(kindOf("keyset", flatView));
+        if (lastKey != null) {
+            for (Object value : lastKey) {
+                keyShape.append(value == null ? 'N' : 'V');
             }
-        } catch (SQLException e) {
-            log.error(e);
-            throw new DatabaseConnectionException("Could not open statement", e);
-        } finally {
-//            closeResultSetAndStatement(result, statement);
         }
-        return mutables;
+        List<Object> shape = WideQueryTemplates.shapeOf(keyShape.toString(),
+                values, dateValues, listValues, references, filterBy, sortBy);
+        String fullQuery = WideQueryTemplates.get(shape);
+        if (fullQuery == null) {
+            WideQuery filteredQuery = createFilteredSortedQuery("SELECT * FROM (", flatView,
+                    values, dateValues, listValues, references, "O.OBJECT_TYPE_ID = ?", null, filterBy);
+            fullQuery = WideQueryTemplates.put(shape,
+                    new PagingDescriptor().getParameterizedKeysetPaging(filteredQuery.render(), columns, orders, lastKey));
+        }
+
+        List<Object> parameters = readParameters(flatView, values, dateValues, listValues, references);
+        parameters.add(objectTypeId);
+        addFilterParameters(parameters, filterBy, flatView);
+        new PagingDescriptor().addKeysetParameters(parameters, lastKey, lastObjectId);
+        parameters.add(size);
+        return fetchMutables(fullQuery, parameters, fetchSizes.forPage(size),
+                values, dateValues, listValues, references);
     }
 
-    public List<Mutable> getMutablesByParentId(List<BigInteger> values,
-                                               List<BigInteger> dateValues,
-                                               List<BigInteger> listValues,
-                                               List<BigInteger> references, int pagingFrom, int pagingTo,
-                                               BigInteger parentId, BigInteger objectTypeId, List<SortEntity> sortBy,
-                                               List<FilterEntity> filterBy) {
+    /*
+    Columns are taken from the outer select of the wide picky query, so properties lose their O. prefix.
+    Column names are a part of the query text, anything else is refused
+     */
+    private String keysetColumn(String sortType) {
+        if (sortType != null && sortType.matches("ATTR\\d+")) {
+            return sortType;
+        }
+        for (PropertiesEntityType property : PropertiesEntityType.values()) {
+            if (("O." + property.getType()).equals(sortType) || property.getType().equals(sortType)) {
+                return property.getType();
+            }
+        }
+        String message = "Cannot sort by " + sortType + " in keyset paging";
+        BadDBRequestException exception = new BadDBRequestException(message, null);
+        log.error(message, exception);
+        throw exception;
+    }
 
-        QueryCreator queryCreator = new QueryCreator();
+    /*
+    Type of the values of a keyset column as they are bound to the seek condition
+     */
+    private Class<?> keysetType(String column,
+                                List<BigInteger> dateValues,
+                                List<BigInteger> listValues,
+                                List<BigInteger> references) {
+        if (column.startsWith("ATTR")) {
+            BigInteger attrId = new BigInteger(column.substring(4));
+            if (dateValues.contains(attrId)) {
+                return Timestamp.class;
+            }
+            return listValues.contains(attrId) || references.contains(attrId) ? BigInteger.class : String.class;
+        }
+        return PropertiesEntityType.NAME.getType().equals(column) || PropertiesEntityType.DESCRIPTION.getType().equals(column)
+                ? String.class : BigInteger.class;
+    }
+
+    /**
+     * Fetches objects with given ids in IN-list queries of at most ID_CHUNK_SIZE ids each.
+     * The list of a query is padded to the next power of two with its last id, so only a few
+     * statement texts are ever used whatever the amount of ids is.
+     *
+     * @param objectIds ids of the objects, duplicates are allowed
+     * @return found objects, one for each distinct id, in no particular order
+     */
+    public List<Mutable> getMutablesByIds(List<BigInteger> values,
+                                          List<BigInteger> dateValues,
+                                          List<BigInteger> listValues,
+                                          List<BigInteger> references,
+                                          Collection<BigInteger> objectIds) {
+
+        values = ensureNonNullSecurity(values);
+        dateValues = ensureNonNullSecurity(dateValues);
+        listValues = ensureNonNullSecurity(listValues);
+        references = ensureNonNullSecurity(references);
+
+        List<BigInteger> distinctIds = new ArrayList<>(new LinkedHashSet<>(objectIds));
         List<Mutable> mutables = new ArrayList<>();
-//        PreparedStatement statement = null;
-//        ResultSet result = null;
-        PagingDescriptor paging = new PagingDescriptor();
-        FilteringToSortingDescriptor.DescriptorBuilder descBuilder =
-                new FilteringToSortingDescriptor.DescriptorBuilder();
+        FilteringDescriptor filteringDescriptor = new FilteringDescriptor();
+        for (int from = 0; from < distinctIds.size(); from += ID_CHUNK_SIZE) {
+            List<BigInteger> chunk = distinctIds.subList(from, Math.min(from + ID_CHUNK_SIZE, distinctIds.size()));
+
+            List<Object> shape = WideQueryTemplates.shapeOf("byIds" + FilteringDescriptor.paddedSize(chunk.size()),
+                    values, dateValues, listValues, references, null, null);
+            String fullQuery = WideQueryTemplates.get(shape);
+            if (fullQuery == null) {
+                fullQuery = WideQueryTemplates.put(shape,
+                        new QueryCreator().createWidePickyQuery(values, dateValues, listValues, references)
+                                .where(filteringDescriptor.doInList("O.OBJECT_ID", chunk.size()))
+                                .toString());
+            }
+
+            List<Object> parameters = attributeParameters(values, dateValues, listValues, references);
+            parameters.addAll(filteringDescriptor.padInList(chunk));
+            mutables.addAll(fetchMutables(fullQuery, parameters, fetchSizes.forPage(chunk.size()),
+                    values, dateValues, listValues, references));
+        }
+        return mutables;
+    }
+
+    /**
+     * Fetches a page of objects of given type together with objects they reference, joined to them
+     * in the same query. Total number of rows matching the filters is counted on OBJECTS alone,
+     * without joins, and is not counted at all if the page is the last one and not empty.
+     *
+     * @param objectTypeId type of the root objects
+     * @param joins        reference hops, filters and sorting may only use columns of the root object
+     * @return rows of the page and the total number of rows
+     */
+    public JoinedMutables getJoinedMutables(List<BigInteger> values,
+                                            List<BigInteger> dateValues,
+                                            List<BigInteger> listValues,
+                                            List<BigInteger> references,
+                                            BigInteger objectTypeId,
+                                            List<ReferenceJoin> joins,
+                                            int pagingFrom, int pagingTo,
+                                            List<SortEntity> sortBy,
+                                            List<FilterEntity> filterBy) {
 
         values = ensureNonNullSecurity(values);
         dateValues = ensureNonNullSecurity(dateValues);
         listValues = ensureNonNullSecurity(listValues);
         references = ensureNonNullSecurity(references);
 
+        List<Object> shape = WideQueryTemplates.shapeOf("joinedPage",
+                values, dateValues, listValues, references, joins, filterBy, sortBy);
+        String fullQuery = WideQueryTemplates.get(shape);
+        if (fullQuery == null) {
+            WideQuery filteredSortedQuery = filterAndSort("SELECT * FROM (",
+                    new QueryCreator().createWideJoinedQuery(values, dateValues, listValues, references, joins)
+                            .where("O.OBJECT_TYPE_ID = ?"),
+                    attributeColumns(values, dateValues, listValues, references), sortBy, filterBy);
+            fullQuery = WideQueryTemplates.put(shape,
+                    new PagingDescriptor().getParameterizedPaging(filteredSortedQuery.render()));
+        }
+
+        List<Object> parameters = joinedParameters(values, dateValues, listValues, references, joins);
+        parameters.add(objectTypeId);
+        addFilterParameters(parameters, filterBy);
+        addPagingParameters(parameters, pagingFrom, pagingTo);
+
+        List<List<Mutable>> rows = new ArrayList<>();
+        int pageSize = pagingTo - pagingFrom + 1;
+        new QueryCreator().logSequence(log, fullQuery);
+
+        try (PreparedStatement statement = prepareStatement(fullQuery, fetchSizes.forPage(pageSize));
+             ResultSet result = executeQuery(statement, parameters)) {
+            while (result.next()) {
+                rows.add(pullJoinedRow(result, values, dateValues, listValues, references, joins));
+            }
+        } catch (SQLException e) {
+            log.error(e);
+            throw new DatabaseConnectionException("Could not open statement", e);
+        }
+
+        int total = !rows.isEmpty() && rows.size() < pageSize
+                ? pagingFrom - 1 + rows.size()
+                : getCountOfMutables(values, dateValues, listValues, references, objectTypeId, filterBy, null);
+        return new JoinedMutables(rows, total);
+    }
+
+    /*
+    Wraps wide picky query, or select of the flat table, with given condition into the outer select,
+    so its aliased ATTR columns could be sorted. Filters are checked inside of the query
+     */
+    private WideQuery createFilteredSortedQuery(String outerSelect,
+                                                FlatViewTable flatView,
+                                                List<BigInteger> values,
+                                                List<BigInteger> dateValues,
+                                                List<BigInteger> listValues,
+                                                List<BigInteger> references,
+                                                String condition,
+                                                List<SortEntity> sortBy,
+                                                List<FilterEntity> filterBy) {
+
+        if (flatView != null) {
+            return filterAndSort(outerSelect,
+                    new QueryCreator().createFlatQuery(flatView.getTable(), values, dateValues, listValues, references)
+                            .where(condition),
+                    null, sortBy, filterBy);
+        }
+        return filterAndSort(outerSelect,
+                new QueryCreator().createWidePickyQuery(values, dateValues, listValues, references).where(condition),
+                attributeColumns(values, dateValues, listValues, references), sortBy, filterBy);
+    }
+
+    /*
+    Null attributeColumns mean that the query reads a flat table, where ATTR columns are columns of O
+     */
+    private WideQuery filterAndSort(String outerSelect,
+                                    WideQuery query,
+                                    Map<String, String> attributeColumns,
+                                    List<SortEntity> sortBy,
+                                    List<FilterEntity> filterBy) {
         if (!Collections.isEmpty(filterBy))
-            descBuilder.filter(filterBy);
-        if (!Collections.isEmpty(sortBy))
-            descBuilder.sort(sortBy);
+            query.where(attributeColumns == null
+                    ? new FilteringDescriptor().doFlatFiltering(filterBy)
+                    : new FilteringDescriptor().doPushedDownFiltering(filterBy, attributeColumns));
+        return query.wrap(outerSelect, Collections.isEmpty(sortBy)
+                ? new ArrayList<>()
+                : new SortingDescriptor().getOrderItems(sortBy));
+    }
 
-        StringBuilder basicQuery = queryCreator.createWidePickyQuery(values, dateValues, listValues, references);
-        basicQuery.append("WHERE O.PARENT_ID = ").append(parentId).append(" AND O.OBJECT_TYPE_ID = ").append(objectTypeId);
-        StringBuilder filteredSortedQuery = new StringBuilder("SELECT * FROM (").append(basicQuery).append(") ");
-        filteredSortedQuery.append(descBuilder.build().getQueryBuilder());
-        String fullQuery = paging.getPaging(filteredSortedQuery, pagingFrom, pagingTo);
+    private String filterCondition(List<FilterEntity> filterBy,
+                                   FlatViewTable flatView,
+                                   List<BigInteger> values,
+                                   List<BigInteger> dateValues,
+                                   List<BigInteger> listValues,
+                                   List<BigInteger> references) {
+        if (flatView != null)
+            return new FilteringDescriptor().doFlatFiltering(filterBy);
+        return new FilteringDescriptor().doPushedDownFiltering(filterBy,
+                attributeColumns(values, dateValues, listValues, references));
+    }
 
-        queryCreator.logSequence(log, fullQuery);
+    /*
+    Flat table of the type if it has columns of all requested attributes, null if EAV tables have to be read
+     */
+    private FlatViewTable flatViewOf(BigInteger objectTypeId,
+                                     List<BigInteger> values,
+                                     List<BigInteger> dateValues,
+                                     List<BigInteger> listValues,
+                                     List<BigInteger> references) {
+        if (flatViews == null)
+            return null;
+        FlatViewTable flatView = flatViews.find(objectTypeId);
+        return flatView != null && flatView.covers(values, dateValues, listValues, references) ? flatView : null;
+    }
+
+    private String kindOf(String queryKind, FlatViewTable flatView) {
+        return flatView == null ? queryKind : queryKind + ":" + flatView.getTable();
+    }
 
-        try (PreparedStatement statement = connection.prepareStatement(fullQuery);
-             ResultSet result = resultMultipleMutables(statement, values, dateValues, listValues, references, filterBy)) {
-//            statement = connection.prepareStatement(fullQuery);
-//            result = resultMultipleMutables(statement, values, dateValues, listValues, references, filterBy);
+    /*
+    Select of a flat table binds no attribute ids
+     */
+    private List<Object> readParameters(FlatViewTable flatView,
+                                        List<BigInteger> values,
+                                        List<BigInteger> dateValues,
+                                        List<BigInteger> listValues,
+                                        List<BigInteger> references) {
+        return flatView == null ? attributeParameters(values, dateValues, listValues, references) : new ArrayList<>();
+    }
+
+    /*
+    ATTR column of every attribute mapped to the column of ATTRIBUTES or OBJREFERENCE it is taken from
+     */
+    private Map<String, String> attributeColumns(List<BigInteger> values,
+                                                 List<BigInteger> dateValues,
+                                                 List<BigInteger> listValues,
+                                                 List<BigInteger> references) {
+        Map<String, String> columns = new HashMap<>();
+        for (BigInteger attr : values)
+            columns.put("ATTR" + attr, "VALUE");
+        for (BigInteger attr : dateValues)
+            columns.put("ATTR" + attr, "DATE_VALUE");
+        for (BigInteger attr : listValues)
+            columns.put("ATTR" + attr, "LIST_VALUE_ID");
+        for (BigInteger attr : references)
+            columns.put("ATTR" + attr, "REFERENCE");
+        return columns;
+    }
+
+    private List<Mutable> fetchMutables(String fullQuery,
+                                        List<Object> parameters,
+                                        int fetchSize,
+                                        List<BigInteger> values,
+                                        List<BigInteger> dateValues,
+                                        List<BigInteger> listValues,
+                                        List<BigInteger> references) {
+
+        List<Mutable> mutables = new ArrayList<>();
+        new QueryCreator().logSequence(log, fullQuery);
+
+        try (PreparedStatement statement = prepareStatement(fullQuery, fetchSize);
+             ResultSet result = executeQuery(statement, parameters)) {
             while (result.next()) {
                 Mutable mutable = new Mutable();
                 pullGeneralInfo(result, mutable);
@@ -207,13 +581,61 @@ public class WidePickyDBFetcher {
         } catch (SQLException e) {
             log.error(e);
             throw new DatabaseConnectionException("Could not open statement", e);
-        } finally {
-//            closeResultSetAndStatement(result, statement);
         }
         return mutables;
     }
 
-    //TODO refactor
+    private int fetchCount(String fullQuery, List<Object> parameters) {
+        int countOfItems = 0;
+        new QueryCreator().logSequence(log, fullQuery);
+
+        try (PreparedStatement statement = prepareStatement(fullQuery, fetchSizes.forSingle(1));
+             ResultSet result = executeQuery(statement, parameters)) {
+            while (result.next()) {
+                countOfItems = result.getInt("total");
+            }
+        } catch (SQLException e) {
+            log.error(e);
+            throw new DatabaseConnectionException("Could not open statement", e);
+        }
+        return countOfItems;
+    }
+
+    /*
+    Columns of a joined row go object after object: general information and attributes of the root object,
+    then the same for every join. Joined object is null if its reference is not set
+     */
+    private List<Mutable> pullJoinedRow(ResultSet result,
+                                        List<BigInteger> values,
+                                        List<BigInteger> dateValues,
+                                        List<BigInteger> listValues,
+                                        List<BigInteger> references,
+                                        List<ReferenceJoin> joins) throws SQLException {
+        List<Mutable> row = new ArrayList<>();
+        Mutable root = new Mutable();
+        pullGeneralInfo(result, root, 0);
+        pullAttributes(result, root, values, dateValues, listValues, references, 0);
+        row.add(root);
+
+        int columnsBefore = 5 + values.size() + dateValues.size() + listValues.size() + references.size();
+        for (ReferenceJoin join : joins) {
+            Mutable joined = null;
+            if (result.getString(columnsBefore + 1) != null) {
+                joined = new Mutable();
+                pullGeneralInfo(result, joined, columnsBefore);
+                pullAttributes(result, joined, join.getValues(), join.getDateValues(),
+                        join.getListValues(), join.getReferences(), columnsBefore);
+            }
+            row.add(joined);
+            columnsBefore += 5 + join.getValues().size() + join.getDateValues().size()
+                    + join.getListValues().size() + join.getReferences().size();
+        }
+        return row;
+    }
+
+    /**
+     * @return objects referencing the given one by any of the references
+     */
     public List<Mutable> getMutablesByReference(List<BigInteger> values,
                                                 List<BigInteger> dateValues,
                                                 List<BigInteger> listValues,
@@ -222,40 +644,33 @@ public class WidePickyDBFetcher {
 
         QueryCreator queryCreator = new QueryCreator();
         List<Mutable> mutables = new ArrayList<>();
-//        PreparedStatement statement = null;
-//        ResultSet result = null;
 
         values = ensureNonNullSecurity(values);
         dateValues = ensureNonNullSecurity(dateValues);
         listValues = ensureNonNullSecurity(listValues);
         references = ensureNonNullSecurity(references);
-
-        StringBuilder basicQuery = queryCreator.createWidePickyQuery(values, dateValues, listValues, references);
-        basicQuery.append("WHERE ");
-
-//        we don't need to append 'OR' to the last reference
-        int i = 1;
-        for (BigInteger reference : references) {
-            int indexOfAttrNumber = basicQuery.toString().indexOf(".REFERENCE ATTR" + reference);
-            String numberString = reference.toString();
-            String attrNumber = basicQuery.substring(indexOfAttrNumber - numberString.length(), indexOfAttrNumber);
-            if (attrNumber.contains("A")) {
-                attrNumber = attrNumber.substring(1);
-            }
-            basicQuery.append("A").append(attrNumber).append(".REFERENCE = ").append(objectId);
-            if (i < references.size()) {
-                basicQuery.append(" OR ");
-                i++;
-            }
+        if (references.isEmpty())
+            return mutables;
+
+        FilteringDescriptor filteringDescriptor = new FilteringDescriptor();
+        List<Object> shape = WideQueryTemplates.shapeOf("byReference",
+                values, dateValues, listValues, references, null, null);
+        String fullQuery = WideQueryTemplates.get(shape);
+        if (fullQuery == null) {
+            fullQuery = WideQueryTemplates.put(shape, queryCreator
+                    .createWidePickyQuery(values, dateValues, listValues, references)
+                    .where("EXISTS (SELECT 1 FROM OBJREFERENCE F WHERE F.OBJECT_ID = O.OBJECT_ID AND F.REFERENCE = ? AND "
+                            + filteringDescriptor.doInList("F.ATTR_ID", references.size()) + ")")
+                    .toString());
         }
-        String fullQuery = basicQuery.toString();
-
         queryCreator.logSequence(log, fullQuery);
 
-        try (PreparedStatement statement = connection.prepareStatement(fullQuery);
-             ResultSet result = resultMultipleMutables(statement, values, dateValues, listValues, references, null)) {
-//            statement = connection.prepareStatement(fullQuery);
-//            result = resultMultipleMutables(statement, values, dateValues, listValues, references, null);
+        List<Object> parameters = attributeParameters(values, dateValues, listValues, references);
+        parameters.add(objectId);
+        parameters.addAll(filteringDescriptor.padInList(references));
+
+        try (PreparedStatement statement = prepareStatement(fullQuery, fetchSizes.forPage());
+             ResultSet result = executeQuery(statement, parameters)) {
             while (result.next()) {
                 Mutable mutable = new Mutable();
                 pullGeneralInfo(result, mutable);
@@ -265,8 +680,6 @@ public class WidePickyDBFetcher {
         } catch (SQLException e) {
             log.error(e);
             throw new DatabaseConnectionException("Could not open statement", e);
-        } finally {
-//            closeResultSetAndStatement(result, statement);
         }
         return mutables;
     }
@@ -275,60 +688,36 @@ public class WidePickyDBFetcher {
                                                         List<BigInteger> dateValues,
                                                         List<BigInteger> listValues,
                                                         List<BigInteger> references,
+                                                        BigInteger objectTypeId,
                                                         List<FilterEntity> filterEntities) {
 
         QueryCreator queryCreator = new QueryCreator();
         List<Mutable> mutables = new ArrayList<>();
-//        PreparedStatement statement = null;
-//        ResultSet result = null;
 
         values = ensureNonNullSecurity(values);
         dateValues = ensureNonNullSecurity(dateValues);
         listValues = ensureNonNullSecurity(listValues);
         references = ensureNonNullSecurity(references);
 
-        StringBuilder basicQuery = queryCreator.createWidePickyQuery(values, dateValues, listValues, references);
-        basicQuery.append("WHERE ");
-
-//        we don't need to append 'OR' to the last reference
-        int i = 1;
-        for (BigInteger reference : references) {
-            for (FilterEntity filter : filterEntities) {
-                BigInteger attrId = BigInteger.valueOf(Long.parseLong(filter.getType().substring(4)));
-                if (reference.equals(attrId)) {
-                    int indexOfAttrNumber = basicQuery.toString().indexOf(".REFERENCE ATTR" + reference);
-                    String numberString = reference.toString();
-                    String attrNumber = basicQuery.substring(indexOfAttrNumber - numberString.length(), indexOfAttrNumber);
-                    if (attrNumber.contains("A")) {
-                        attrNumber = attrNumber.substring(1);
-                    }
-
-                    basicQuery.append("(");
-                    int j = 1;
-                    for (Object value :
-                            filter.getValues()) {
-                        basicQuery.append("A").append(attrNumber).append(".REFERENCE = ").append(value);
-                        if (j < filter.getValues().size()) {
-                            basicQuery.append(" OR ");
-                            j++;
-                        }
-                    }
-                    basicQuery.append(")");
-
-                    if (i < filterEntities.size()) {
-                        basicQuery.append(" AND ");
-                        i++;
-                    }
-                }
-            }
+        List<Object> shape = WideQueryTemplates.shapeOf("severalReferences",
+                values, dateValues, listValues, references, filterEntities, null);
+        String fullQuery = WideQueryTemplates.get(shape);
+        if (fullQuery == null) {
+            WideQuery query = queryCreator.createWidePickyQuery(values, dateValues, listValues, references)
+                    .where("O.OBJECT_TYPE_ID = ?");
+            if (!Collections.isEmpty(filterEntities))
+                query.where(new FilteringDescriptor().doPushedDownConjunction(filterEntities,
+                        attributeColumns(values, dateValues, listValues, references)));
+            fullQuery = WideQueryTemplates.put(shape, query.toString());
         }
-        String fullQuery = basicQuery.toString();
         queryCreator.logSequence(log, fullQuery);
 
-        try (PreparedStatement statement = connection.prepareStatement(fullQuery);
-             ResultSet result = resultMultipleMutables(statement, values, dateValues, listValues, references, null)) {
-//            statement = connection.prepareStatement(fullQuery);
-//            result = resultMultipleMutables(statement, values, dateValues, listValues, references, null);
+        List<Object> parameters = attributeParameters(values, dateValues, listValues, references);
+        parameters.add(objectTypeId);
+        addFilterParameters(parameters, filterEntities);
+
+        try (PreparedStatement statement = prepareStatement(fullQuery, fetchSizes.forPage());
+             ResultSet result = executeQuery(statement, parameters)) {
             while (result.next()) {
                 Mutable mutable = new Mutable();
                 pullGeneralInfo(result, mutable);
@@ -338,8 +727,6 @@ public class WidePickyDBFetcher {
         } catch (SQLException e) {
             log.error(e);
             throw new DatabaseConnectionException("Could not open statement", e);
-        } finally {
-//            closeResultSetAndStatement(result, statement);
         }
         return mutables;
     }
@@ -361,24 +748,29 @@ public class WidePickyDBFetcher {
 
         QueryCreator queryCreator = new QueryCreator();
         Mutable mutable = new Mutable();
-//        PreparedStatement statement = null;
-//        ResultSet result = null;
 
         values = ensureNonNullSecurity(values);
         dateValues = ensureNonNullSecurity(dateValues);
         listValues = ensureNonNullSecurity(listValues);
         references = ensureNonNullSecurity(references);
 
-        StringBuilder basicQuery = queryCreator.createWidePickyQuery(values, dateValues, listValues, references);
-        basicQuery.append("JOIN objreference oref ON oref.reference = O.OBJECT_ID and oref.object_id =").append(objectId);
-        String fullQuery = basicQuery.toString();
+        List<Object> shape = WideQueryTemplates.shapeOf("singleByReference",
+                values, dateValues, listValues, references, null, null);
+        String fullQuery = WideQueryTemplates.get(shape);
+        if (fullQuery == null) {
+            fullQuery = WideQueryTemplates.put(shape, queryCreator
+                    .createWidePickyQuery(values, dateValues, listValues, references)
+                    .join("JOIN", "OBJREFERENCE", "OREF", "OREF.REFERENCE = O.OBJECT_ID AND OREF.OBJECT_ID = ?")
+                    .toString());
+        }
+
+        List<Object> parameters = attributeParameters(values, dateValues, listValues, references);
+        parameters.add(objectId);
 
         queryCreator.logSequence(log, fullQuery);
 
-        try (PreparedStatement statement = connection.prepareStatement(fullQuery);
-             ResultSet result = resultMultipleMutables(statement, values, dateValues, listValues, references, null)) {
-//            statement = connection.prepareStatement(fullQuery);
-//            result = resultMultipleMutables(statement, values, dateValues, listValues, references, null);
+        try (PreparedStatement statement = prepareStatement(fullQuery, fetchSizes.forSingle(1));
+             ResultSet result = executeQuery(statement, parameters)) {
             while (result.next()) {
                 pullGeneralInfo(result, mutable);
                 pullAttributes(result, mutable, values, dateValues, listValues, references);
@@ -386,8 +778,6 @@ public class WidePickyDBFetcher {
         } catch (SQLException e) {
             log.error(e);
             throw new DatabaseConnectionException("Could not open statement", e);
-        } finally {
-//            closeResultSetAndStatement(result, statement);
         }
         return mutable;
     }
@@ -410,91 +800,98 @@ public class WidePickyDBFetcher {
             }
     }
 
-    private ResultSet resultMultipleMutables(PreparedStatement statement,
-                                             List<BigInteger> values,
-                                             List<BigInteger> dateValues,
-                                             List<BigInteger> listValues,
-                                             List<BigInteger> references,
-                                             List<FilterEntity> filters) {
-
-        int indexesBefore = 0;
-        setAttributes(statement, values, indexesBefore);
-
-        indexesBefore = values.size();
-        setAttributes(statement, dateValues, indexesBefore);
-
-        indexesBefore = indexesBefore + dateValues.size();
-        setAttributes(statement, listValues, indexesBefore);
-
-        indexesBefore = indexesBefore + listValues.size();
-        setAttributes(statement, references, indexesBefore);
-
-        if (filters != null) {
-            indexesBefore = indexesBefore + references.size();
-            setFilters(statement, filters, indexesBefore);
-        }
+    private PreparedStatement prepareStatement(String query, int fetchSize) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(query);
         try {
-            return statement.executeQuery();
+            statement.setFetchSize(fetchSize);
         } catch (SQLException e) {
-            log.error(e);
-            throw new BadDBRequestException("Error is found after query execution", e);
+            statement.close();
+            throw e;
         }
+        return statement;
     }
 
-    private void setAttributes(PreparedStatement statement,
-                               Collection<BigInteger> attributesId,
-                               int indexesBefore) {
-
+    private ResultSet executeQuery(PreparedStatement statement, List<Object> parameters) {
         try {
-            Iterator<BigInteger> attrIterator = attributesId.iterator();
-            for (int i = indexesBefore + 1; i <= attributesId.size() + indexesBefore; i++) {
-                BigInteger attrId = attrIterator.next();
-                statement.setObject(i, attrId);
+            int i = 1;
+            for (Object parameter : parameters) {
+                statement.setObject(i++, parameter);
             }
         } catch (SQLException e) {
             log.error(e);
-            throw new BadDBRequestException("Could not set given attributes", e);
+            throw new BadDBRequestException("Could not set given parameters", e);
         }
-    }
-
-    private void setFilters(PreparedStatement statement,
-                            List<FilterEntity> filters,
-                            int indexesBefore) {
-
         try {
-            Iterator<FilterEntity> attrIterator = filters.iterator();
-            for (int i = indexesBefore + 1; i <= getFiltersGlobalSize(filters) + indexesBefore; i++) {
-                Set<Object> filterValues = attrIterator.next().getValues();
-
-                Iterator<Object> filterValuesIterator = filterValues.iterator();
-                int j;
-                for (j = i; j < filterValues.size() + i; j++) {
-                    Object filterVal = filterValuesIterator.next();
-                    statement.setObject(j, filterVal);
-                }
-                i = j - 1;
-            }
+            return statement.executeQuery();
         } catch (SQLException e) {
             log.error(e);
-            throw new BadDBRequestException("Could not set given filters", e);
+            throw new BadDBRequestException("Error is found after query execution", e);
         }
     }
 
-    private int getFiltersGlobalSize(List<FilterEntity> filters) {
-        int globalSize = 0;
-        for (FilterEntity entity : filters) {
-            globalSize += entity.getValues().size();
+    /*
+    Attribute ids are bound in the joins of wide picky query in the same order as they are selected
+     */
+    private List<Object> attributeParameters(List<BigInteger> values,
+                                             List<BigInteger> dateValues,
+                                             List<BigInteger> listValues,
+                                             List<BigInteger> references) {
+        List<Object> parameters = new ArrayList<>();
+        parameters.addAll(values);
+        parameters.addAll(dateValues);
+        parameters.addAll(listValues);
+        parameters.addAll(references);
+        return parameters;
+    }
+
+    /*
+    Attribute ids of the root object are followed by the reference attr_id and attribute ids of every join
+     */
+    private List<Object> joinedParameters(List<BigInteger> values,
+                                          List<BigInteger> dateValues,
+                                          List<BigInteger> listValues,
+                                          List<BigInteger> references,
+                                          List<ReferenceJoin> joins) {
+        List<Object> parameters = attributeParameters(values, dateValues, listValues, references);
+        for (ReferenceJoin join : joins) {
+            parameters.add(join.getReferenceAttrId());
+            parameters.addAll(attributeParameters(join.getValues(), join.getDateValues(),
+                    join.getListValues(), join.getReferences()));
+        }
+        return parameters;
+    }
+
+    private void addFilterParameters(List<Object> parameters, List<FilterEntity> filters, FlatViewTable flatView) {
+        if (filters == null || flatView == null) {
+            addFilterParameters(parameters, filters);
+            return;
         }
-        return globalSize;
+        new FilteringDescriptor().addFlatParameters(parameters, filters);
+    }
+
+    private void addFilterParameters(List<Object> parameters, List<FilterEntity> filters) {
+        if (filters == null)
+            return;
+
+        new FilteringDescriptor().addPushedDownParameters(parameters, filters);
+    }
+
+    private void addPagingParameters(List<Object> parameters, int pagingFrom, int pagingTo) {
+        parameters.add(pagingTo);
+        parameters.add(pagingFrom);
     }
 
     private void pullGeneralInfo(ResultSet result, Mutable mutable) {
+        pullGeneralInfo(result, mutable, 0);
+    }
+
+    private void pullGeneralInfo(ResultSet result, Mutable mutable, int columnsBefore) {
         try {
-            mutable.setObjectId(applyBigInt(1, result));
-            mutable.setParentId(applyBigInt(2, result));
-            mutable.setObjectTypeId(applyBigInt(3, result));
-            mutable.setObjectName(result.getString(4));
-            mutable.setObjectDescription(result.getString(5));
+            mutable.setObjectId(applyBigInt(columnsBefore + 1, result));
+            mutable.setParentId(applyBigInt(columnsBefore + 2, result));
+            mutable.setObjectTypeId(applyBigInt(columnsBefore + 3, result));
+            mutable.setObjectName(result.getString(columnsBefore + 4));
+            mutable.setObjectDescription(result.getString(columnsBefore + 5));
         } catch (SQLException e) {
             log.error(e);
             throw new BadDBRequestException("Database doesn't contain requested object", e);
@@ -507,8 +904,18 @@ public class WidePickyDBFetcher {
                                 List<BigInteger> dateValues,
                                 List<BigInteger> listValues,
                                 List<BigInteger> references) {
+        pullAttributes(result, mutable, values, dateValues, listValues, references, 0);
+    }
+
+    private void pullAttributes(ResultSet result,
+                                Mutable mutable,
+                                List<BigInteger> values,
+                                List<BigInteger> dateValues,
+                                List<BigInteger> listValues,
+                                List<BigInteger> references,
+                                int columnsBefore) {
         try {
-            int indexesBefore = 5; //general object information
+            int indexesBefore = columnsBefore + 5; //general object information
             pullValues(result, mutable, values, indexesBefore);
 
             indexesBefore = indexesBefore + values.size();
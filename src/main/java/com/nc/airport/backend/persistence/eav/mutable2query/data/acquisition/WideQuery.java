@@ -0,0 +1,116 @@
+package com.nc.airport.backend.persistence.eav.mutable2query.data.acquisition;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Wide query before it becomes text: selected columns, joins, conditions and outer sorting.
+ * <p>
+ * Parts of the query are collected in lists in any order they are known in and {@link #render()}
+ * writes the query once, paging descriptors wrap the rendered text.
+ */
+final class WideQuery {
+    private final String from;
+    private final List<String> select = new ArrayList<>();
+    private final List<Join> joins = new ArrayList<>();
+    private final List<String> conditions = new ArrayList<>();
+    private String outerSelect;
+    private List<String> orderBy = Collections.emptyList();
+
+    /**
+     * @param from table the query reads, aliased as O
+     */
+    WideQuery(String from) {
+        this.from = from;
+    }
+
+    WideQuery select(String expression) {
+        select.add(expression);
+        return this;
+    }
+
+    /**
+     * Joins a table that has no columns selected from it
+     *
+     * @param type e.g. LEFT JOIN
+     */
+    WideQuery join(String type, String table, String alias, String on) {
+        joins.add(new Join(type, table, alias, on));
+        return this;
+    }
+
+    /**
+     * Joins ATTRIBUTES or OBJREFERENCE row of one attribute of the owner and selects its column
+     *
+     * @param alias       alias of the joined table, e.g. A4
+     * @param column      column of the table, e.g. REFERENCE
+     * @param columnAlias alias of the selected column, e.g. ATTR55
+     */
+    WideQuery attribute(String table, String alias, String owner, String column, String columnAlias) {
+        join("LEFT JOIN", table, alias, alias + ".ATTR_ID = ? AND " + alias + ".OBJECT_ID = " + owner + ".OBJECT_ID");
+        return select(alias + "." + column + " " + columnAlias);
+    }
+
+    /**
+     * Adds a condition, all the conditions are AND-ed
+     */
+    WideQuery where(String condition) {
+        conditions.add(condition);
+        return this;
+    }
+
+    /**
+     * Wraps the query into the outer select, so its aliased columns can be sorted
+     *
+     * @param outerSelect e.g. SELECT * FROM (
+     * @param orderBy     sorted columns of the outer select with their orders, may be empty
+     */
+    WideQuery wrap(String outerSelect, List<String> orderBy) {
+        this.outerSelect = outerSelect;
+        this.orderBy = orderBy;
+        return this;
+    }
+
+    StringBuilder render() {
+        StringBuilder query = new StringBuilder();
+        if (outerSelect != null) {
+            query.append(outerSelect);
+        }
+        query.append("  SELECT ").append(String.join(", ", select))
+                .append("  FROM ").append(from).append(" O ");
+        for (Join join : joins) {
+            query.append(' ').append(join.type).append(' ').append(join.table).append(' ').append(join.alias)
+                    .append(" ON ").append(join.on).append(' ');
+        }
+        for (int i = 0; i < conditions.size(); i++) {
+            query.append(i == 0 ? "WHERE " : " AND ").append(conditions.get(i));
+        }
+        if (outerSelect != null) {
+            query.append(") ");
+            if (!orderBy.isEmpty()) {
+                query.append(" ORDER BY ").append(String.join(", ", orderBy));
+            }
+        }
+        return query;
+    }
+
+    @Override
+    public String toString() {
+        return render().toString();
+    }
+
+    private static final class Join {
+        private final String type;
+        private final String table;
+        private final String alias;
+        private final String on;
+
+        private Join(String type, String table, String alias, String on) {
+            this.type = type;
+            this.table = table;
+            this.alias = alias;
+            this.on = on;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.nc.airport.backend.persistence.eav.mutable2query.data.acquisition;
+
+import com.nc.airport.backend.persistence.eav.mutable2query.filtering2sorting.filtering.FilterEntity;
+import com.nc.airport.backend.persistence.eav.mutable2query.filtering2sorting.filtering.FilterRange;
+import com.nc.airport.backend.persistence.eav.mutable2query.filtering2sorting.filtering.FilterSearch;
+import com.nc.airport.backend.persistence.eav.mutable2query.filtering2sorting.filtering.FilteringDescriptor;
+import com.nc.airport.backend.persistence.eav.mutable2query.filtering2sorting.sorting.SortEntity;
+
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * Keeps SQL text of wide picky queries, so a query of some shape is built only once.
+ * Shape is everything that changes the text: requested attributes (which are defined by entity class),
+ * filtered columns with types of their values, sorted columns with their order and the kind of query.
+ * Everything else (paging bounds, ids, filter values) is bound as parameters,
+ * so Oracle also gets the same statement text and does not hard parse it again.
+ */
+final class WideQueryTemplates {
+    private static final int MAX_TEMPLATES = 512;
+    private static final Map<List<Object>, String> TEMPLATES = Collections.synchronizedMap(new LruTemplates());
+
+    private WideQueryTemplates() {
+    }
+
+    /**
+     * @return cached query text or null if a query of this shape was not built yet
+     */
+    static String get(List<Object> shape) {
+        return TEMPLATES.get(shape);
+    }
+
+    /**
+     * @return given query text
+     */
+    static String put(List<Object> shape, String query) {
+        TEMPLATES.put(shape, query);
+        return query;
+    }
+
+    static List<Object> shapeOf(String queryKind,
+                                List<BigInteger> values,
+                                List<BigInteger> dateValues,
+                                List<BigInteger> listValues,
+                                List<BigInteger> references,
+                                List<FilterEntity> filterBy,
+                                List<SortEntity> sortBy) {
+        List<Object> shape = new ArrayList<>();
+        shape.add(queryKind);
+        shape.add(new ArrayList<>(values));
+        shape.add(new ArrayList<>(dateValues));
+        shape.add(new ArrayList<>(listValues));
+        shape.add(new ArrayList<>(references));
+        shape.add(filterShape(filterBy));
+        shape.add(sortShape(sortBy));
+        return shape;
+    }
+
+    static List<Object> shapeOf(String queryKind,
+                                List<BigInteger> values,
+                                List<BigInteger> dateValues,
+                                List<BigInteger> listValues,
+                                List<BigInteger> references,
+                                List<ReferenceJoin> joins,
+                                List<FilterEntity> filterBy,
+                                List<SortEntity> sortBy) {
+        List<Object> shape = shapeOf(queryKind, values, dateValues, listValues, references, filterBy, sortBy);
+        for (ReferenceJoin join : joins) {
+            shape.add(Arrays.asList(join.getFromIndex(), join.getReferenceAttrId(),
+                    new ArrayList<>(join.getValues()),
+                    new ArrayList<>(join.getDateValues()),
+                    new ArrayList<>(join.getListValues()),
+                    new ArrayList<>(join.getReferences())));
+        }
+        return shape;
+    }
+
+    /*
+    Every filter value is a separate parameter and String values are compared with LIKE,
+    so both amount and types of the values change the query, as well as bounds of a range.
+    Ids are checked with padded IN lists, only the padded size matters
+     */
+    private static List<String> filterShape(List<FilterEntity> filterBy) {
+        List<String> shape = new ArrayList<>();
+        if (filterBy == null)
+            return shape;
+
+        for (FilterEntity filter : filterBy) {
+            StringBuilder filterShape = new StringBuilder(filter.getType());
+            if (FilteringDescriptor.isIdSet(filter.getValues())) {
+                shape.add(filterShape.append(":IN").append(FilteringDescriptor.paddedSize(filter.getValues().size())).toString());
+                continue;
+            }
+            for (Object value : filter.getValues()) {
+                filterShape.append(':').append(value instanceof FilterRange
+                        ? ((FilterRange) value).toCondition("")
+                        : value instanceof FilterSearch
+                        ? ((FilterSearch) value).toCondition("")
+                        : value == null ? null : value.getClass().getSimpleName());
+            }
+            shape.add(filterShape.toString());
+        }
+        return shape;
+    }
+
+    private static List<String> sortShape(List<SortEntity> sortBy) {
+        List<String> shape = new ArrayList<>();
+        if (sortBy == null)
+            return shape;
+
+        for (SortEntity sort : sortBy) {
+            shape.add(sort.getType() + ':' + sort.getOrder());
+        }
+        return shape;
+    }
+
+    /*
+    Least recently used templates are dropped when there are more than MAX_TEMPLATES of them
+     */
+    private static final class LruTemplates extends LinkedHashMap<List<Object>, String> {
+        private static final long serialVersionUID = 1L;
+
+        private LruTemplates() {
+            super(64, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<List<Object>, String> eldest) {
+            return size() > MAX_TEMPLATES;
+        }
+    }
+}
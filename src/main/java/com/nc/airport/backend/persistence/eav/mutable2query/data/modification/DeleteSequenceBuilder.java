@@ -7,6 +7,10 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 
+/**
+ * Deletes objects. Their attributes, references, children and rows of flat tables
+ * are deleted by the cascading foreign keys.
+ */
 public class DeleteSequenceBuilder extends SequenceBuilder {
     public DeleteSequenceBuilder(Connection connection) {
         super(connection);
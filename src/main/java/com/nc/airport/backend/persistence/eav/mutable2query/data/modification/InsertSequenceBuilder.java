@@ -2,90 +2,150 @@ package com.nc.airport.backend.persistence.eav.mutable2query.data.modification;
 
 
 import com.nc.airport.backend.persistence.eav.Mutable;
+import com.nc.airport.backend.persistence.eav.mutable2query.data.FlatViews;
+import com.nc.airport.backend.persistence.eav.mutable2query.data.SearchIndex;
 import org.apache.logging.log4j.LogManager;
 
 import java.math.BigInteger;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
-import java.util.Map;
+import java.util.*;
+import java.util.function.Function;
 
+/**
+ * Inserts one or many mutables as new objects. Every table is written with a single batched statement
+ * for all the given mutables, so the number of round-trips does not depend on their amount.
+ */
 public class InsertSequenceBuilder extends SequenceBuilder {
     private org.apache.logging.log4j.Logger logger = LogManager.getLogger(InsertSequenceBuilder.class.getSimpleName());
-    private Mutable mutable;
-    private BigInteger objectId;
+    private final int batchSize;
 
-    public InsertSequenceBuilder(Connection connection) {
-        super(connection);
-//        this.connection = connection;
+    public InsertSequenceBuilder(Connection connection, ObjectIdAllocator idAllocator) {
+        this(connection, idAllocator, null);
+    }
+
+    public InsertSequenceBuilder(Connection connection, ObjectIdAllocator idAllocator, FlatViews flatViews) {
+        this(connection, idAllocator, flatViews, null);
+    }
+
+    public InsertSequenceBuilder(Connection connection, ObjectIdAllocator idAllocator, FlatViews flatViews,
+                                 SearchIndex searchIndex) {
+        this(connection, idAllocator, UpdateSequenceBuilder.DEFAULT_BATCH_SIZE, flatViews, searchIndex);
+    }
+
+    /**
+     * @param batchSize max number of rows sent to database in one round-trip
+     */
+    public InsertSequenceBuilder(Connection connection, ObjectIdAllocator idAllocator, int batchSize,
+                                 FlatViews flatViews, SearchIndex searchIndex) {
+        super(connection, idAllocator, flatViews, searchIndex);
+        this.batchSize = batchSize < 1 ? UpdateSequenceBuilder.DEFAULT_BATCH_SIZE : batchSize;
     }
 
     @Override
     public Mutable build(Mutable mutable) {
-        this.mutable = mutable;
-//        objectId = getNewObjectId();
+        build(Collections.singletonList(mutable));
+        return mutable;
+    }
+
+    /**
+     * Every mutable gets a new objectId, even if it had one.
+     *
+     * @param mutables mutables to be inserted
+     * @return the same mutables in the same order
+     */
+    public List<Mutable> build(Collection<Mutable> mutables) {
+        assignObjectIds(mutables);
+
+        insertIntoObjects(mutables);
+        insertIntoAttributes(mutables);
+        insertIntoObjReferences(mutables);
+        refreshFlatViews(mutables);
+        refreshSearchIndex(mutables);
+        return new ArrayList<>(mutables);
+    }
 
-        insertIntoObjects();
-        insertIntoAttributes();
-        insertIntoObjReferences();
+    private void assignObjectIds(Collection<Mutable> mutables) {
+        if (mutables.isEmpty()) return;
 
-        if (mutable.getObjectId() != null)
-            logger.warn("Changed inserted mutable object_id from " + mutable.getObjectId() + " to " + objectId);
-        mutable.setObjectId(objectId);
-        return mutable;
+        Iterator<BigInteger> newIds = getNewObjectIds(mutables.size()).iterator();
+        for (Mutable mutable : mutables) {
+            BigInteger objectId = newIds.next();
+            if (mutable.getObjectId() != null)
+                logger.warn("Changed inserted mutable object_id from " + mutable.getObjectId() + " to " + objectId);
+            mutable.setObjectId(objectId);
+        }
     }
 
-    private void insertIntoObjects() {
+    private void insertIntoObjects(Collection<Mutable> mutables) {
         try (PreparedStatement statement = connection.prepareStatement(
                 "INSERT INTO OBJECTS " +
                         "(OBJECT_ID, PARENT_ID, OBJECT_TYPE_ID, NAME, DESCRIPTION) VALUES (?, ?, ?, ?, ?)")) {
-
-            statement.setObject(1, mutable.getObjectId());
-            statement.setObject(2, mutable.getParentId());
-            statement.setObject(3, mutable.getObjectTypeId());
-            statement.setString(4, mutable.getObjectName());
-            statement.setString(5, mutable.getObjectDescription());
-            statement.executeUpdate();
+            int batched = 0;
+            for (Mutable mutable : mutables) {
+                statement.setObject(1, mutable.getObjectId());
+                statement.setObject(2, mutable.getParentId());
+                statement.setObject(3, mutable.getObjectTypeId());
+                statement.setString(4, mutable.getObjectName());
+                statement.setString(5, mutable.getObjectDescription());
+                batched = addToBatch(statement, batched, batchSize);
+            }
+            flushBatch(statement, batched);
         } catch (SQLException e) {
             logSQLError(e, "Objects");
         }
     }
 
-    private void insertIntoAttributes() {
-        insertValues(mutable.getValues(), "value");
-        insertValues(mutable.getDateValues(), "date_value");
-        insertValues(mutable.getListValues(), "list_value_id");
+    private void insertIntoAttributes(Collection<Mutable> mutables) {
+        insertValues(mutables, Mutable::getValues, "value");
+        insertValues(mutables, Mutable::getDateValues, "date_value");
+        insertValues(mutables, Mutable::getListValues, "list_value_id");
     }
 
-    private void insertValues(Map<BigInteger, ?> values, String valueType) {
-        if (noSuchElementsInObject(values)) return;
+    private void insertValues(Collection<Mutable> mutables,
+                              Function<Mutable, ? extends Map<BigInteger, ?>> valuesOf,
+                              String valueType) {
+        if (noSuchElementsInObjects(mutables, valuesOf)) return;
 
-        String sql = "INSERT INTO ATTRIBUTES (attr_id, " + valueType + ", object_id) VALUES (?,?, " + mutable.getObjectId() + ")";
+        String sql = "INSERT INTO ATTRIBUTES (attr_id, " + valueType + ", object_id) VALUES (?,?,?)";
         try (PreparedStatement statement = connection.prepareStatement(sql)) {
-            for (Map.Entry<BigInteger, ?> entry : values.entrySet()) {
-                statement.setObject(1, entry.getKey());
-                statement.setObject(2, entry.getValue());
-                statement.addBatch();
+            int batched = 0;
+            for (Mutable mutable : mutables) {
+                Map<BigInteger, ?> values = valuesOf.apply(mutable);
+                if (noSuchElementsInObject(values)) continue;
+
+                for (Map.Entry<BigInteger, ?> entry : values.entrySet()) {
+                    statement.setObject(1, entry.getKey());
+                    statement.setObject(2, entry.getValue());
+                    statement.setObject(3, mutable.getObjectId());
+                    batched = addToBatch(statement, batched, batchSize);
+                }
             }
-            statement.executeBatch();
+            flushBatch(statement, batched);
         } catch (SQLException e) {
             logSQLError(e, "Attributes while operating " + valueType);
         }
     }
 
-    private void insertIntoObjReferences() {
-        Map<BigInteger, BigInteger> references = mutable.getReferences();
-        if (noSuchElementsInObject(references)) return;
+    private void insertIntoObjReferences(Collection<Mutable> mutables) {
+        if (noSuchElementsInObjects(mutables, Mutable::getReferences)) return;
 
         String sql = "INSERT INTO OBJREFERENCE (ATTR_ID,OBJECT_ID, REFERENCE) VALUES (?,?,?)";
         try (PreparedStatement statement = connection.prepareStatement(sql)) {
-            for (Map.Entry<BigInteger, BigInteger> entry : references.entrySet()) {
-                statement.setObject(1, entry.getKey());
-                statement.setObject(2, objectId);
-                statement.setObject(3, entry.getValue());
-                statement.addBatch();
+            int batched = 0;
+            for (Mutable mutable : mutables) {
+                Map<BigInteger, BigInteger> references = mutable.getReferences();
+                if (noSuchElementsInObject(references)) continue;
+
+                for (Map.Entry<BigInteger, BigInteger> entry : references.entrySet()) {
+                    statement.setObject(1, entry.getKey());
+                    statement.setObject(2, mutable.getObjectId());
+                    statement.setObject(3, entry.getValue());
+                    batched = addToBatch(statement, batched, batchSize);
+                }
             }
-            statement.executeBatch();
+            flushBatch(statement, batched);
         } catch (SQLException e) {
             logSQLError(e, "References");
         }
@@ -0,0 +1,117 @@
+package com.nc.airport.backend.persistence.eav.mutable2query.data.modification;
+
+import com.nc.airport.backend.persistence.eav.exceptions.DatabaseConnectionException;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hands out new object ids from blocks reserved in OBJECTS_OBJECT_ID sequence.
+ * <p>
+ * The sequence has to be incremented by the same block size as the allocator uses.
+ * Each NEXTVAL value V then reserves ids from V to V + blockSize - 1 for this JVM only,
+ * so parallel writers never get the same id and most of the ids are handed out
+ * without talking to database at all.
+ * <p>
+ * The increment is read from USER_SEQUENCES once, when the first block is reserved.
+ * If it is smaller than the configured block size, blocks would overlap with other writers,
+ * so the allocator falls back to one id per NEXTVAL.
+ */
+@Log4j2
+@Component
+public class ObjectIdAllocator {
+    public static final int DEFAULT_BLOCK_SIZE = 50;
+    private static final String NEXT_BLOCK_QUERY = "SELECT OBJECTS_OBJECT_ID.NEXTVAL FROM dual";
+    static final String INCREMENT_QUERY =
+            "SELECT INCREMENT_BY FROM USER_SEQUENCES WHERE SEQUENCE_NAME = 'OBJECTS_OBJECT_ID'";
+
+    private BigInteger blockSize;
+    private boolean incrementChecked;
+    private BigInteger nextId;
+    private BigInteger blockEnd;
+
+    /**
+     * @param blockSize must be equal to INCREMENT BY of OBJECTS_OBJECT_ID sequence
+     */
+    @Autowired
+    public ObjectIdAllocator(@Value("${eav.object-id.block-size:" + DEFAULT_BLOCK_SIZE + "}") int blockSize) {
+        if (blockSize < 1) {
+            log.warn("Tried to set object id block size less than 1 (" + blockSize + "). Set to " + DEFAULT_BLOCK_SIZE);
+            blockSize = DEFAULT_BLOCK_SIZE;
+        }
+        this.blockSize = BigInteger.valueOf(blockSize);
+    }
+
+    /**
+     * @param connection used only if a new block has to be reserved
+     * @return new object id that was never handed out before
+     */
+    public BigInteger allocate(Connection connection) {
+        return allocate(connection, 1).get(0);
+    }
+
+    /**
+     * Reserves as many new blocks as needed, so ids for a whole batch are known before it is sent.
+     *
+     * @param connection used only if new blocks have to be reserved
+     * @param amount     number of ids needed
+     * @return list of new object ids that were never handed out before
+     */
+    public synchronized List<BigInteger> allocate(Connection connection, int amount) {
+        List<BigInteger> ids = new ArrayList<>(amount);
+        while (ids.size() < amount) {
+            if (nextId == null || nextId.compareTo(blockEnd) >= 0) {
+                reserveBlock(connection);
+            }
+            ids.add(nextId);
+            nextId = nextId.add(BigInteger.ONE);
+        }
+        return ids;
+    }
+
+    private void reserveBlock(Connection connection) {
+        if (!incrementChecked) {
+            checkSequenceIncrement(connection);
+            incrementChecked = true;
+        }
+        try (PreparedStatement statement = connection.prepareStatement(NEXT_BLOCK_QUERY);
+             ResultSet nextVal = statement.executeQuery()) {
+            nextVal.next();
+            nextId = new BigInteger(nextVal.getString(1));
+            blockEnd = nextId.add(blockSize);
+            log.debug("Reserved object ids from {} to {}", nextId, blockEnd.subtract(BigInteger.ONE));
+        } catch (SQLException e) {
+            log.error("Failed to reserve a block of object ids ", e);
+            throw new DatabaseConnectionException("Failed to fetch vacant objectId", e);
+        }
+    }
+
+    private void checkSequenceIncrement(Connection connection) {
+        try (PreparedStatement statement = connection.prepareStatement(INCREMENT_QUERY);
+             ResultSet increment = statement.executeQuery()) {
+            if (!increment.next()) {
+                log.warn("Could not find OBJECTS_OBJECT_ID in USER_SEQUENCES, object id block size "
+                        + blockSize + " is not checked");
+                return;
+            }
+            BigInteger incrementBy = BigInteger.valueOf(increment.getLong(1));
+            if (incrementBy.compareTo(blockSize) < 0) {
+                log.warn("OBJECTS_OBJECT_ID is incremented by " + incrementBy + " which is less than object id block size "
+                        + blockSize + ". Falling back to one object id per NEXTVAL");
+                blockSize = BigInteger.ONE;
+            }
+        } catch (SQLException e) {
+            log.error("Failed to read increment of OBJECTS_OBJECT_ID ", e);
+            throw new DatabaseConnectionException("Failed to read increment of OBJECTS_OBJECT_ID", e);
+        }
+    }
+}
@@ -2,46 +2,133 @@ package com.nc.airport.backend.persistence.eav.mutable2query.data.modification;
 
 import com.nc.airport.backend.persistence.eav.Mutable;
 import com.nc.airport.backend.persistence.eav.exceptions.DatabaseConnectionException;
+import com.nc.airport.backend.persistence.eav.mutable2query.data.FlatViews;
+import com.nc.airport.backend.persistence.eav.mutable2query.data.SearchIndex;
 import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.math.BigInteger;
 import java.sql.Connection;
-import java.sql.ResultSet;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
-import java.sql.Statement;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 public abstract class SequenceBuilder {
     protected final Logger LOGGER = LogManager.getLogger(this.getClass());
     protected Connection connection;
+    protected ObjectIdAllocator idAllocator;
+    protected FlatViews flatViews;
+    protected SearchIndex searchIndex;
 
     public SequenceBuilder(Connection connection) {
         this.connection = connection;
     }
 
+    public SequenceBuilder(Connection connection, ObjectIdAllocator idAllocator) {
+        this.connection = connection;
+        this.idAllocator = idAllocator;
+    }
+
+    /**
+     * @param flatViews flat tables written together with the objects, may be null
+     */
+    public SequenceBuilder(Connection connection, ObjectIdAllocator idAllocator, FlatViews flatViews) {
+        this(connection, idAllocator);
+        this.flatViews = flatViews;
+    }
+
+    /**
+     * @param flatViews   flat tables written together with the objects, may be null
+     * @param searchIndex search index written together with the objects, may be null
+     */
+    public SequenceBuilder(Connection connection, ObjectIdAllocator idAllocator, FlatViews flatViews,
+                           SearchIndex searchIndex) {
+        this(connection, idAllocator, flatViews);
+        this.searchIndex = searchIndex;
+    }
+
     public abstract Mutable build(Mutable mutable);
 
     boolean noSuchElementsInObject(Map map) {
         return map == null || map.size() == 0;
     }
 
+    boolean noSuchElementsInObjects(Collection<Mutable> mutables,
+                                            Function<Mutable, ? extends Map<BigInteger, ?>> mapOf) {
+        for (Mutable mutable : mutables) {
+            if (!noSuchElementsInObject(mapOf.apply(mutable))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     protected void logSQLError(SQLException e, String inTable, String operation) {
         LOGGER.log(Level.ERROR, e);
         throw new DatabaseConnectionException("Invalid values in mutable for " + operation + " in " + inTable, e);
     }
 
+    /**
+     * Writes rows of flat tables of the written mutables, has to be called after EAV tables are written
+     */
+    protected void refreshFlatViews(Collection<Mutable> mutables) {
+        if (flatViews != null) {
+            flatViews.refresh(connection, mutables);
+        }
+    }
+
+    /**
+     * Writes search tokens of the written mutables, has to be called after EAV tables are written
+     */
+    protected void refreshSearchIndex(Collection<Mutable> mutables) {
+        if (searchIndex != null) {
+            searchIndex.refresh(connection, mutables);
+        }
+    }
+
+    /**
+     * Adds current parameters to the batch and sends the batch once it reaches batchSize
+     *
+     * @return number of rows that are still waiting in the batch
+     */
+    protected static int addToBatch(PreparedStatement statement, int batched, int batchSize) throws SQLException {
+        statement.addBatch();
+        if (++batched == batchSize) {
+            statement.executeBatch();
+            return 0;
+        }
+        return batched;
+    }
+
+    protected static void flushBatch(PreparedStatement statement, int batched) throws SQLException {
+        if (batched > 0) {
+            statement.executeBatch();
+        }
+    }
+
     public BigInteger getNewObjectId() {
-        try (Statement statement = connection.createStatement();
-             ResultSet nextVal = statement.executeQuery("SELECT COALESCE(MIN(O1.OBJECT_ID + 1), 1)\n" +
-                     "  FROM OBJECTS O1 LEFT JOIN OBJECTS O2 ON O1.OBJECT_ID + 1 = O2.OBJECT_ID\n" +
-                     "  WHERE O2.OBJECT_ID IS NULL")) {
-            nextVal.next();
-            return new BigInteger(nextVal.getString(1));
-        } catch (SQLException e) {
-            LOGGER.error("Failed to generate new object id ", e);
-            throw new DatabaseConnectionException("Failed to fetch vacant objectId", e);
+        return getIdAllocator().allocate(connection);
+    }
+
+    /**
+     * @param amount number of ids needed
+     * @return list of new object ids
+     */
+    public List<BigInteger> getNewObjectIds(int amount) {
+        return getIdAllocator().allocate(connection, amount);
+    }
+
+    private ObjectIdAllocator getIdAllocator() {
+        if (idAllocator == null) {
+            IllegalStateException exception = new IllegalStateException(
+                    getClass().getSimpleName() + " was created without ObjectIdAllocator");
+            LOGGER.error(exception);
+            throw exception;
         }
+        return idAllocator;
     }
 }
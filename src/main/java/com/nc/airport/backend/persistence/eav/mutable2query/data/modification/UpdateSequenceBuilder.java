@@ -2,70 +2,130 @@ package com.nc.airport.backend.persistence.eav.mutable2query.data.modification;
 
 
 import com.nc.airport.backend.persistence.eav.Mutable;
+import com.nc.airport.backend.persistence.eav.mutable2query.data.FlatViews;
+import com.nc.airport.backend.persistence.eav.mutable2query.data.SearchIndex;
 
 import java.math.BigInteger;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
-import java.util.Map;
+import java.util.*;
+import java.util.function.Function;
 
+/**
+ * Updates or inserts one or many mutables. Every table is written with a single batched statement
+ * for all the given mutables, so the number of round-trips does not depend on their amount.
+ */
 public class UpdateSequenceBuilder extends SequenceBuilder {
-    private Mutable mutable;
-    private BigInteger objectId;
+    public static final int DEFAULT_BATCH_SIZE = 100;
 
-    public UpdateSequenceBuilder(Connection connection) {
-        super(connection);
-        //this.connection = connection;
+    private final int batchSize;
+
+    public UpdateSequenceBuilder(Connection connection, ObjectIdAllocator idAllocator) {
+        this(connection, idAllocator, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param idAllocator gives objectIds to inserted mutables
+     * @param batchSize   max number of rows sent to database in one round-trip
+     */
+    public UpdateSequenceBuilder(Connection connection, ObjectIdAllocator idAllocator, int batchSize) {
+        this(connection, idAllocator, batchSize, null);
+    }
+
+    /**
+     * @param flatViews flat tables whose rows are written again after the mutables, may be null
+     */
+    public UpdateSequenceBuilder(Connection connection, ObjectIdAllocator idAllocator, int batchSize,
+                                 FlatViews flatViews) {
+        this(connection, idAllocator, batchSize, flatViews, null);
+    }
+
+    /**
+     * @param searchIndex search index whose tokens are written again after the mutables, may be null
+     */
+    public UpdateSequenceBuilder(Connection connection, ObjectIdAllocator idAllocator, int batchSize,
+                                 FlatViews flatViews, SearchIndex searchIndex) {
+        super(connection, idAllocator, flatViews, searchIndex);
+        this.batchSize = batchSize < 1 ? DEFAULT_BATCH_SIZE : batchSize;
     }
 
     @Override
     public Mutable build(Mutable mutable) {
-        this.mutable = mutable;
+        build(Collections.singletonList(mutable));
+        return mutable;
+    }
 
-        if (mutable.getObjectId() == null) {
-            objectId = getNewObjectId();
-            mutable.setObjectId(objectId);
-        } else {
-            objectId = mutable.getObjectId();
+    /**
+     * Mutables with null objectId are inserted and get their new objectId set.
+     *
+     * @param mutables mutables to be updated or inserted
+     * @return the same mutables in the same order
+     */
+    public List<Mutable> build(Collection<Mutable> mutables) {
+        assignObjectIds(mutables);
+
+        updateObjects(mutables);
+        updateAttributes(mutables);
+        updateReferencesOfObjReferences(mutables);
+        refreshFlatViews(mutables);
+        refreshSearchIndex(mutables);
+        return new ArrayList<>(mutables);
+    }
+
+    private void assignObjectIds(Collection<Mutable> mutables) {
+        List<Mutable> newMutables = new ArrayList<>();
+        for (Mutable mutable : mutables) {
+            if (mutable.getObjectId() == null) {
+                newMutables.add(mutable);
+            }
         }
+        if (newMutables.isEmpty()) return;
 
-        updateObject();
-        updateAttributes();
-        updateReferencesOfObjReferences();
-        return mutable;
+        Iterator<BigInteger> newIds = getNewObjectIds(newMutables.size()).iterator();
+        for (Mutable mutable : newMutables) {
+            mutable.setObjectId(newIds.next());
+        }
     }
 
     /**
      * This method has a restriction to not change Object_ID or Object_Type_ID
      * for security purposes.
      */
-    protected void updateObject() {
-        StringBuilder sql = new StringBuilder("MERGE INTO OBJECTS O")
-                .append(" USING (SELECT ? PARENT_ID, ? NAME, ? DESCRIPTION, ").append(objectId)
-                .append(" OBJECT_ID FROM dual) NEW ON (O.OBJECT_ID = NEW.OBJECT_ID)")
-                .append(" WHEN MATCHED THEN UPDATE SET O.PARENT_ID = NEW.PARENT_ID, O.NAME = NEW.NAME,")
-                .append(" O.DESCRIPTION = NEW.DESCRIPTION")
-                .append(" WHEN NOT MATCHED THEN INSERT")
-                .append(" VALUES (NEW.OBJECT_ID, NEW.PARENT_ID, ?, NEW.NAME, NEW.DESCRIPTION)");
-        try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
-            statement.setObject(1, mutable.getParentId());
-            statement.setString(2, mutable.getObjectName());
-            statement.setString(3, mutable.getObjectDescription());
-            statement.setObject(4, mutable.getObjectTypeId());
-            statement.executeUpdate();
+    protected void updateObjects(Collection<Mutable> mutables) {
+        String sql = "MERGE INTO OBJECTS O" +
+                " USING (SELECT ? PARENT_ID, ? NAME, ? DESCRIPTION, ? OBJECT_ID FROM dual) NEW" +
+                " ON (O.OBJECT_ID = NEW.OBJECT_ID)" +
+                " WHEN MATCHED THEN UPDATE SET O.PARENT_ID = NEW.PARENT_ID, O.NAME = NEW.NAME," +
+                " O.DESCRIPTION = NEW.DESCRIPTION" +
+                " WHEN NOT MATCHED THEN INSERT" +
+                " VALUES (NEW.OBJECT_ID, NEW.PARENT_ID, ?, NEW.NAME, NEW.DESCRIPTION)";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            int batched = 0;
+            for (Mutable mutable : mutables) {
+                statement.setObject(1, mutable.getParentId());
+                statement.setString(2, mutable.getObjectName());
+                statement.setString(3, mutable.getObjectDescription());
+                statement.setObject(4, mutable.getObjectId());
+                statement.setObject(5, mutable.getObjectTypeId());
+                batched = addToBatch(statement, batched, batchSize);
+            }
+            flushBatch(statement, batched);
         } catch (SQLException e) {
             logSQLError(e, "Objects");
         }
     }
 
-    protected void updateAttributes() {
-        updateValues(mutable.getValues(), "VALUE ");
-        updateValues(mutable.getDateValues(), "DATE_VALUE ");
-        updateValues(mutable.getListValues(), "LIST_VALUE_ID");
+    protected void updateAttributes(Collection<Mutable> mutables) {
+        updateValues(mutables, Mutable::getValues, "VALUE ");
+        updateValues(mutables, Mutable::getDateValues, "DATE_VALUE ");
+        updateValues(mutables, Mutable::getListValues, "LIST_VALUE_ID");
     }
 
-    private void updateValues(Map<BigInteger, ?> values, String valueType) {
-        if (noSuchElementsInObject(values)) return;
+    private void updateValues(Collection<Mutable> mutables,
+                              Function<Mutable, Map<BigInteger, ?>> valuesOf,
+                              String valueType) {
+        if (noSuchElementsInObjects(mutables, valuesOf)) return;
         StringBuilder sql =
                 new StringBuilder("MERGE INTO ATTRIBUTES A ");
         if (valueType.equals("DATE_VALUE ")) {
@@ -73,22 +133,29 @@ public class UpdateSequenceBuilder extends SequenceBuilder {
         } else {
             sql.append("USING (SELECT ? new_value, ? ATTR_ID, ");
         }
-        sql.append(objectId).append(" OBJECT_ID FROM dual) B ")
+        sql.append("? OBJECT_ID FROM dual) B ")
                 .append("ON (A.ATTR_ID = B.ATTR_ID AND A.OBJECT_ID = B.OBJECT_ID) ")
                 .append("WHEN MATCHED THEN UPDATE SET A.").append(valueType).append(" = B.new_value ")
                 .append("WHEN NOT MATCHED THEN INSERT (ATTR_ID, OBJECT_ID, ").append(valueType).append(") ")
                 .append("VALUES (B.ATTR_ID, B.OBJECT_ID, B.new_value)");
         try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
-            for (Map.Entry<BigInteger, ?> entry : values.entrySet()) {
-                if (valueType.equals("DATE_VALUE ")) {
-                    statement.setObject(1, entry.getValue().toString());
-                } else {
-                    statement.setObject(1, entry.getValue());
+            int batched = 0;
+            for (Mutable mutable : mutables) {
+                Map<BigInteger, ?> values = valuesOf.apply(mutable);
+                if (noSuchElementsInObject(values)) continue;
+
+                for (Map.Entry<BigInteger, ?> entry : values.entrySet()) {
+                    if (valueType.equals("DATE_VALUE ")) {
+                        statement.setObject(1, entry.getValue().toString());
+                    } else {
+                        statement.setObject(1, entry.getValue());
+                    }
+                    statement.setObject(2, entry.getKey());
+                    statement.setObject(3, mutable.getObjectId());
+                    batched = addToBatch(statement, batched, batchSize);
                 }
-                statement.setObject(2, entry.getKey());
-                statement.addBatch();
             }
-            statement.executeBatch();
+            flushBatch(statement, batched);
         } catch (SQLException e) {
             logSQLError(e, "Attributes while operating " + valueType);
         }
@@ -98,9 +165,8 @@ public class UpdateSequenceBuilder extends SequenceBuilder {
     /**
      * Can only update the REFERENCE value, can not change attr_id and object_id
      */
-    private void updateReferencesOfObjReferences() {
-        Map<BigInteger, BigInteger> references = mutable.getReferences();
-        if (noSuchElementsInObject(references)) return;
+    private void updateReferencesOfObjReferences(Collection<Mutable> mutables) {
+        if (noSuchElementsInObjects(mutables, Mutable::getReferences)) return;
 
         StringBuilder sql = new StringBuilder("MERGE INTO OBJREFERENCE R ")
                 .append(" USING (SELECT ? ATTR_ID, ? OBJECT_ID, ? REFERENCE FROM dual) NEW ")
@@ -110,13 +176,19 @@ public class UpdateSequenceBuilder extends SequenceBuilder {
                 .append(" WHEN NOT MATCHED THEN INSERT ")
                 .append("  VALUES (NEW.ATTR_ID, NEW.REFERENCE, NEW.OBJECT_ID)");
         try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
-            for (Map.Entry<BigInteger, BigInteger> entry : references.entrySet()) {
-                statement.setObject(1, entry.getKey());
-                statement.setObject(2, objectId);
-                statement.setObject(3, entry.getValue());
-                statement.addBatch();
+            int batched = 0;
+            for (Mutable mutable : mutables) {
+                Map<BigInteger, BigInteger> references = mutable.getReferences();
+                if (noSuchElementsInObject(references)) continue;
+
+                for (Map.Entry<BigInteger, BigInteger> entry : references.entrySet()) {
+                    statement.setObject(1, entry.getKey());
+                    statement.setObject(2, mutable.getObjectId());
+                    statement.setObject(3, entry.getValue());
+                    batched = addToBatch(statement, batched, batchSize);
+                }
             }
-            statement.executeBatch();
+            flushBatch(statement, batched);
         } catch (SQLException e) {
             logSQLError(e, "References");
         }
@@ -0,0 +1,126 @@
+package com.nc.airport.backend.persistence.eav.mutable2query.filtering2sorting.filtering;
+
+import lombok.extern.log4j.Log4j2;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Range of a date or numeric attribute, used as a value of {@link FilterEntity}.
+ * <p>
+ * Bounds of a date range are compared with DATE_VALUE as they are, so Oracle can use the index of the attribute.
+ * Bounds of a numeric range are compared with VALUE converted by TO_NUMBER.
+ *
+ * <pre>
+ *     Example: flights departing on the given day
+ *     new FilterEntity(BigInteger.valueOf(64), Collections.singleton(
+ *             FilterRange.fromUntil(day.atStartOfDay(), day.plusDays(1).atStartOfDay())));
+ * </pre>
+ */
+@Log4j2
+public final class FilterRange {
+    private final Object from;
+    private final Object to;
+    private final boolean toIncluded;
+
+    private FilterRange(Object from, Object to, boolean toIncluded) {
+        checkBound(from);
+        checkBound(to);
+        if (from != null && to != null && from.getClass() != to.getClass()) {
+            String message = "Bounds of a range must be of the same type: " + from.getClass() + ", " + to.getClass();
+            IllegalArgumentException exception = new IllegalArgumentException(message);
+            log.error(message, exception);
+            throw exception;
+        }
+        this.from = from;
+        this.to = to;
+        this.toIncluded = toIncluded;
+    }
+
+    /**
+     * @return range of values between the bounds, both included
+     */
+    public static FilterRange between(Object from, Object to) {
+        return new FilterRange(notNull(from), notNull(to), true);
+    }
+
+    /**
+     * @return range of values greater than or equal to the bound
+     */
+    public static FilterRange from(Object from) {
+        return new FilterRange(notNull(from), null, false);
+    }
+
+    /**
+     * @return range of values less than the bound
+     */
+    public static FilterRange until(Object to) {
+        return new FilterRange(null, notNull(to), false);
+    }
+
+    /**
+     * @return range of values greater than or equal to the first bound and less than the second one
+     */
+    public static FilterRange fromUntil(Object from, Object to) {
+        return new FilterRange(notNull(from), notNull(to), false);
+    }
+
+    /**
+     * @param column column the range is checked on
+     * @return condition of the range, its bounds are bound as {@link #getParameters()} returns them
+     */
+    public String toCondition(String column) {
+        Object bound = from != null ? from : to;
+        String compared = bound instanceof Number ? "TO_NUMBER(" + column + ")" : column;
+        if (from != null && to != null) {
+            return toIncluded
+                    ? compared + " BETWEEN ? AND ?"
+                    : compared + " >= ? AND " + compared + " < ?";
+        }
+        return from != null ? compared + " >= ?" : compared + " < ?";
+    }
+
+    public List<Object> getParameters() {
+        List<Object> parameters = new ArrayList<>();
+        if (from != null) {
+            parameters.add(toParameter(from));
+        }
+        if (to != null) {
+            parameters.add(toParameter(to));
+        }
+        return parameters;
+    }
+
+    /**
+     * @return value as it is bound to a statement, dates are bound as timestamps
+     */
+    static Object toParameter(Object value) {
+        return value instanceof LocalDateTime ? Timestamp.valueOf((LocalDateTime) value) : value;
+    }
+
+    private static Object notNull(Object bound) {
+        if (bound == null) {
+            String message = "Bound of a range must not be null";
+            IllegalArgumentException exception = new IllegalArgumentException(message);
+            log.error(message, exception);
+            throw exception;
+        }
+        return bound;
+    }
+
+    private static void checkBound(Object bound) {
+        if (bound != null && !(bound instanceof LocalDateTime) && !(bound instanceof Number)) {
+            String message = "Bound of a range can only be LocalDateTime or Number. Type : " + bound.getClass();
+            IllegalArgumentException exception = new IllegalArgumentException(message);
+            log.error(message, exception);
+            throw exception;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return (from == null ? "(" : "[" + from) + ", " + (to == null ? ")" : to + (toIncluded ? "]" : ")"));
+    }
+}
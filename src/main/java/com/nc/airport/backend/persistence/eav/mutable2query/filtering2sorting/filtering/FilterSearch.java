@@ -0,0 +1,110 @@
+package com.nc.airport.backend.persistence.eav.mutable2query.filtering2sorting.filtering;
+
+import com.nc.airport.backend.persistence.eav.mutable2query.data.SearchIndex;
+import lombok.extern.log4j.Log4j2;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Text searched in value fields of an object type with {@link SearchIndex}, used as a value of {@link FilterEntity}
+ * of OBJECT_ID. Matches objects any indexed value of which contains the text, ignoring case.
+ * <p>
+ * Candidate values are found in the index first: values having every trigram of the text,
+ * or a trigram starting with the text if it is shorter than a trigram. Only the candidates are
+ * checked with LIKE, so the search does not read every value of the type.
+ *
+ * <pre>
+ *     Example: airports with "lon" in any of their value fields
+ *     new FilterEntity(PropertiesEntityType.OBJECT_ID, Collections.singleton(
+ *             FilterSearch.of(EntityMetadata.of(Airport.class).getObjectTypeId(), "lon")));
+ * </pre>
+ */
+@Log4j2
+public final class FilterSearch {
+    public static final int TOKEN_LENGTH = 3;
+    private static final char ESCAPE = '\\';
+
+    private final BigInteger objectTypeId;
+    private final String text;
+    private final List<String> tokens;
+
+    private FilterSearch(BigInteger objectTypeId, String text) {
+        this.objectTypeId = objectTypeId;
+        this.text = text;
+        this.tokens = tokensOf(text);
+    }
+
+    /**
+     * @param objectTypeId type whose value fields are indexed
+     * @param text         searched text, must not be empty
+     */
+    public static FilterSearch of(BigInteger objectTypeId, String text) {
+        if (objectTypeId == null || text == null || text.trim().isEmpty()) {
+            String message = "Search needs an object type and a text that is not empty: " + objectTypeId + ", " + text;
+            IllegalArgumentException exception = new IllegalArgumentException(message);
+            log.error(message, exception);
+            throw exception;
+        }
+        return new FilterSearch(objectTypeId, text.trim().toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * @param column OBJECT_ID column the search is checked on
+     * @return condition of the search, its values are bound as {@link #getParameters()} returns them
+     */
+    public String toCondition(String column) {
+        String candidates = tokens.isEmpty()
+                ? "SELECT T.OBJECT_ID, T.ATTR_ID FROM " + SearchIndex.TABLE + " T " +
+                "WHERE T.OBJECT_TYPE_ID = ? AND T.TOKEN LIKE ? ESCAPE '" + ESCAPE + "'"
+                : "SELECT T.OBJECT_ID, T.ATTR_ID FROM " + SearchIndex.TABLE + " T " +
+                "WHERE T.OBJECT_TYPE_ID = ? AND " + new FilteringDescriptor().doInList("T.TOKEN", tokens.size()) +
+                " GROUP BY T.OBJECT_ID, T.ATTR_ID HAVING COUNT(*) = ?";
+        return column + " IN (SELECT S.OBJECT_ID FROM ATTRIBUTES S WHERE (S.OBJECT_ID, S.ATTR_ID) IN (" + candidates + ")" +
+                " AND LOWER(S.VALUE) LIKE ? ESCAPE '" + ESCAPE + "')";
+    }
+
+    public List<Object> getParameters() {
+        List<Object> parameters = new ArrayList<>();
+        parameters.add(objectTypeId);
+        if (tokens.isEmpty()) {
+            parameters.add(escape(text) + "%");
+        } else {
+            parameters.addAll(new FilteringDescriptor().padInList(tokens));
+            parameters.add(tokens.size());
+        }
+        parameters.add("%" + escape(text) + "%");
+        return parameters;
+    }
+
+    /**
+     * @return distinct trigrams of the text, empty if the text is shorter than a trigram
+     */
+    static List<String> tokensOf(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        for (int i = 0; i + TOKEN_LENGTH <= text.length(); i++) {
+            tokens.add(text.substring(i, i + TOKEN_LENGTH));
+        }
+        return new ArrayList<>(tokens);
+    }
+
+    private static String escape(String text) {
+        StringBuilder escaped = new StringBuilder();
+        for (char c : text.toCharArray()) {
+            if (c == '%' || c == '_' || c == ESCAPE) {
+                escaped.append(ESCAPE);
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "search '" + text + "' in type " + objectTypeId;
+    }
+}
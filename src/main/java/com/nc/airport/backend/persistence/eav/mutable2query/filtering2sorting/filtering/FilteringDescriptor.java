@@ -5,12 +5,18 @@ import lombok.extern.log4j.Log4j2;
 import org.springframework.stereotype.Component;
 
 import java.math.BigInteger;
-import java.util.List;
+import java.time.LocalDateTime;
+import java.util.*;
 
 @Log4j2
 @Component
 public class FilteringDescriptor {
 
+    /**
+     * Most values of one IN list, Oracle does not allow more
+     */
+    public static final int MAX_IN_LIST_SIZE = 1000;
+
     /**
      * Generate filtering query string from list of FilterEntities
      *
@@ -26,21 +32,7 @@ public class FilteringDescriptor {
             int countOfValues = entity.getValues().size();
             for (Object value :
                     entity.getValues()) {
-                if (value instanceof String) {
-                    queryBuilder.append("LOWER(")
-                            .append(entity.getType())
-                            .append(") LIKE LOWER(?)");
-                } else if (value instanceof BigInteger) {
-                    queryBuilder.append(entity.getType())
-                            .append(" = ?");
-                }
-
-                //FIXME if instanceof LocalDateTime ?
-
-                else {
-                    log.error("Filter entities can only have value of String, BigInteger or LocalDateTime. Type : {}", value.getClass());
-                    throw new BadDBRequestException("Illegal filter entity value", null);
-                }
+                appendValueCondition(queryBuilder, entity.getType(), value);
                 if (countOfValues != 1) {
                     queryBuilder.append(" OR ");
                 } else {
@@ -56,4 +48,250 @@ public class FilteringDescriptor {
         return queryBuilder.toString();
     }
 
+    /**
+     * Generate filtering conditions to be checked on OBJECTS O inside of the query, so objects are
+     * filtered before their attributes are joined. Filter of an attribute becomes EXISTS subquery on
+     * ATTRIBUTES or OBJREFERENCE, which Oracle can drive from the index of the attribute,
+     * filter of a property is checked on O as it is. Filters are OR-ed just like in {@link #doFiltering(List)}.
+     *
+     * @param filterEntities   list of FilterEntities must not be null
+     * @param attributeColumns column of ATTRIBUTES or OBJREFERENCE for every ATTR column that can be filtered,
+     *                         e.g. ATTR51 - VALUE, ATTR55 - REFERENCE
+     * @return filtering condition in parentheses, parameters have to be bound as
+     * {@link #addPushedDownParameters(List, List)} adds them
+     */
+    public String doPushedDownFiltering(List<FilterEntity> filterEntities, Map<String, String> attributeColumns) {
+        return appendPushedDownFilters(new StringBuilder("("), filterEntities, attributeColumns, " OR ")
+                .append(")").toString();
+    }
+
+    /**
+     * Same as {@link #doPushedDownFiltering(List, Map)}, but every filter has to match, e.g. flights
+     * from one of the airports AND to one of the airports AND departing on the day
+     *
+     * @param filterEntities   list of FilterEntities must not be null
+     * @param attributeColumns column of ATTRIBUTES or OBJREFERENCE for every ATTR column that can be filtered
+     * @return filtering condition in parentheses, parameters have to be bound as
+     * {@link #addPushedDownParameters(List, List)} adds them
+     */
+    public String doPushedDownConjunction(List<FilterEntity> filterEntities, Map<String, String> attributeColumns) {
+        return appendPushedDownFilters(new StringBuilder("("), filterEntities, attributeColumns, " AND ")
+                .append(")").toString();
+    }
+
+    private StringBuilder appendPushedDownFilters(StringBuilder queryBuilder,
+                                                  List<FilterEntity> filterEntities,
+                                                  Map<String, String> attributeColumns,
+                                                  String operator) {
+        for (int i = 0; i < filterEntities.size(); i++) {
+            FilterEntity entity = filterEntities.get(i);
+            if (i > 0) {
+                queryBuilder.append(operator);
+            }
+
+            String column = entity.getType();
+            if (isAttribute(entity)) {
+                String attrColumn = attributeColumns.get(entity.getType());
+                if (attrColumn == null) {
+                    String message = "Cannot filter by " + entity.getType() + ", it is not an attribute of the entity";
+                    BadDBRequestException exception = new BadDBRequestException(message, null);
+                    log.error(message, exception);
+                    throw exception;
+                }
+                queryBuilder.append("EXISTS (SELECT 1 FROM ")
+                        .append("REFERENCE".equals(attrColumn) ? "OBJREFERENCE" : "ATTRIBUTES")
+                        .append(" F WHERE F.OBJECT_ID = O.OBJECT_ID AND F.ATTR_ID = ? AND ");
+                column = "F." + attrColumn;
+            }
+
+            appendValueConditions(queryBuilder, column, entity.getValues());
+            if (isAttribute(entity)) {
+                queryBuilder.append(")");
+            }
+        }
+        return queryBuilder;
+    }
+
+    /**
+     * Same as {@link #doPushedDownFiltering(List, Map)} for a flat view, where every ATTR column
+     * is a column of O itself, so attributes are filtered just like properties
+     *
+     * @param filterEntities list of FilterEntities must not be null
+     * @return filtering condition in parentheses, parameters have to be bound as
+     * {@link #addFlatParameters(List, List)} adds them
+     */
+    public String doFlatFiltering(List<FilterEntity> filterEntities) {
+        StringBuilder queryBuilder = new StringBuilder();
+        queryBuilder.append("(");
+        for (int i = 0; i < filterEntities.size(); i++) {
+            FilterEntity entity = filterEntities.get(i);
+            if (i > 0) {
+                queryBuilder.append(" OR ");
+            }
+            String column = isAttribute(entity) ? "O." + entity.getType() : entity.getType();
+            appendValueConditions(queryBuilder, column, entity.getValues());
+        }
+        return queryBuilder.append(")").toString();
+    }
+
+    /**
+     * Adds parameters of the filters in the order the query of {@link #doFlatFiltering(List)} uses them
+     */
+    public void addFlatParameters(List<Object> parameters, List<FilterEntity> filterEntities) {
+        for (FilterEntity entity : filterEntities) {
+            addValueParameters(parameters, entity.getValues());
+        }
+    }
+
+    /**
+     * Adds parameters of the filters in the order the query of {@link #doPushedDownFiltering(List, Map)} uses them
+     */
+    public void addPushedDownParameters(List<Object> parameters, List<FilterEntity> filterEntities) {
+        for (FilterEntity entity : filterEntities) {
+            if (isAttribute(entity)) {
+                parameters.add(new BigInteger(entity.getType().substring("ATTR".length())));
+            }
+            addValueParameters(parameters, entity.getValues());
+        }
+    }
+
+    /*
+    Range binds its bounds, search binds its tokens and text, date is bound as a timestamp
+     */
+    private void addValueParameters(List<Object> parameters, Set<Object> values) {
+        if (isIdSet(values)) {
+            parameters.addAll(padInList(values));
+            return;
+        }
+        for (Object value : values) {
+            if (value instanceof FilterRange) {
+                parameters.addAll(((FilterRange) value).getParameters());
+            } else if (value instanceof FilterSearch) {
+                parameters.addAll(((FilterSearch) value).getParameters());
+            } else {
+                parameters.add(FilterRange.toParameter(value));
+            }
+        }
+    }
+
+    /**
+     * Generate condition of the column being one of the values, the values have to be bound
+     * as {@link #padInList(Collection)} returns them
+     *
+     * @param countOfValues number of the values, must be positive
+     */
+    public String doInList(String column, int countOfValues) {
+        StringBuilder queryBuilder = new StringBuilder("(");
+        appendInList(queryBuilder, column, countOfValues);
+        return queryBuilder.append(")").toString();
+    }
+
+    /**
+     * @return values of {@link #doInList(String, int)} padded to the size of its IN lists by repeating the last one
+     */
+    public List<Object> padInList(Collection<?> values) {
+        List<Object> padded = new ArrayList<>(values);
+        Object last = padded.get(padded.size() - 1);
+        while (padded.size() < paddedSize(values.size())) {
+            padded.add(last);
+        }
+        return padded;
+    }
+
+    /**
+     * Several ids of one filter are checked with IN lists instead of OR-ed conditions
+     */
+    public static boolean isIdSet(Set<Object> values) {
+        if (values.size() < 2) {
+            return false;
+        }
+        for (Object value : values) {
+            if (!(value instanceof BigInteger)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * IN list is padded to the next power of two, or to {@link #MAX_IN_LIST_SIZE}, so the statement
+     * changes only when the number of ids crosses one of a few sizes and stays in statement caches.
+     * More ids take several lists, all of them full but the last one
+     *
+     * @return number of parameters of an IN list of the given number of values
+     */
+    public static int paddedSize(int countOfValues) {
+        int fullLists = (countOfValues - 1) / MAX_IN_LIST_SIZE;
+        int rest = countOfValues - fullLists * MAX_IN_LIST_SIZE;
+        int size = 1;
+        while (size < rest) {
+            size *= 2;
+        }
+        return fullLists * MAX_IN_LIST_SIZE + Math.min(size, MAX_IN_LIST_SIZE);
+    }
+
+    private void appendInList(StringBuilder queryBuilder, String column, int countOfValues) {
+        int countOfParameters = paddedSize(countOfValues);
+        for (int from = 0; from < countOfParameters; from += MAX_IN_LIST_SIZE) {
+            if (from > 0) {
+                queryBuilder.append(" OR ");
+            }
+            queryBuilder.append(column).append(" IN (");
+            int to = Math.min(from + MAX_IN_LIST_SIZE, countOfParameters);
+            for (int i = from; i < to; i++) {
+                queryBuilder.append(i > from ? ", ?" : "?");
+            }
+            queryBuilder.append(")");
+        }
+    }
+
+    private boolean isAttribute(FilterEntity entity) {
+        return entity.getType().startsWith("ATTR");
+    }
+
+    /*
+    Values of one filter are OR-ed, ids are checked with IN lists, filter without values matches nothing
+     */
+    private void appendValueConditions(StringBuilder queryBuilder, String column, Set<Object> values) {
+        queryBuilder.append("(");
+        if (values.isEmpty()) {
+            queryBuilder.append("1 = 0");
+        } else if (isIdSet(values)) {
+            appendInList(queryBuilder, column, values.size());
+        } else {
+            int countOfValues = 0;
+            for (Object value : values) {
+                if (countOfValues++ > 0) {
+                    queryBuilder.append(" OR ");
+                }
+                appendValueCondition(queryBuilder, column, value);
+            }
+        }
+        queryBuilder.append(")");
+    }
+
+    private void appendValueCondition(StringBuilder queryBuilder, String column, Object value) {
+        if (value instanceof String) {
+            queryBuilder.append("LOWER(")
+                    .append(column)
+                    .append(") LIKE LOWER(?)");
+        } else if (value instanceof BigInteger || value instanceof LocalDateTime) {
+            queryBuilder.append(column)
+                    .append(" = ?");
+        } else if (value instanceof FilterRange) {
+            queryBuilder.append("(")
+                    .append(((FilterRange) value).toCondition(column))
+                    .append(")");
+        } else if (value instanceof FilterSearch) {
+            queryBuilder.append("(")
+                    .append(((FilterSearch) value).toCondition(column))
+                    .append(")");
+        } else {
+            log.error("Filter entities can only have value of String, BigInteger, LocalDateTime, FilterRange " +
+                            "or FilterSearch. Type : {}",
+                    value.getClass());
+            throw new BadDBRequestException("Illegal filter entity value", null);
+        }
+    }
+
 }
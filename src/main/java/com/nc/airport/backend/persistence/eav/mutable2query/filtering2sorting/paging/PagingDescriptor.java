@@ -1,7 +1,13 @@
 package com.nc.airport.backend.persistence.eav.mutable2query.filtering2sorting.paging;
 
+import com.nc.airport.backend.persistence.eav.exceptions.BadDBRequestException;
+import lombok.extern.log4j.Log4j2;
 import org.springframework.stereotype.Component;
 
+import java.math.BigInteger;
+import java.util.List;
+
+@Log4j2
 @Component
 public class PagingDescriptor {
 
@@ -25,4 +31,135 @@ public class PagingDescriptor {
         return queryBuilder.toString();
     }
 
+    /**
+     * Wrap select query into rownum for getting paging with bounds left as parameters,
+     * so the same query text can be used for any page
+     *
+     * @param query select query for wrapping
+     * @return query sting wrapped into rownum, end and start positions have to be bound in this order
+     */
+    public String getParameterizedPaging(StringBuilder query) {
+        StringBuilder queryBuilder = new StringBuilder();
+        queryBuilder.append("SELECT * FROM ( SELECT a.*, rownum rnum FROM (")
+                .append(query)
+                .append(") a WHERE rownum <= ?) WHERE rnum >= ?");
+
+        return queryBuilder.toString();
+    }
+
+    /**
+     * Wrap select query into keyset paging: rows are ordered by given columns and OBJECT_ID, NULLs last,
+     * and only rows after the last row of the previous page are taken. The page does not depend
+     * on how many rows were before it, so deep pages cost as much as the first one.
+     *
+     * @param query   select query for wrapping, it has to select given columns and OBJECT_ID
+     * @param columns sorted columns of the query
+     * @param orders  order of every column, true or null for ascending
+     * @param lastKey values of the columns in the last row of the previous page, null for the first page
+     * @return query string, parameters have to be bound as {@link #addKeysetParameters(List, List, BigInteger)} adds them
+     * followed by the page size
+     */
+    public String getParameterizedKeysetPaging(StringBuilder query,
+                                               List<String> columns,
+                                               List<Boolean> orders,
+                                               List<Object> lastKey) {
+        StringBuilder queryBuilder = new StringBuilder();
+        queryBuilder.append("SELECT * FROM ( SELECT * FROM (")
+                .append(query)
+                .append(")");
+        if (lastKey != null) {
+            queryBuilder.append(" WHERE ");
+            appendSeekCondition(queryBuilder, columns, orders, lastKey, 0);
+        }
+        queryBuilder.append(" ORDER BY ");
+        for (int i = 0; i < columns.size(); i++) {
+            queryBuilder.append(columns.get(i))
+                    .append(orders.get(i) == null || orders.get(i) ? " ASC" : " DESC")
+                    .append(" NULLS LAST, ");
+        }
+        queryBuilder.append("OBJECT_ID ASC) WHERE rownum <= ?");
+
+        return queryBuilder.toString();
+    }
+
+    /**
+     * Checks that the last key fits the sorted columns, as it may come from a client that changed the sorting
+     * between pages or the key itself
+     *
+     * @param types        type of the values of every sorted column
+     * @param lastKey      values of the columns in the last row of the previous page, null for the first page
+     * @param lastObjectId OBJECT_ID of the last row of the previous page
+     * @throws BadDBRequestException if the key has another number of values than there are columns,
+     *                               a value of another type or no OBJECT_ID
+     */
+    public void checkLastKey(List<Class<?>> types, List<Object> lastKey, BigInteger lastObjectId) {
+        if (lastKey == null) {
+            return;
+        }
+        String message = null;
+        if (lastObjectId == null) {
+            message = "Last key of keyset paging has no OBJECT_ID";
+        } else if (lastKey.size() != types.size()) {
+            message = "Last key of keyset paging has " + lastKey.size() + " values for "
+                    + types.size() + " sorted columns";
+        } else {
+            for (int i = 0; i < types.size(); i++) {
+                Object value = lastKey.get(i);
+                if (value != null && !types.get(i).isInstance(value)) {
+                    message = "Last key of keyset paging has " + value.getClass().getSimpleName()
+                            + " value for sorted column " + (i + 1) + " of " + types.get(i).getSimpleName() + " values";
+                    break;
+                }
+            }
+        }
+        if (message != null) {
+            BadDBRequestException exception = new BadDBRequestException(message, null);
+            log.error(message, exception);
+            throw exception;
+        }
+    }
+
+    /**
+     * Adds parameters of the seek condition in the order the query of
+     * {@link #getParameterizedKeysetPaging(StringBuilder, List, List, List)} uses them
+     */
+    public void addKeysetParameters(List<Object> parameters, List<Object> lastKey, BigInteger lastObjectId) {
+        if (lastKey == null) {
+            return;
+        }
+        for (Object value : lastKey) {
+            if (value != null) {
+                parameters.add(value);
+                parameters.add(value);
+            }
+        }
+        parameters.add(lastObjectId);
+    }
+
+    /*
+    Row is after the last one if its first column is further in the order (NULLs are the furthest),
+    or if the column is the same and the rest of the columns are after it
+     */
+    private void appendSeekCondition(StringBuilder queryBuilder,
+                                     List<String> columns,
+                                     List<Boolean> orders,
+                                     List<Object> lastKey,
+                                     int i) {
+        if (i == columns.size()) {
+            queryBuilder.append("OBJECT_ID > ?");
+            return;
+        }
+
+        String column = columns.get(i);
+        if (lastKey.get(i) == null) {
+            queryBuilder.append("(").append(column).append(" IS NULL AND ");
+        } else {
+            queryBuilder.append("(").append(column)
+                    .append(orders.get(i) == null || orders.get(i) ? " > ?" : " < ?")
+                    .append(" OR ").append(column).append(" IS NULL")
+                    .append(" OR (").append(column).append(" = ? AND ");
+        }
+        appendSeekCondition(queryBuilder, columns, orders, lastKey, i + 1);
+        queryBuilder.append(lastKey.get(i) == null ? ")" : "))");
+    }
 }
@@ -2,6 +2,7 @@ package com.nc.airport.backend.persistence.eav.mutable2query.filtering2sorting.s
 
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Component
@@ -38,4 +39,22 @@ public class SortingDescriptor {
         return queryBuilder.toString();
     }
 
+    /**
+     * Same as {@link #doSorting(List)}, but every sorted column with its order is a separate item
+     *
+     * @param sortEntities list of sortEntities must not be null
+     * @return items of ORDER BY
+     */
+    public List<String> getOrderItems(List<SortEntity> sortEntities) {
+        List<String> items = new ArrayList<>();
+        for (SortEntity entity : sortEntities) {
+            if (entity.getOrder() == null) {
+                items.add(entity.getType());
+            } else {
+                items.add(entity.getType() + (entity.getOrder() ? " ASC" : " DESC"));
+            }
+        }
+        return items;
+    }
+
 }
@@ -9,6 +9,8 @@ import javax.validation.constraints.NotNull;
 import java.math.BigInteger;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * Interface for generic CRUD operations on a repository for a specific type.
@@ -55,7 +57,8 @@ public interface EavCrudRepository<T extends BaseEntity> {
     Optional<T> findById(@NotNull BigInteger objectId, @NotNull Class<T> entityClass);
 
     /**
-     * Returns all instances with the given object_ids.
+     * Returns all instances with the given object_ids, fetched in a few batched queries
+     * and ordered as the ids are. Ids of missing objects are skipped.
      *
      * @param objectIds   ids instances of which are searched for. All the object_ids must be of a single type
      * @param entityClass specifies the type of instances
@@ -73,6 +76,20 @@ public interface EavCrudRepository<T extends BaseEntity> {
      */
     List<T> findSlice(@NotNull Class<T> entityClass, Page page);
 
+    /**
+     * Returns a page of entities of given entityClass that goes right after the previous one
+     * in the order of sortBy and object_id. Unlike {@link #findSlice(Class, Page, List, List)}
+     * it does not skip rows by their number, so every page costs the same however deep it is.
+     *
+     * @param entityClass search criteria
+     * @param page        first page or the next page of the previous slice
+     * @param sortBy      sorting by fields or properties of entityClass, may be empty
+     * @param filterBy    filtering by fields of entityClass, may be empty
+     * @return entities of the page and the page after them
+     */
+    KeysetSlice<T> findSlice(@NotNull Class<T> entityClass, @NotNull KeysetPage page,
+                             List<SortEntity> sortBy, List<FilterEntity> filterBy);
+
     /**
      * Returns list of entities that are children of given entity
      *
@@ -98,6 +115,41 @@ public interface EavCrudRepository<T extends BaseEntity> {
                       List<SortEntity> sortBy,
                       List<FilterEntity> filterBy);
 
+    /**
+     * Returns all instances of given class, filtered and sortered, as a stream that reads rows
+     * while it is consumed, so the memory it takes does not grow with the number of entities.
+     * The stream holds a connection and a cursor until it is closed, use it in try-with-resources
+     *
+     * @param entityClass search criteria
+     * @param sortBy      sorting criteria
+     * @param filterBy    filtering criteria
+     * @return stream of entities that are found and ordered with criterias, it has to be closed
+     */
+    Stream<T> streamAll(@NotNull Class<T> entityClass,
+                        List<SortEntity> sortBy,
+                        List<FilterEntity> filterBy);
+
+    /**
+     * Same as {@link #streamAll(Class, List, List)} with the number of rows read in one round-trip
+     *
+     * @param fetchSize number of rows read in one round-trip, must be positive
+     */
+    Stream<T> streamAll(@NotNull Class<T> entityClass,
+                        List<SortEntity> sortBy,
+                        List<FilterEntity> filterBy,
+                        int fetchSize);
+
+    /**
+     * Returns filters of entities of given class any field of which contains the text, ignoring case,
+     * to be passed to findSlice, count and the like. Value fields of a class annotated with Searchable are
+     * searched with the search index if it is available, otherwise every field is checked with LIKE
+     *
+     * @param entityClass searched class, it does not have to be the class of the repository
+     * @param text        searched text, no filters are made of a blank one
+     * @return filters, one of which has to match
+     */
+    List<FilterEntity> makeSearchFilters(@NotNull Class<? extends BaseEntity> entityClass, String text);
+
     /**
      * Returns all children of given entity that are within row range, filtered and sortered.
      * Consider found instances form a list (this is where rows are from)
@@ -147,6 +199,7 @@ public interface EavCrudRepository<T extends BaseEntity> {
 
     /**
      * Returns the number of entities available, filtered by criteria. Entity is specified by its class.
+     * Only the filtered attributes are joined to count them.
      *
      * @param entityClass class that specifies what object is being searched. Must be not null
      * @param filterBy    filtering criteria
@@ -154,6 +207,17 @@ public interface EavCrudRepository<T extends BaseEntity> {
      */
     BigInteger count(@NotNull Class<T> entityClass, List<FilterEntity> filterBy);
 
+    /**
+     * Returns the number of entities available, filtered by criteria, but does not count further than the limit.
+     * Lets UI show "limit+" instead of waiting for the exact number of a broad search.
+     *
+     * @param entityClass class that specifies what object is being searched. Must be not null
+     * @param filterBy    filtering criteria
+     * @param limit       number of entities that is enough to know about
+     * @return the number of entities, limit + 1 means that there are more than limit of them
+     */
+    BigInteger countUpTo(@NotNull Class<T> entityClass, List<FilterEntity> filterBy, int limit);
+
     /**
      * Returns whether an entity with the given id exists.
      *
@@ -165,8 +229,52 @@ public interface EavCrudRepository<T extends BaseEntity> {
 
     List<T> findSliceOfReference(@NotNull BigInteger objectId, @NotNull Class<T> entityClass);
 
+    /**
+     * Finds all entities matching every one of the filters, unlike findSlice, where one matching filter is enough.
+     * Filters can be of any field: reference ids, list value ids, ranges of dates and numbers and so on
+     *
+     * @param filterEntities filters that all have to match, must not be null
+     */
     List<T> findSliceOfSeveralReferences(@NotNull List<FilterEntity> filterEntities, @NotNull Class<T> entityClass);
 
     T findEntityByReference(@NotNull BigInteger objectId, @NotNull Class<T> entityClass);
 
+    /**
+     * Loads entities referenced by given ones, level by level as steps of the prefetch go.
+     * Every step is a single batched findAll for all the entities loaded so far,
+     * so the number of queries depends on the number of steps only, not on the number of entities.
+     *
+     * @param entities entities to start from, they are included in the result
+     * @param prefetch references to be followed, must not be null
+     * @return given entities together with all the loaded ones
+     */
+    LoadedEntities prefetch(@NotNull Iterable<? extends BaseEntity> entities, @NotNull Prefetch prefetch);
+
+    /**
+     * Same as {@link #findSlice(Class, Page, List, List)}, but entities referenced by the found ones are
+     * LEFT JOINed to them in the same query as steps of the prefetch go, and the total number of entities
+     * matching the filters comes with them. Every step has to start from entityClass or from the class
+     * of an earlier step and its reference field must hold a single id.
+     *
+     * @param entityClass type of the found entities
+     * @param page        zero-based
+     * @param sortBy      sorting by columns of entityClass
+     * @param filterBy    filtering by columns of entityClass
+     * @param joins       references to be joined, must not be null
+     * @return found entities with all the joined ones and total number of found entities
+     * @throws IllegalArgumentException if some step can not be joined
+     */
+    JoinedSlice<T> findJoinedSlice(@NotNull Class<T> entityClass, Page page,
+                                   List<SortEntity> sortBy, List<FilterEntity> filterBy,
+                                   @NotNull Prefetch joins);
+
+    /**
+     * Runs given work as a single transaction. All the repository calls made inside of it
+     * are committed together, or rolled back together if the work throws.
+     *
+     * @param work repository calls to be grouped, must not be null
+     * @return result of the work
+     */
+    <R> R inTransaction(@NotNull Supplier<R> work);
+
 }
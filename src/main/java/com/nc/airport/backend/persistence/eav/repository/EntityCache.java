@@ -0,0 +1,224 @@
+package com.nc.airport.backend.persistence.eav.repository;
+
+import com.nc.airport.backend.model.BaseEntity;
+import com.nc.airport.backend.persistence.eav.Mutable;
+import com.nc.airport.backend.persistence.eav.annotations.CachePolicy;
+import com.nc.airport.backend.persistence.eav.entity2mutable.util.EntityMetadata;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * In-memory cache of objects read by the repository, for entity classes annotated with {@link CachePolicy}.
+ * <p>
+ * Mutables are kept instead of entities, so every caller gets its own entity built from the cached state
+ * and can change it freely. Size, time to live, eviction and what happens on writes are taken from
+ * the annotation of the class. Writes done inside of a transaction reach the cache after it is committed,
+ * and objects read inside of a transaction are not kept, as the transaction may still be rolled back.
+ * The whole cache can be turned off with eav.cache.enabled.
+ */
+@Log4j2
+@Component
+public class EntityCache {
+    private final Map<Class<?>, Optional<TypeCache>> caches = new ConcurrentHashMap<>();
+    private final boolean enabled;
+    private final LongSupplier clock;
+
+    @Autowired
+    public EntityCache(@Value("${eav.cache.enabled:true}") boolean enabled) {
+        this(enabled, System::currentTimeMillis);
+    }
+
+    EntityCache(boolean enabled, LongSupplier clock) {
+        this.enabled = enabled;
+        this.clock = clock;
+    }
+
+    public boolean isCached(Class<?> entityClass) {
+        return cacheOf(entityClass) != null;
+    }
+
+    /**
+     * @return cached state of the object or null if it is not cached, expired or its class is not cached at all
+     */
+    public Mutable get(Class<?> entityClass, BigInteger objectId) {
+        TypeCache cache = cacheOf(entityClass);
+        return cache == null ? null : cache.get(objectId);
+    }
+
+    /**
+     * Keeps the state read from the database. Does nothing if the class is not cached
+     * or the state was read inside of a transaction
+     */
+    public void put(Class<?> entityClass, Mutable mutable) {
+        TypeCache cache = cacheOf(entityClass);
+        if (cache != null && mutable != null && mutable.getObjectId() != null
+                && !TransactionSynchronizationManager.isActualTransactionActive()) {
+            cache.put(mutable);
+        }
+    }
+
+    /**
+     * Evicts the written object. If the mode of the class is WRITE_THROUGH, its state is read again
+     * after the commit and cached, as the written mutable lacks the attributes that were not written
+     *
+     * @param reader reads the committed state of the object, null if it was not found
+     */
+    public void written(Class<?> entityClass, BigInteger objectId, Supplier<Mutable> reader) {
+        TypeCache cache = cacheOf(entityClass);
+        if (cache == null || objectId == null) {
+            return;
+        }
+        afterCommit(() -> {
+            cache.remove(objectId);
+            if (cache.policy.mode() == CachePolicy.Mode.WRITE_THROUGH) {
+                try {
+                    Mutable committed = reader.get();
+                    if (committed != null) {
+                        cache.put(committed);
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("Could not read written object " + objectId + " again, it is left out of the cache", e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Removes the object from caches of all classes, as only its id may be known
+     */
+    public void evict(BigInteger objectId) {
+        afterCommit(() -> {
+            for (Optional<TypeCache> cache : caches.values()) {
+                cache.ifPresent(found -> found.remove(objectId));
+            }
+        });
+    }
+
+    public long getHits(Class<?> entityClass) {
+        TypeCache cache = cacheOf(entityClass);
+        return cache == null ? 0 : cache.hits.get();
+    }
+
+    public long getMisses(Class<?> entityClass) {
+        TypeCache cache = cacheOf(entityClass);
+        return cache == null ? 0 : cache.misses.get();
+    }
+
+    @SuppressWarnings("unchecked")
+    private TypeCache cacheOf(Class<?> entityClass) {
+        if (!enabled || !BaseEntity.class.isAssignableFrom(entityClass)) {
+            return null;
+        }
+        Optional<TypeCache> cache = caches.get(entityClass);
+        if (cache == null) {
+            cache = caches.computeIfAbsent(entityClass, clazz -> {
+                CachePolicy policy = EntityMetadata.of((Class<? extends BaseEntity>) clazz).getCachePolicy();
+                if (policy == null) {
+                    return Optional.empty();
+                }
+                log.info("Caching {}: at most {} objects for {} s, {} eviction, {}", clazz.getSimpleName(),
+                        policy.maxEntries(), policy.ttlSeconds(), policy.eviction(), policy.mode());
+                return Optional.of(new TypeCache(policy));
+            });
+        }
+        return cache.orElse(null);
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private final class TypeCache {
+        private final CachePolicy policy;
+        private final long ttlMillis;
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private final LinkedHashMap<BigInteger, Entry> entries;
+
+        private TypeCache(CachePolicy policy) {
+            this.policy = policy;
+            this.ttlMillis = TimeUnit.SECONDS.toMillis(policy.ttlSeconds());
+            this.entries = new LinkedHashMap<>(16, 0.75f, policy.eviction() == CachePolicy.Eviction.LRU);
+        }
+
+        synchronized Mutable get(BigInteger objectId) {
+            Entry entry = entries.get(objectId);
+            if (entry != null && entry.expiresAt <= clock.getAsLong()) {
+                entries.remove(objectId);
+                entry = null;
+            }
+            if (entry == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            hits.incrementAndGet();
+            entry.uses++;
+            return entry.mutable;
+        }
+
+        synchronized void put(Mutable mutable) {
+            if (policy.maxEntries() < 1) {
+                return;
+            }
+            if (!entries.containsKey(mutable.getObjectId()) && entries.size() >= policy.maxEntries()) {
+                entries.remove(eldest());
+            }
+            entries.put(mutable.getObjectId(), new Entry(mutable, clock.getAsLong() + ttlMillis));
+        }
+
+        synchronized void remove(BigInteger objectId) {
+            entries.remove(objectId);
+        }
+
+        /*
+        For LRU the map is in access order, so the first key is the least recently used one.
+        For LFU it is in insertion order and the first of the least used keys is taken
+         */
+        private BigInteger eldest() {
+            BigInteger eldest = null;
+            long fewestUses = Long.MAX_VALUE;
+            for (Map.Entry<BigInteger, Entry> entry : entries.entrySet()) {
+                if (policy.eviction() == CachePolicy.Eviction.LRU) {
+                    return entry.getKey();
+                }
+                if (entry.getValue().uses < fewestUses) {
+                    eldest = entry.getKey();
+                    fewestUses = entry.getValue().uses;
+                }
+            }
+            return eldest;
+        }
+    }
+
+    private static final class Entry {
+        private final Mutable mutable;
+        private final long expiresAt;
+        private long uses;
+
+        private Entry(Mutable mutable, long expiresAt) {
+            this.mutable = mutable;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
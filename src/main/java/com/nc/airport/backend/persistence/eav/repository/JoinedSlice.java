@@ -0,0 +1,36 @@
+package com.nc.airport.backend.persistence.eav.repository;
+
+import com.nc.airport.backend.model.BaseEntity;
+
+import java.util.List;
+
+/**
+ * Slice of entities found by {@link EavCrudRepository#findJoinedSlice(Class, Page, List, List, Prefetch)}
+ * together with the entities they reference and the total number of entities matching the filters.
+ */
+public class JoinedSlice<T extends BaseEntity> {
+    private final List<T> entities;
+    private final LoadedEntities loaded;
+    private final int total;
+
+    public JoinedSlice(List<T> entities, LoadedEntities loaded, int total) {
+        this.entities = entities;
+        this.loaded = loaded;
+        this.total = total;
+    }
+
+    public List<T> getEntities() {
+        return entities;
+    }
+
+    /**
+     * @return entities of the slice and all the referenced entities
+     */
+    public LoadedEntities getLoaded() {
+        return loaded;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+}
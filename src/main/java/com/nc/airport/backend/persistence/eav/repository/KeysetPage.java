@@ -0,0 +1,153 @@
+package com.nc.airport.backend.persistence.eav.repository;
+
+import lombok.extern.log4j.Log4j2;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Page of keyset paging. Instead of the number of the page it keeps the sort key and object_id
+ * of the last entity of the previous page, so the next page is found right after it
+ * however deep it is.<br>
+ * Size cannot be less than 1. If it is, it is set to 10. Size cannot be more than {@link #MAX_SIZE} either,
+ * as it may come from a client with the token. If it is, it is set to MAX_SIZE.
+ * <p>
+ * The page can be passed to a client and back as a token, see {@link #toToken()} and {@link #fromToken(String)}.
+ * The same sorting and filtering have to be used with every page of a token.
+ */
+@Log4j2
+public class KeysetPage {
+    public static final int MAX_SIZE = 100;
+    private static final String SEPARATOR = ".";
+
+    private final int size;
+    private final List<Object> lastKey;
+    private final BigInteger lastObjectId;
+
+    private KeysetPage(int size, List<Object> lastKey, BigInteger lastObjectId) {
+        if (size < 1) {
+            log.warn("Tried to set page size less than 1 (" + size + "). Set to 10.");
+            size = 10;
+        } else if (size > MAX_SIZE) {
+            log.warn("Tried to set page size more than " + MAX_SIZE + " (" + size + "). Set to " + MAX_SIZE + ".");
+            size = MAX_SIZE;
+        }
+        this.size = size;
+        this.lastKey = lastKey == null ? null : Collections.unmodifiableList(new ArrayList<>(lastKey));
+        this.lastObjectId = lastObjectId;
+    }
+
+    public static KeysetPage first(int size) {
+        return new KeysetPage(size, null, null);
+    }
+
+    /**
+     * @param lastKey      values of sorted columns of the last entity of the previous page,
+     *                     String, BigInteger, Timestamp or null each
+     * @param lastObjectId object_id of the last entity of the previous page
+     */
+    public static KeysetPage after(int size, List<Object> lastKey, BigInteger lastObjectId) {
+        return new KeysetPage(size, lastKey, lastObjectId);
+    }
+
+    /**
+     * @param token string made by {@link #toToken()}
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public static KeysetPage fromToken(String token) {
+        try {
+            String[] parts = token.split("\\" + SEPARATOR, -1);
+            int size = Integer.parseInt(parts[0]);
+            if (parts.length == 1) {
+                return first(size);
+            }
+
+            List<Object> lastKey = new ArrayList<>();
+            for (int i = 2; i < parts.length; i++) {
+                lastKey.add(decode(parts[i]));
+            }
+            return after(size, lastKey, new BigInteger(parts[1]));
+        } catch (RuntimeException e) {
+            String message = "Malformed page token " + token;
+            IllegalArgumentException exception = new IllegalArgumentException(message, e);
+            log.error(message, exception);
+            throw exception;
+        }
+    }
+
+    public String toToken() {
+        StringBuilder token = new StringBuilder().append(size);
+        if (isFirst()) {
+            return token.toString();
+        }
+
+        token.append(SEPARATOR).append(lastObjectId);
+        for (Object value : lastKey) {
+            token.append(SEPARATOR).append(encode(value));
+        }
+        return token.toString();
+    }
+
+    public boolean isFirst() {
+        return lastKey == null;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return values of sorted columns of the last entity of the previous page, null for the first page
+     */
+    public List<Object> getLastKey() {
+        return lastKey;
+    }
+
+    public BigInteger getLastObjectId() {
+        return lastObjectId;
+    }
+
+    /*
+    Every value is its type letter followed by its string form in Base64, so it never contains the separator
+     */
+    private static String encode(Object value) {
+        String type;
+        String string;
+        if (value == null) {
+            return "N";
+        } else if (value instanceof BigInteger) {
+            type = "I";
+            string = value.toString();
+        } else if (value instanceof Timestamp) {
+            type = "D";
+            string = ((Timestamp) value).toLocalDateTime().toString();
+        } else {
+            type = "S";
+            string = value.toString();
+        }
+        return type + Base64.getUrlEncoder().withoutPadding().encodeToString(string.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Object decode(String part) {
+        if ("N".equals(part)) {
+            return null;
+        }
+        String string = new String(Base64.getUrlDecoder().decode(part.substring(1)), StandardCharsets.UTF_8);
+        switch (part.charAt(0)) {
+            case 'I':
+                return new BigInteger(string);
+            case 'D':
+                return Timestamp.valueOf(LocalDateTime.parse(string));
+            case 'S':
+                return string;
+            default:
+                throw new IllegalArgumentException("Unknown value type " + part.charAt(0));
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.nc.airport.backend.persistence.eav.repository;
+
+import com.nc.airport.backend.model.BaseEntity;
+
+import java.util.List;
+
+/**
+ * Entities of a {@link KeysetPage} and the page that follows them
+ */
+public class KeysetSlice<T extends BaseEntity> {
+    private final List<T> entities;
+    private final KeysetPage nextPage;
+
+    public KeysetSlice(List<T> entities, KeysetPage nextPage) {
+        this.entities = entities;
+        this.nextPage = nextPage;
+    }
+
+    public List<T> getEntities() {
+        return entities;
+    }
+
+    /**
+     * @return page after the last entity, null if this slice is the last one
+     */
+    public KeysetPage getNextPage() {
+        return nextPage;
+    }
+
+    public boolean hasNext() {
+        return nextPage != null;
+    }
+}
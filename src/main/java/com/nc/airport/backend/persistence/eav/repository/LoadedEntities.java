@@ -0,0 +1,52 @@
+package com.nc.airport.backend.persistence.eav.repository;
+
+import com.nc.airport.backend.model.BaseEntity;
+
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * Entities loaded by {@link EavCrudRepository#prefetch(Iterable, Prefetch)}, grouped by class and object id.
+ */
+public class LoadedEntities {
+    private final Map<Class<? extends BaseEntity>, Map<BigInteger, BaseEntity>> entities = new HashMap<>();
+
+    public void addAll(Iterable<? extends BaseEntity> loaded) {
+        for (BaseEntity entity : loaded) {
+            if (entity != null && entity.getObjectId() != null) {
+                entities.computeIfAbsent(entity.getClass(), clazz -> new LinkedHashMap<>())
+                        .put(entity.getObjectId(), entity);
+            }
+        }
+    }
+
+    public boolean contains(Class<? extends BaseEntity> entityClass, BigInteger objectId) {
+        Map<BigInteger, BaseEntity> loaded = entities.get(entityClass);
+        return loaded != null && loaded.containsKey(objectId);
+    }
+
+    /**
+     * @return loaded entity or empty if it was not found or the id is null
+     */
+    public <E extends BaseEntity> Optional<E> get(Class<E> entityClass, BigInteger objectId) {
+        Map<BigInteger, BaseEntity> loaded = entities.get(entityClass);
+        if (loaded == null || objectId == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(entityClass.cast(loaded.get(objectId)));
+    }
+
+    /**
+     * @return all loaded entities of the class in the order they were loaded
+     */
+    public <E extends BaseEntity> List<E> getAll(Class<E> entityClass) {
+        List<E> all = new ArrayList<>();
+        Map<BigInteger, BaseEntity> loaded = entities.get(entityClass);
+        if (loaded != null) {
+            for (BaseEntity entity : loaded.values()) {
+                all.add(entityClass.cast(entity));
+            }
+        }
+        return all;
+    }
+}
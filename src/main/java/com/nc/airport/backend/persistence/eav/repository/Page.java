@@ -2,6 +2,8 @@ package com.nc.airport.backend.persistence.eav.repository;
 
 import lombok.extern.log4j.Log4j2;
 
+import java.math.BigInteger;
+
 /**
  * Page is zero-based. If page is less than 0 it is set to 0<br>
  * Size cannot be 0. If size is 0 it is set to 10.<br>
@@ -55,6 +57,18 @@ public class Page {
         return size;
     }
 
+    /**
+     * @param totalItems number of items in all pages, as returned by count
+     * @return number of pages of this size needed for all the items, at least 1
+     */
+    public BigInteger getCountOfPages(BigInteger totalItems) {
+        if (totalItems.signum() == 0) {
+            return BigInteger.ONE;
+        }
+        BigInteger[] pages = totalItems.divideAndRemainder(BigInteger.valueOf(size));
+        return pages[1].signum() == 0 ? pages[0] : pages[0].add(BigInteger.ONE);
+    }
+
     public Page next() {
         page++;
         return this;
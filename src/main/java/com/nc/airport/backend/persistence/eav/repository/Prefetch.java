@@ -0,0 +1,79 @@
+package com.nc.airport.backend.persistence.eav.repository;
+
+import com.nc.airport.backend.model.BaseEntity;
+import com.nc.airport.backend.persistence.eav.annotations.attribute.value.ReferenceField;
+import com.nc.airport.backend.persistence.eav.entity2mutable.util.EntityMetadata;
+import lombok.extern.log4j.Log4j2;
+
+import java.lang.reflect.Field;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Describes which references have to be loaded together with some entities.
+ * Steps are done in the order they are added, each of them for all the entities loaded by previous steps.
+ *
+ * <pre>
+ *     Prefetch prefetch = new Prefetch()
+ *             .reference(Ticket.class, "flightId", Flight.class)
+ *             .reference(Flight.class, "airplaneId", Airplane.class)
+ *             .reference(Airplane.class, "airlineId", Airline.class);
+ * </pre>
+ *
+ * @see EavCrudRepository#prefetch(Iterable, Prefetch)
+ */
+@Log4j2
+public class Prefetch {
+    private final List<Step> steps = new ArrayList<>();
+
+    /**
+     * @param from           class which entities hold the reference
+     * @param referenceField name of a field of that class annotated with ReferenceField
+     * @param to             class of the referenced entities
+     * @return this prefetch
+     * @throws IllegalArgumentException if there is no such reference field
+     */
+    public Prefetch reference(Class<? extends BaseEntity> from, String referenceField, Class<? extends BaseEntity> to) {
+        EntityMetadata metadata = EntityMetadata.of(from);
+        BigInteger attrId = metadata.getAttributeIdByFieldName(ReferenceField.class, referenceField);
+        if (attrId == null) {
+            String message = "No field " + referenceField + " annotated with @ReferenceField in " + from;
+            IllegalArgumentException exception = new IllegalArgumentException(message);
+            log.error(message, exception);
+            throw exception;
+        }
+
+        steps.add(new Step(from, metadata.getField(ReferenceField.class, attrId), to));
+        return this;
+    }
+
+    public List<Step> getSteps() {
+        return Collections.unmodifiableList(steps);
+    }
+
+    public static final class Step {
+        private final Class<? extends BaseEntity> from;
+        private final Field referenceField;
+        private final Class<? extends BaseEntity> to;
+
+        private Step(Class<? extends BaseEntity> from, Field referenceField, Class<? extends BaseEntity> to) {
+            this.from = from;
+            this.referenceField = referenceField;
+            this.to = to;
+        }
+
+        public Class<? extends BaseEntity> getFrom() {
+            return from;
+        }
+
+        public Field getReferenceField() {
+            return referenceField;
+        }
+
+        public Class<? extends BaseEntity> getTo() {
+            return to;
+        }
+    }
+}
@@ -2,13 +2,25 @@ package com.nc.airport.backend.persistence.eav.repository.impl;
 
 import com.nc.airport.backend.model.BaseEntity;
 import com.nc.airport.backend.persistence.eav.Mutable;
+import com.nc.airport.backend.persistence.eav.annotations.attribute.value.ReferenceField;
 import com.nc.airport.backend.persistence.eav.entity2mutable.Entity2Mutable;
+import com.nc.airport.backend.persistence.eav.entity2mutable.util.EntityMetadata;
 import com.nc.airport.backend.persistence.eav.entity2mutable.util.ReflectionHelper;
 import com.nc.airport.backend.persistence.eav.exceptions.InvalidDeleteException;
 import com.nc.airport.backend.persistence.eav.mutable2query.Mutable2Query;
+import com.nc.airport.backend.persistence.eav.mutable2query.data.acquisition.JoinedMutables;
+import com.nc.airport.backend.persistence.eav.mutable2query.data.acquisition.ReferenceJoin;
+import com.nc.airport.backend.persistence.eav.mutable2query.filtering2sorting.PropertiesEntityType;
 import com.nc.airport.backend.persistence.eav.mutable2query.filtering2sorting.filtering.FilterEntity;
+import com.nc.airport.backend.persistence.eav.mutable2query.filtering2sorting.filtering.FilterSearch;
 import com.nc.airport.backend.persistence.eav.mutable2query.filtering2sorting.sorting.SortEntity;
 import com.nc.airport.backend.persistence.eav.repository.EavCrudRepository;
+import com.nc.airport.backend.persistence.eav.repository.EntityCache;
+import com.nc.airport.backend.persistence.eav.repository.JoinedSlice;
+import com.nc.airport.backend.persistence.eav.repository.KeysetPage;
+import com.nc.airport.backend.persistence.eav.repository.KeysetSlice;
+import com.nc.airport.backend.persistence.eav.repository.LoadedEntities;
+import com.nc.airport.backend.persistence.eav.repository.Prefetch;
 import com.nc.airport.backend.persistence.eav.repository.Page;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,20 +28,24 @@ import org.springframework.stereotype.Repository;
 
 import javax.validation.constraints.NotNull;
 import java.math.BigInteger;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @Log4j2
 @Repository
 public class DefaultEavCrudRepository<T extends BaseEntity> implements EavCrudRepository<T> {
     private Mutable2Query m2db;
     private Entity2Mutable e2m;
+    private EntityCache cache;
 
     @Autowired
-    public DefaultEavCrudRepository(Mutable2Query m2q, Entity2Mutable e2m) {
+    public DefaultEavCrudRepository(Mutable2Query m2q, Entity2Mutable e2m, EntityCache cache) {
         this.e2m = e2m;
         this.m2db = m2q;
+        this.cache = cache;
     }
 
     @Override
@@ -38,7 +54,8 @@ public class DefaultEavCrudRepository<T extends BaseEntity> implements EavCrudRe
         S updatedEntity;
 
         Mutable updatedMutable = m2db.sqlUpdate(mutable);
-        updatedEntity = (S) e2m.convertMutableToEntity(updatedMutable, entity.getClass());
+        written(entity.getClass(), updatedMutable);
+        updatedEntity = e2m.convertMutableToEntity(updatedMutable, classOf(entity));
         log.info("Updated. Got an updated entity back : {}", updatedEntity);
 
         return updatedEntity;
@@ -54,13 +71,31 @@ public class DefaultEavCrudRepository<T extends BaseEntity> implements EavCrudRe
 
     @Override
     public <S extends T> List<S> saveAll(Iterable<S> entities) {
-//             TODO MAKE A METHOD THAT SAVES ALL ENTITIES ON DB PART
-        List<S> updatedEntities = new ArrayList<>();
+        checkNull(entities);
+
+        List<S> savedEntities = new ArrayList<>();
+        List<Mutable> mutables = new ArrayList<>();
         for (S entity : entities) {
-            if (entity != null)
-                updatedEntities.add(this.update(entity));
+            if (entity != null) {
+                savedEntities.add(entity);
+                mutables.add(e2m.convertEntityToMutable(entity));
+            }
+        }
+        if (mutables.isEmpty()) {
+            return savedEntities;
         }
 
+        List<Mutable> updatedMutables = m2db.sqlUpdateMultipleMutables(mutables);
+        for (int i = 0; i < updatedMutables.size(); i++) {
+            written(savedEntities.get(i).getClass(), updatedMutables.get(i));
+        }
+
+        List<S> updatedEntities = new ArrayList<>();
+        for (int i = 0; i < updatedMutables.size(); i++) {
+            updatedEntities.add(e2m.convertMutableToEntity(updatedMutables.get(i), classOf(savedEntities.get(i))));
+        }
+        log.info("Saved {} entities in bulk", updatedEntities.size());
+
         return updatedEntities;
     }
 
@@ -69,7 +104,11 @@ public class DefaultEavCrudRepository<T extends BaseEntity> implements EavCrudRe
         checkNull(objectId);
         checkNull(entityClass);
 
-        Mutable optMutable = m2db.getSingleMutable(objectId, ReflectionHelper.getAttributeIds(entityClass));
+        Mutable optMutable = cache.get(entityClass, objectId);
+        if (optMutable == null) {
+            optMutable = m2db.getSingleMutable(objectId, ReflectionHelper.getAttributeIds(entityClass));
+            cache.put(entityClass, optMutable);
+        }
         T searchedEntity = null;
         if (optMutable != null) {
             searchedEntity = e2m.convertMutableToEntity(optMutable, entityClass);
@@ -78,14 +117,155 @@ public class DefaultEavCrudRepository<T extends BaseEntity> implements EavCrudRe
     }
 
     @Override
-//             TODO NAMING, ALSO THINK IF THIS METHOD IS REALLY NEEDED
     public List<T> findAll(Class<T> entityClass, Iterable<BigInteger> objectIds) {
         checkNull(entityClass);
+        checkNull(objectIds);
+
+        return findAllOf(entityClass, objectIds);
+    }
+
+    @Override
+    public LoadedEntities prefetch(@NotNull Iterable<? extends BaseEntity> entities, @NotNull Prefetch prefetch) {
+        checkNull(entities);
+        checkNull(prefetch);
+
+        LoadedEntities loaded = new LoadedEntities();
+        loaded.addAll(entities);
+        for (Prefetch.Step step : prefetch.getSteps()) {
+            Set<BigInteger> referencedIds = new LinkedHashSet<>();
+            for (BaseEntity entity : loaded.getAll(step.getFrom())) {
+                Object reference = ReflectionHelper.getFieldValue(entity, step.getReferenceField());
+                Collection<?> references = reference instanceof Collection ?
+                        (Collection<?>) reference : Collections.singletonList(reference);
+                for (Object referencedId : references) {
+                    if (referencedId != null && !loaded.contains(step.getTo(), (BigInteger) referencedId)) {
+                        referencedIds.add((BigInteger) referencedId);
+                    }
+                }
+            }
+            if (!referencedIds.isEmpty()) {
+                loaded.addAll(findAllOf(step.getTo(), referencedIds));
+            }
+        }
+        return loaded;
+    }
+
+    @Override
+    public JoinedSlice<T> findJoinedSlice(@NotNull Class<T> entityClass, Page page,
+                                          List<SortEntity> sortBy, List<FilterEntity> filterBy,
+                                          @NotNull Prefetch joins) {
+        checkNull(entityClass);
+        checkNull(joins);
+
+        List<Prefetch.Step> steps = joins.getSteps();
+        List<ReferenceJoin> referenceJoins = new ArrayList<>();
+        for (int i = 0; i < steps.size(); i++) {
+            Prefetch.Step step = steps.get(i);
+            referenceJoins.add(new ReferenceJoin(joinedFromIndex(entityClass, steps, i),
+                    EntityMetadata.of(step.getFrom()).getAttributeIdByFieldName(ReferenceField.class,
+                            step.getReferenceField().getName()),
+                    ReflectionHelper.getValueFieldIds(step.getTo()),
+                    ReflectionHelper.getDateFieldIds(step.getTo()),
+                    ReflectionHelper.getListFieldIds(step.getTo()),
+                    ReflectionHelper.getReferenceFieldIds(step.getTo())));
+        }
+
+        JoinedMutables joined = m2db.getJoinedMutables(
+                ReflectionHelper.getValueFieldIds(entityClass),
+                ReflectionHelper.getDateFieldIds(entityClass),
+                ReflectionHelper.getListFieldIds(entityClass),
+                ReflectionHelper.getReferenceFieldIds(entityClass),
+                ReflectionHelper.getObjTypeId(entityClass),
+                referenceJoins,
+                page.getFirstRow(),
+                page.getLastRow(),
+                sortBy,
+                filterBy);
 
         List<T> entities = new ArrayList<>();
+        LoadedEntities loaded = new LoadedEntities();
+        for (List<Mutable> row : joined.getRows()) {
+            entities.add(e2m.convertMutableToEntity(row.get(0), entityClass));
+            for (int i = 0; i < steps.size(); i++) {
+                Mutable mutable = row.get(i + 1);
+                if (mutable != null) {
+                    loaded.addAll(Collections.singletonList(e2m.convertMutableToEntity(mutable, steps.get(i).getTo())));
+                }
+            }
+        }
+        loaded.addAll(entities);
+        return new JoinedSlice<>(entities, loaded, joined.getTotal());
+    }
+
+    /*
+    Step is joined to the latest earlier step that loads its class, or to the root entities
+     */
+    private int joinedFromIndex(Class<T> entityClass, List<Prefetch.Step> steps, int stepIndex) {
+        Prefetch.Step step = steps.get(stepIndex);
+        if (Collection.class.isAssignableFrom(step.getReferenceField().getType())) {
+            String message = "Reference " + step.getReferenceField() + " holds several ids and can not be joined";
+            IllegalArgumentException exception = new IllegalArgumentException(message);
+            log.error(message, exception);
+            throw exception;
+        }
+
+        for (int i = stepIndex - 1; i >= 0; i--) {
+            if (steps.get(i).getTo() == step.getFrom()) {
+                return i + 1;
+            }
+        }
+        if (step.getFrom() == entityClass) {
+            return 0;
+        }
+
+        String message = "Step from " + step.getFrom() + " does not follow any of the joined classes";
+        IllegalArgumentException exception = new IllegalArgumentException(message);
+        log.error(message, exception);
+        throw exception;
+    }
+
+    private <E extends BaseEntity> List<E> findAllOf(Class<E> entityClass, Iterable<BigInteger> objectIds) {
+        List<BigInteger> requestedIds = new ArrayList<>();
         for (BigInteger objectId : objectIds) {
-            Optional<T> result = findById(objectId, entityClass);
-            result.ifPresent(entities::add);
+            if (objectId != null) {
+                requestedIds.add(objectId);
+            }
+        }
+        if (requestedIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<BigInteger, E> foundEntities = new HashMap<>();
+        List<BigInteger> missedIds = new ArrayList<>();
+        for (BigInteger objectId : requestedIds) {
+            Mutable cached = cache.isCached(entityClass) ? cache.get(entityClass, objectId) : null;
+            if (cached != null) {
+                foundEntities.put(objectId, e2m.convertMutableToEntity(cached, entityClass));
+            } else {
+                missedIds.add(objectId);
+            }
+        }
+
+        if (!missedIds.isEmpty()) {
+            List<Mutable> mutables = m2db.getMutablesByIds(
+                    ReflectionHelper.getValueFieldIds(entityClass),
+                    ReflectionHelper.getDateFieldIds(entityClass),
+                    ReflectionHelper.getListFieldIds(entityClass),
+                    ReflectionHelper.getReferenceFieldIds(entityClass),
+                    missedIds);
+            for (Mutable mutable : mutables) {
+                cache.put(entityClass, mutable);
+                foundEntities.put(mutable.getObjectId(), e2m.convertMutableToEntity(mutable, entityClass));
+            }
+        }
+
+//        results are returned in the order ids were requested in
+        List<E> entities = new ArrayList<>();
+        for (BigInteger objectId : requestedIds) {
+            E entity = foundEntities.get(objectId);
+            if (entity != null) {
+                entities.add(entity);
+            }
         }
         return entities;
     }
@@ -107,6 +287,72 @@ public class DefaultEavCrudRepository<T extends BaseEntity> implements EavCrudRe
         return entities;
     }
 
+    @Override
+    public KeysetSlice<T> findSlice(@NotNull Class<T> entityClass, @NotNull KeysetPage page,
+                                    List<SortEntity> sortBy, List<FilterEntity> filterBy) {
+        checkNull(entityClass);
+        checkNull(page);
+
+        List<SortEntity> sorting = sortBy == null ? new ArrayList<>() : sortBy;
+        List<Mutable> mutables = m2db.getMutablesAfter(
+                ReflectionHelper.getValueFieldIds(entityClass),
+                ReflectionHelper.getDateFieldIds(entityClass),
+                ReflectionHelper.getListFieldIds(entityClass),
+                ReflectionHelper.getReferenceFieldIds(entityClass),
+                ReflectionHelper.getObjTypeId(entityClass),
+                sorting,
+                filterBy,
+                page.getLastKey(),
+                page.getLastObjectId(),
+                page.getSize());
+
+        List<T> entities = new ArrayList<>();
+        for (Mutable mutable : mutables) {
+            entities.add(e2m.convertMutableToEntity(mutable, entityClass));
+        }
+
+        KeysetPage nextPage = null;
+        if (mutables.size() == page.getSize()) {
+            Mutable last = mutables.get(mutables.size() - 1);
+            nextPage = KeysetPage.after(page.getSize(), sortKeyOf(last, sorting), last.getObjectId());
+        }
+        return new KeysetSlice<>(entities, nextPage);
+    }
+
+    /*
+    Values of sorted columns as they are bound back to the query of the next page
+     */
+    private List<Object> sortKeyOf(Mutable mutable, List<SortEntity> sortBy) {
+        List<Object> key = new ArrayList<>();
+        for (SortEntity sort : sortBy) {
+            String column = sort.getType().startsWith("O.") ? sort.getType().substring(2) : sort.getType();
+            if (column.startsWith("ATTR")) {
+                BigInteger attrId = new BigInteger(column.substring(4));
+                if (mutable.getValues().containsKey(attrId)) {
+                    key.add(mutable.getValues().get(attrId));
+                } else if (mutable.getDateValues().containsKey(attrId)) {
+                    LocalDateTime date = mutable.getDateValues().get(attrId);
+                    key.add(date == null ? null : Timestamp.valueOf(date));
+                } else if (mutable.getListValues().containsKey(attrId)) {
+                    key.add(mutable.getListValues().get(attrId));
+                } else {
+                    key.add(mutable.getReferences().get(attrId));
+                }
+            } else if (column.equals(PropertiesEntityType.OBJECT_ID.getType())) {
+                key.add(mutable.getObjectId());
+            } else if (column.equals(PropertiesEntityType.PARENT_ID.getType())) {
+                key.add(mutable.getParentId());
+            } else if (column.equals(PropertiesEntityType.OBJECT_TYPE_ID.getType())) {
+                key.add(mutable.getObjectTypeId());
+            } else if (column.equals(PropertiesEntityType.NAME.getType())) {
+                key.add(mutable.getObjectName());
+            } else {
+                key.add(mutable.getObjectDescription());
+            }
+        }
+        return key;
+    }
+
     @Override
     public List<T> findSliceOfChildren(@NotNull BigInteger parentId, @NotNull Class<T> childClass, Page page) {
         checkNull(childClass);
@@ -139,6 +385,7 @@ public class DefaultEavCrudRepository<T extends BaseEntity> implements EavCrudRe
                 ReflectionHelper.getDateFieldIds(entityClass),
                 ReflectionHelper.getListFieldIds(entityClass),
                 ReflectionHelper.getReferenceFieldIds(entityClass),
+                ReflectionHelper.getObjTypeId(entityClass),
                 page.getFirstRow(),
                 page.getLastRow(),
                 sortBy,
@@ -151,6 +398,56 @@ public class DefaultEavCrudRepository<T extends BaseEntity> implements EavCrudRe
         return entities;
     }
 
+    @Override
+    public Stream<T> streamAll(@NotNull Class<T> entityClass, List<SortEntity> sortBy, List<FilterEntity> filterBy) {
+        return streamAll(entityClass, sortBy, filterBy, m2db.getStreamFetchSize());
+    }
+
+    @Override
+    public Stream<T> streamAll(@NotNull Class<T> entityClass, List<SortEntity> sortBy, List<FilterEntity> filterBy,
+                               int fetchSize) {
+        checkNull(entityClass);
+        if (fetchSize <= 0) {
+            String message = "Fetch size must be positive: " + fetchSize;
+            IllegalArgumentException exception = new IllegalArgumentException(message);
+            log.error(message, exception);
+            throw exception;
+        }
+
+        return m2db.streamMutables(
+                ReflectionHelper.getValueFieldIds(entityClass),
+                ReflectionHelper.getDateFieldIds(entityClass),
+                ReflectionHelper.getListFieldIds(entityClass),
+                ReflectionHelper.getReferenceFieldIds(entityClass),
+                ReflectionHelper.getObjTypeId(entityClass),
+                sortBy,
+                filterBy,
+                fetchSize)
+                .map(mutable -> e2m.convertMutableToEntity(mutable, entityClass));
+    }
+
+    @Override
+    public List<FilterEntity> makeSearchFilters(@NotNull Class<? extends BaseEntity> entityClass, String text) {
+        checkNull(entityClass);
+        List<FilterEntity> filterEntities = new ArrayList<>();
+        if (text == null || text.trim().isEmpty()) {
+            return filterEntities;
+        }
+
+        BigInteger objectTypeId = ReflectionHelper.getObjTypeId(entityClass);
+        if (EntityMetadata.of(entityClass).isSearchable() && m2db.isSearchIndexed(objectTypeId)) {
+            filterEntities.add(new FilterEntity(PropertiesEntityType.OBJECT_ID,
+                    new HashSet<>(Collections.singletonList(FilterSearch.of(objectTypeId, text)))));
+            return filterEntities;
+        }
+
+        String searchString = "%" + text + "%";
+        for (BigInteger attrId : ReflectionHelper.getAttributeIds(entityClass)) {
+            filterEntities.add(new FilterEntity(attrId, new HashSet<>(Collections.singletonList(searchString))));
+        }
+        return filterEntities;
+    }
+
     @Override
     public List<T> findSliceOfChildren(@NotNull BigInteger parentId, @NotNull Class<T> childClass, Page page, List<SortEntity> sortBy, List<FilterEntity> filterBy) {
         checkNull(childClass);
@@ -202,7 +499,8 @@ public class DefaultEavCrudRepository<T extends BaseEntity> implements EavCrudRe
                 ReflectionHelper.getValueFieldIds(entityClass),
                 ReflectionHelper.getDateFieldIds(entityClass),
                 ReflectionHelper.getListFieldIds(entityClass),
-                ReflectionHelper.getReferenceFieldIds(entityClass), filterEntities);
+                ReflectionHelper.getReferenceFieldIds(entityClass),
+                ReflectionHelper.getObjTypeId(entityClass), filterEntities);
 
         List<T> entities = new ArrayList<>();
         for (Mutable mutable : mutables) {
@@ -242,6 +540,7 @@ public class DefaultEavCrudRepository<T extends BaseEntity> implements EavCrudRe
         }
 
         m2db.sqlDelete(objectId);
+        cache.evict(objectId);
         log.info("Deleted object with Object_id {}", objectId);
     }
 
@@ -249,9 +548,12 @@ public class DefaultEavCrudRepository<T extends BaseEntity> implements EavCrudRe
     public void deleteAll(Iterable<? extends T> entities) {
         checkNull(entities);
 
-        for (T entity : entities) {
-            delete(entity);
-        }
+        m2db.inTransaction(() -> {
+            for (T entity : entities) {
+                delete(entity);
+            }
+            return null;
+        });
     }
 
     @Override
@@ -269,7 +571,19 @@ public class DefaultEavCrudRepository<T extends BaseEntity> implements EavCrudRe
         return m2db.countByFilter(ReflectionHelper.getValueFieldIds(entityClass),
                 ReflectionHelper.getDateFieldIds(entityClass),
                 ReflectionHelper.getListFieldIds(entityClass),
-                ReflectionHelper.getReferenceFieldIds(entityClass), filterBy);
+                ReflectionHelper.getReferenceFieldIds(entityClass),
+                ReflectionHelper.getObjTypeId(entityClass), filterBy);
+    }
+
+    @Override
+    public BigInteger countUpTo(Class<T> entityClass, List<FilterEntity> filterBy, int limit) {
+        checkNull(entityClass);
+
+        return m2db.countByFilter(ReflectionHelper.getValueFieldIds(entityClass),
+                ReflectionHelper.getDateFieldIds(entityClass),
+                ReflectionHelper.getListFieldIds(entityClass),
+                ReflectionHelper.getReferenceFieldIds(entityClass),
+                ReflectionHelper.getObjTypeId(entityClass), filterBy, limit);
     }
 
     @Override
@@ -279,6 +593,30 @@ public class DefaultEavCrudRepository<T extends BaseEntity> implements EavCrudRe
         return m2db.existsByObjId(objectId);
     }
 
+    @Override
+    public <R> R inTransaction(Supplier<R> work) {
+        checkNull(work);
+
+        return m2db.inTransaction(work);
+    }
+
+    /*
+    Class of an entity is the class of S or of its subclass, which is S as well
+     */
+    @SuppressWarnings("unchecked")
+    private static <S extends BaseEntity> Class<S> classOf(S entity) {
+        return (Class<S>) entity.getClass();
+    }
+
+    /*
+    The written mutable has only the attributes that were not null, so the committed state is read again
+     */
+    private void written(Class<? extends BaseEntity> entityClass, Mutable mutable) {
+        BigInteger objectId = mutable.getObjectId();
+        cache.written(entityClass, objectId,
+                () -> m2db.getSingleMutable(objectId, ReflectionHelper.getAttributeIds(entityClass)));
+    }
+
     /**
      * Checks if the argument is null. If so, it logs and throws an exception.
      *
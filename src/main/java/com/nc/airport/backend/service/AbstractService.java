@@ -2,7 +2,6 @@ package com.nc.airport.backend.service;
 
 import com.nc.airport.backend.model.BaseEntity;
 import com.nc.airport.backend.model.dto.ResponseFilteringWrapper;
-import com.nc.airport.backend.persistence.eav.entity2mutable.util.ReflectionHelper;
 import com.nc.airport.backend.persistence.eav.mutable2query.filtering2sorting.filtering.FilterEntity;
 import com.nc.airport.backend.persistence.eav.mutable2query.filtering2sorting.sorting.SortEntity;
 import com.nc.airport.backend.persistence.eav.repository.EavCrudRepository;
@@ -10,8 +9,17 @@ import com.nc.airport.backend.persistence.eav.repository.Page;
 
 import java.math.BigInteger;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public abstract class AbstractService<T extends BaseEntity> {
+    /**
+     * Found items are counted up to this number, so a broad search does not count every object of the type.
+     * If there are more of them, one page more than this number of items fill is reported
+     */
+    public static final int MAX_COUNTED_ITEMS = 1000;
+
     protected EavCrudRepository<T> repository;
     private Class<T> domainClass;
 
@@ -21,27 +29,26 @@ public abstract class AbstractService<T extends BaseEntity> {
     }
 
     List<FilterEntity> makeFilterList(String search, Class<T> entityClass) {
-        String searchString = "%" + search + "%";
-        List<BigInteger> attributeIds = ReflectionHelper.getAttributeIds(entityClass);
-        Map<BigInteger, Set<Object>> filtering = new HashMap<>();
-        for (BigInteger id :
-                attributeIds) {
-            filtering.put(id, new HashSet<>(Arrays.asList(searchString)));
-        }
-
-        List<FilterEntity> filterEntities = new ArrayList<>();
-        for (BigInteger key :
-                filtering.keySet()) {
-            filterEntities.add(new FilterEntity(key, filtering.get(key)));
-        }
-        return filterEntities;
+        return repository.makeSearchFilters(entityClass, search);
     }
 
     public ResponseFilteringWrapper<T> filterAndSortEntities(int page, String searchRequest, List<SortEntity> sortEntities) {
         List<FilterEntity> filterEntities = makeFilterList(searchRequest, domainClass);
-        List<T> foundEntities = repository.findSlice(domainClass, new Page(page - 1), sortEntities, filterEntities);
-        BigInteger countOfPages = repository.count(domainClass, filterEntities);
-        return new ResponseFilteringWrapper<>(foundEntities, countOfPages);
+        Page foundPage = new Page(page - 1);
+        List<T> foundEntities = repository.findSlice(domainClass, foundPage, sortEntities, filterEntities);
+        return wrapFound(foundEntities, foundPage, filterEntities);
+    }
+
+    /**
+     * @param found    items of the page
+     * @param page     page the items were found on
+     * @param filterBy filters the items were found with
+     * @return found items with the number of pages of all the items, counted up to MAX_COUNTED_ITEMS items
+     */
+    protected <E> ResponseFilteringWrapper<E> wrapFound(List<E> found, Page page, List<FilterEntity> filterBy) {
+        BigInteger countOfItems = repository.countUpTo(domainClass, filterBy, MAX_COUNTED_ITEMS);
+        return new ResponseFilteringWrapper<>(found, page.getCountOfPages(countOfItems),
+                countOfItems.intValue() > MAX_COUNTED_ITEMS);
     }
 
     public List<T> getTenEntities(int page) {
@@ -66,7 +73,7 @@ public abstract class AbstractService<T extends BaseEntity> {
 
     public BigInteger getAmountOfFilteredEntities(String searchString) {
         List<FilterEntity> filterBy = makeFilterList(searchString, domainClass);
-        return repository.count(domainClass, filterBy);
+        return new Page(0).getCountOfPages(repository.countUpTo(domainClass, filterBy, MAX_COUNTED_ITEMS));
     }
 
     public T findByAttr(String value, BigInteger attrId, Class<T> clazz) {
@@ -103,13 +110,26 @@ public abstract class AbstractService<T extends BaseEntity> {
 
     /**
      * <h3>WARNING</h3>
-     * <p>The number of items returned is restricted to 2^32</p>
+     * <p>The number of items returned is restricted to 2^32 and all of them are kept in memory,
+     * use {@link #forEach(Consumer)} for classes with many items</p>
      *
      * @return list of all items up to 2^32
      */
     public List<T> getAll() {
-        int quantity = repository.count(domainClass).intValue();
-        Page page = new Page(quantity, 0);
-        return repository.findSlice(domainClass, page);
+        try (Stream<T> entities = repository.streamAll(domainClass, null, null)) {
+            return entities.collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Passes every item to the action as soon as it is read, so items that were handled
+     * are not kept in memory however many of them there are
+     *
+     * @param action handles one item, a database connection is held until the last one is handled
+     */
+    public void forEach(Consumer<? super T> action) {
+        try (Stream<T> entities = repository.streamAll(domainClass, null, null)) {
+            entities.forEach(action);
+        }
     }
 }
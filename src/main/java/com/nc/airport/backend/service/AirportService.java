@@ -6,7 +6,6 @@ import com.nc.airport.backend.model.entities.model.flight.Airport;
 import com.nc.airport.backend.model.entities.model.flight.Country;
 import com.nc.airport.backend.persistence.eav.mutable2query.filtering2sorting.filtering.FilterEntity;
 import com.nc.airport.backend.persistence.eav.repository.EavCrudRepository;
-import com.nc.airport.backend.persistence.eav.repository.Page;
 import org.springframework.stereotype.Service;
 
 import java.math.BigInteger;
@@ -14,6 +13,8 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class AirportService extends AbstractService<Airport> {
@@ -24,12 +25,6 @@ public class AirportService extends AbstractService<Airport> {
         this.countryService = countryService;
     }
 
-    public List<Airport> getAll() {
-        int quantity = repository.count(Airport.class).intValue();
-        Page page = new Page(quantity, 0);
-        return repository.findSlice(Airport.class, page);
-    }
-
     public List<AirportDto> getTenDtoEntities(int page) {
         List<Airport> plainAirports = super.getTenEntities(page);
         return makeAirportDtos(plainAirports);
@@ -59,9 +54,9 @@ public class AirportService extends AbstractService<Airport> {
         List<FilterEntity> filterEntities = new ArrayList<>();
         filterEntities.add(new FilterEntity(BigInteger.valueOf(5), values));
 
-        int quantity = repository.count(Airport.class).intValue();
-        Page page = new Page(quantity, 0);
-        return repository.findSlice(Airport.class, page, null, filterEntities);
+        try (Stream<Airport> airports = repository.streamAll(Airport.class, null, filterEntities)) {
+            return airports.collect(Collectors.toList());
+        }
     }
 
 }
@@ -5,17 +5,15 @@ import com.nc.airport.backend.model.dto.FlightDTO;
 import com.nc.airport.backend.model.entities.model.flight.Airport;
 import com.nc.airport.backend.model.entities.model.flight.Flight;
 import com.nc.airport.backend.model.entities.model.flight.FlightStatus;
+import com.nc.airport.backend.persistence.eav.entity2mutable.util.EntityMetadata;
 import com.nc.airport.backend.persistence.eav.mutable2query.filtering2sorting.filtering.FilterEntity;
+import com.nc.airport.backend.persistence.eav.mutable2query.filtering2sorting.filtering.FilterRange;
 import com.nc.airport.backend.persistence.eav.repository.EavCrudRepository;
 import org.springframework.stereotype.Service;
 
 import java.math.BigInteger;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 
 @Service
 public class FlightBookingService extends AbstractService {
@@ -49,26 +47,24 @@ public class FlightBookingService extends AbstractService {
             destinationValues.add(airport.getObjectId());
         }
         FilterEntity destinationValuesAirportsFilter = new FilterEntity(BigInteger.valueOf(10), destinationValues);
+
+        LocalDateTime dayStart = date.toLocalDate().atStartOfDay();
+        FilterEntity departureDayFilter = new FilterEntity(BigInteger.valueOf(64),
+                Collections.singleton(FilterRange.fromUntil(dayStart, dayStart.plusDays(1))));
+
+        BigInteger statusId = BigInteger.valueOf(63);
+        FilterEntity scheduledFilter = new FilterEntity(statusId, Collections.singleton(
+                EntityMetadata.of(Flight.class).getListValueId(statusId, FlightStatus.SCHEDULED)));
+
         List<FilterEntity> filterEntities = new ArrayList<>();
         filterEntities.add(departureAirportsFilter);
         filterEntities.add(destinationValuesAirportsFilter);
+        filterEntities.add(departureDayFilter);
+        filterEntities.add(scheduledFilter);
 
         List<Flight> flights = flightService.repository.findSliceOfSeveralReferences(filterEntities, Flight.class);
 
-        Set<Flight> foundFlights = new HashSet<>();
-        for (Flight flight :
-                flights) {
-            if (flight.getStatus().equals(FlightStatus.SCHEDULED)) {
-                String dateFromFlight = flight.getExpectedDepartureDatetime().format(DateTimeFormatter.ofPattern("yyyy-MM-dd"));
-                String dateFromSearch = date.format(DateTimeFormatter.ofPattern("yyyy-MM-dd"));
-
-                if (dateFromFlight.equals(dateFromSearch)) {
-                    foundFlights.add(flight);
-                }
-            }
-        }
-
-        return flightService.formFlightDTOs(new ArrayList<>(foundFlights));
+        return flightService.formFlightDTOs(flights);
     }
 
     public BookingTwoWaysDto findTwoWayFlights(int page, String departureCity, String destinationCity, LocalDateTime departureDate, LocalDateTime returnDate) {
@@ -2,6 +2,7 @@ package com.nc.airport.backend.service;
 
 import com.nc.airport.backend.model.dto.FlightDTO;
 import com.nc.airport.backend.model.dto.ResponseFilteringWrapper;
+import com.nc.airport.backend.model.dto.ResponseKeysetWrapper;
 import com.nc.airport.backend.model.entities.model.airline.Airline;
 import com.nc.airport.backend.model.entities.model.airplane.Airplane;
 import com.nc.airport.backend.model.entities.model.flight.Airport;
@@ -13,7 +14,12 @@ import com.nc.airport.backend.model.entities.model.users.TicketHistory;
 import com.nc.airport.backend.persistence.eav.mutable2query.filtering2sorting.filtering.FilterEntity;
 import com.nc.airport.backend.persistence.eav.mutable2query.filtering2sorting.sorting.SortEntity;
 import com.nc.airport.backend.persistence.eav.repository.EavCrudRepository;
+import com.nc.airport.backend.persistence.eav.repository.JoinedSlice;
+import com.nc.airport.backend.persistence.eav.repository.KeysetPage;
+import com.nc.airport.backend.persistence.eav.repository.KeysetSlice;
+import com.nc.airport.backend.persistence.eav.repository.LoadedEntities;
 import com.nc.airport.backend.persistence.eav.repository.Page;
+import com.nc.airport.backend.persistence.eav.repository.Prefetch;
 import org.springframework.stereotype.Service;
 
 import java.math.BigInteger;
@@ -21,63 +27,67 @@ import java.util.*;
 
 @Service
 public class FlightService extends AbstractService {
-
-    private PassportService passportService;
-
-    public FlightService(EavCrudRepository repository, PassportService passportService) {
+    private static final Prefetch USER_FLIGHTS_PREFETCH = new Prefetch()
+            .reference(TicketHistory.class, "ticketId", Ticket.class)
+            .reference(Ticket.class, "flightId", Flight.class)
+            .reference(Ticket.class, "passengerId", Passenger.class)
+            .reference(Passenger.class, "passportId", Passport.class)
+            .reference(Flight.class, "arrivalAirportId", Airport.class)
+            .reference(Flight.class, "departureAirportId", Airport.class)
+            .reference(Flight.class, "airplaneId", Airplane.class)
+            .reference(Airplane.class, "airlineId", Airline.class);
+
+    /**
+     * References shown on the flight board, joined to the flights in the same query
+     */
+    private static final Prefetch FLIGHT_BOARD_JOINS = new Prefetch()
+            .reference(Flight.class, "arrivalAirportId", Airport.class)
+            .reference(Flight.class, "departureAirportId", Airport.class)
+            .reference(Flight.class, "airplaneId", Airplane.class)
+            .reference(Airplane.class, "airlineId", Airline.class);
+
+    public FlightService(EavCrudRepository repository) {
         super(Flight.class, repository);
-        this.passportService = passportService;
     }
 
     public List<FlightDTO> findAllFlightsByUserId(BigInteger userId, int page) {
-        List<FlightDTO> flights = new ArrayList<>();
         List<TicketHistory> ticketsHistory = getTicketsHistoryByUserId(userId);
-        List<Ticket> tickets = new ArrayList<>();
-        Set<Flight> flightSet = new HashSet<>();
-        for (TicketHistory ticketHistory :
-                ticketsHistory) {
-            Optional<Ticket> ticket = getTicketById(ticketHistory.getTicketId());
-            ticket.ifPresent(tickets::add);
+        LoadedEntities loaded = repository.prefetch(ticketsHistory, USER_FLIGHTS_PREFETCH);
+
+        Map<BigInteger, List<Ticket>> ticketsByFlight = new LinkedHashMap<>();
+        for (TicketHistory ticketHistory : ticketsHistory) {
+            Optional<Ticket> ticket = loaded.get(Ticket.class, ticketHistory.getTicketId());
+            ticket.ifPresent(found -> ticketsByFlight
+                    .computeIfAbsent(found.getFlightId(), flightId -> new ArrayList<>())
+                    .add(found));
         }
-        for (Ticket ticket :
-                tickets) {
-            Optional<Flight> flight = getFlightById(ticket.getFlightId());
-            flight.ifPresent(flightSet::add);
-        }
-        List<Ticket> newTickets = new ArrayList<>();
-        List<Passenger> newPassengers = new ArrayList<>();
-        List<Passport> passports = new ArrayList<>();
-        for (Flight flight :
-                flightSet) {
-            for (Ticket ticket :
-                    tickets) {
-                BigInteger id1 = ticket.getFlightId();
-                BigInteger id2 = flight.getObjectId();
-                if (id1.equals(id2)) {
-                    newTickets.add(ticket);
-                    Optional<Passenger> passenger = getPassengerById(ticket.getPassengerId());
-                    passenger.ifPresent(newPassengers::add);
-                    Passport passport = passportService.findPassportByReference(ticket.getPassengerId());
-                    passports.add(passport);
-                }
+
+        List<FlightDTO> flights = new ArrayList<>();
+        for (Map.Entry<BigInteger, List<Ticket>> flightTickets : ticketsByFlight.entrySet()) {
+            Optional<Flight> flight = loaded.get(Flight.class, flightTickets.getKey());
+            if (!flight.isPresent()) {
+                continue;
             }
 
-            Optional<Airport> arrivalAirport = getAirportById(flight.getArrivalAirportId());
-            Optional<Airport> departureAirport = getAirportById(flight.getDepartureAirportId());
-            Optional<Airplane> airplane = getAirplaneById(flight.getAirplaneId());
-            Optional<Airline> airline = Optional.empty();
-            if (airplane.isPresent()) {
-                airline = getAirlineById(airplane.get().getAirlineId());
+            List<Passenger> passengers = new ArrayList<>();
+            List<Passport> passports = new ArrayList<>();
+            for (Ticket ticket : flightTickets.getValue()) {
+                Optional<Passenger> passenger = loaded.get(Passenger.class, ticket.getPassengerId());
+                passenger.ifPresent(passengers::add);
+                passenger.flatMap(found -> loaded.get(Passport.class, found.getPassportId()))
+                        .ifPresent(passports::add);
             }
+
+            Optional<Airport> arrivalAirport = loaded.get(Airport.class, flight.get().getArrivalAirportId());
+            Optional<Airport> departureAirport = loaded.get(Airport.class, flight.get().getDepartureAirportId());
+            Optional<Airplane> airplane = loaded.get(Airplane.class, flight.get().getAirplaneId());
+            Optional<Airline> airline = airplane.flatMap(found -> loaded.get(Airline.class, found.getAirlineId()));
             if (arrivalAirport.isPresent() &&
                     departureAirport.isPresent() &&
                     airplane.isPresent() &&
                     airline.isPresent())
-                flights.add(new FlightDTO(flight, newTickets, newPassengers, passports,
+                flights.add(new FlightDTO(flight.get(), flightTickets.getValue(), passengers, passports,
                         arrivalAirport.get(), departureAirport.get(), airplane.get(), airline.get()));
-            newTickets = new ArrayList<>();
-            newPassengers = new ArrayList<>();
-            passports = new ArrayList<>();
         }
 
         return flights;
@@ -87,82 +97,20 @@ public class FlightService extends AbstractService {
         return repository.findSliceOfReference(userId, TicketHistory.class);
     }
 
-    private Optional<Ticket> getTicketById(BigInteger ticketId) {
-        return repository.findById(ticketId, Ticket.class);
-    }
-
-    private Optional<Flight> getFlightById(BigInteger flightId) {
-        return repository.findById(flightId, Flight.class);
-    }
-
-    private Optional<Passenger> getPassengerById(BigInteger flightId) {
-        return repository.findById(flightId, Passenger.class);
-    }
-
-    private Optional<Airport> getAirportById(BigInteger airportId) {
-        return repository.findById(airportId, Airport.class);
-    }
-
-    private Optional<Airplane> getAirplaneById(BigInteger airportId) {
-        return repository.findById(airportId, Airplane.class);
-    }
-
-    private Optional<Airline> getAirlineById(BigInteger airlineId) {
-        return repository.findById(airlineId, Airline.class);
+    List<FlightDTO> formFlightDTOs(List<Flight> flights) {
+        return formFlightDTOs(flights, repository.prefetch(flights, FLIGHT_BOARD_JOINS));
     }
 
-    List<FlightDTO> formFlightDTOs(List<Flight> flights) {
+    private List<FlightDTO> formFlightDTOs(List<Flight> flights, LoadedEntities loaded) {
         List<FlightDTO> flightDTOs = new ArrayList<>();
-        Map<BigInteger, Airplane> airplanes = new HashMap<>();
-        Map<BigInteger, Airline> airlines = new HashMap<>();
-        Map<BigInteger, Airport> airports = new HashMap<>();
-
         for (Flight flight : flights) {
-            BigInteger departAirportId = flight.getDepartureAirportId();
-            BigInteger arrivAirportId = flight.getArrivalAirportId();
-            BigInteger airplaneId = flight.getAirplaneId();
-            BigInteger airlineId = null;
-
-            Airplane foundAirplane;
-            if (!airplanes.containsKey(airplaneId)) {
-                foundAirplane = getAirplaneById(airplaneId).orElse(null);
-                airplanes.put(airplaneId, foundAirplane);
-            } else {
-                foundAirplane = airplanes.get(airplaneId);
-            }
-
-            if (foundAirplane != null) {
-                airlineId = foundAirplane.getAirlineId();
-                if (!airlines.containsKey(airlineId)) {
-                    Airline foundAirline = getAirlineById(airlineId).orElse(null);
-                    airlines.put(airlineId, foundAirline);
-                }
-            }
-
-            if (!airports.containsKey(departAirportId)) {
-                Airport foundAirport = getAirportById(departAirportId).orElse(null);
-                airports.put(departAirportId, foundAirport);
-            }
-
-            if (!airports.containsKey(arrivAirportId)) {
-                Airport foundAirport = getAirportById(arrivAirportId).orElse(null);
-                airports.put(arrivAirportId, foundAirport);
-            }
-
-
-//            Airplane airplane = getAirplaneById(flight.getAirplaneId()).get();
-//            Airline airline = getAirlineById(airplane.getAirlineId()).get();
-//            Airport depAirport = getAirportById(flight.getDepartureAirportId()).get(),
-//                    arrAirport = getAirportById(flight.getArrivalAirportId()).get();
-//            flightDTOs.add(new FlightDTO(flight, null, null, null, arrAirport, depAirport, airplane, airline));
-
-            FlightDTO flightDTO = new FlightDTO(flight, null, null, null,
-                    airports.get(arrivAirportId),
-                    airports.get(departAirportId),
-                    airplanes.get(airplaneId),
-                    airlines.get(airlineId));
-            flightDTOs.add(flightDTO);
-
+            Optional<Airplane> airplane = loaded.get(Airplane.class, flight.getAirplaneId());
+            Optional<Airline> airline = airplane.flatMap(found -> loaded.get(Airline.class, found.getAirlineId()));
+            flightDTOs.add(new FlightDTO(flight, null, null, null,
+                    loaded.get(Airport.class, flight.getArrivalAirportId()).orElse(null),
+                    loaded.get(Airport.class, flight.getDepartureAirportId()).orElse(null),
+                    airplane.orElse(null),
+                    airline.orElse(null)));
         }
         return flightDTOs;
     }
@@ -170,18 +118,37 @@ public class FlightService extends AbstractService {
     // --------------------------
 
     public List<FlightDTO> getTenFlights(int page) {
-        List<Flight> flights = repository.findSlice(Flight.class, new Page(page - 1));
-        return formFlightDTOs(flights);
+        JoinedSlice<Flight> flights = repository.findJoinedSlice(Flight.class, new Page(page - 1),
+                null, null, FLIGHT_BOARD_JOINS);
+        return formFlightDTOs(flights.getEntities(), flights.getLoaded());
     }
 
     public ResponseFilteringWrapper searchFlights(int page, String searchRequest, List<SortEntity> sortEntities) {
         List<FilterEntity> filterFlights = makeFilterList(searchRequest, Flight.class);
-        List<Flight> foundFlights = repository.findSlice(Flight.class, new Page(page - 1), sortEntities, filterFlights);
-        List<FlightDTO> flightDTOs = formFlightDTOs(foundFlights);
-        BigInteger countOfPages = repository.count(Flight.class, filterFlights);
+        Page flightsPage = new Page(page - 1);
+        JoinedSlice<Flight> foundFlights = repository.findJoinedSlice(Flight.class, flightsPage,
+                sortEntities, filterFlights, FLIGHT_BOARD_JOINS);
+        List<FlightDTO> flightDTOs = formFlightDTOs(foundFlights.getEntities(), foundFlights.getLoaded());
+        BigInteger countOfPages = flightsPage.getCountOfPages(BigInteger.valueOf(foundFlights.getTotal()));
         return new ResponseFilteringWrapper<>(flightDTOs, countOfPages);
     }
 
+    /**
+     * Same search as {@link #searchFlights(int, String, List)}, but pages are found by keyset, so deep pages
+     * are as fast as the first one
+     *
+     * @param pageToken token of the next page from the previous response, null for the first page
+     */
+    public ResponseKeysetWrapper<FlightDTO> searchFlightsAfter(String pageToken, String searchRequest,
+                                                               List<SortEntity> sortEntities) {
+        List<FilterEntity> filterFlights = makeFilterList(searchRequest, Flight.class);
+        KeysetPage page = pageToken == null ? KeysetPage.first(10) : KeysetPage.fromToken(pageToken);
+        KeysetSlice<Flight> foundFlights = repository.findSlice(Flight.class, page, sortEntities, filterFlights);
+        List<FlightDTO> flightDTOs = formFlightDTOs(foundFlights.getEntities());
+        return new ResponseKeysetWrapper<>(flightDTOs,
+                foundFlights.hasNext() ? foundFlights.getNextPage().toToken() : null);
+    }
+
     public List<Airport> getAllAirports() {
         int itemsCount = repository.count(Airport.class).intValue();
         if (itemsCount == 0)
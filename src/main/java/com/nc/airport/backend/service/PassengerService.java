@@ -11,7 +11,6 @@ import com.nc.airport.backend.persistence.eav.repository.EavCrudRepository;
 import com.nc.airport.backend.persistence.eav.repository.Page;
 import org.springframework.stereotype.Service;
 
-import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -35,9 +34,9 @@ public class PassengerService extends AbstractService<Passenger> {
     public ResponseFilteringWrapper filterAndSortEntitiesByUserLogin(String userLogin, int page, String searchRequest, List<SortEntity> sortEntities) {
         User parentUser = userService.findByLogin(userLogin);
         List<FilterEntity> filterEntities = makeFilterList(searchRequest, Passenger.class);
-        List<Passenger> foundEntities = repository.findSliceOfChildren(parentUser.getObjectId(), Passenger.class, new Page(page - 1), sortEntities, filterEntities);
-        BigInteger countOfPages = repository.count(Passenger.class, filterEntities);
-        return new ResponseFilteringWrapper<>(foundEntities, countOfPages);
+        Page foundPage = new Page(page - 1);
+        List<Passenger> foundEntities = repository.findSliceOfChildren(parentUser.getObjectId(), Passenger.class, foundPage, sortEntities, filterEntities);
+        return wrapFound(foundEntities, foundPage, filterEntities);
     }
 
     public List<PassengerPassportDTO> getAllByUserLogin(String userLogin) {
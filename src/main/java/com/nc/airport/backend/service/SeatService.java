@@ -104,22 +104,30 @@ public class SeatService extends AbstractService<Seat> {
 
         checkSeatsAreConsistent(seats);
 
-        AirplaneDto airplane = seats.get(0).getAirplane();
-        checkPlaneIsUpToDate(airplane);
+//        the whole seat map is replaced at once, so either all of it is saved or nothing is
+        return repository.inTransaction(() -> {
+            AirplaneDto airplane = seats.get(0).getAirplane();
+            checkPlaneIsUpToDate(airplane);
 
-        airplane.increaseVersion();
-        airplaneService.updateEntity(new Airplane(airplane));
+            airplane.increaseVersion();
+            airplaneService.updateEntity(new Airplane(airplane));
 
-        deletePlaneSeats(planeId);
+            deletePlaneSeats(planeId);
 
-//        insert all the seats from query
-        List<SeatDto> updatedSeats = new ArrayList<>();
-        for (SeatDto seat : seats) {
-            SeatDto updatedSeat = new SeatDto(repository.update(new Seat(seat)));
-            updatedSeat.setAirplane(airplane);
-            updatedSeats.add(updatedSeat);
-        }
-        return updatedSeats;
+//            insert all the seats from query
+            List<Seat> newSeats = new ArrayList<>();
+            for (SeatDto seat : seats) {
+                newSeats.add(new Seat(seat));
+            }
+
+            List<SeatDto> updatedSeats = new ArrayList<>();
+            for (Seat savedSeat : repository.saveAll(newSeats)) {
+                SeatDto updatedSeat = new SeatDto(savedSeat);
+                updatedSeat.setAirplane(airplane);
+                updatedSeats.add(updatedSeat);
+            }
+            return updatedSeats;
+        });
     }
 
     private void checkPlaneIsUpToDate(AirplaneDto airplane) {
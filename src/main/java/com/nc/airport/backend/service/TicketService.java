@@ -60,8 +60,9 @@ public class TicketService extends AbstractService {
 
     private ResponseFilteringWrapper searchItems(List<FilterEntity> filterForTickets, int page) {
         List<TicketDTO> returnItems = new ArrayList<>();
-        List<Ticket> tickets = repository.findSlice(Ticket.class, new Page(page - 1), null, filterForTickets);
-        BigInteger countOfPages = repository.count(Ticket.class, filterForTickets);
+        Page ticketsPage = new Page(page - 1);
+        List<Ticket> tickets = repository.findSlice(Ticket.class, ticketsPage, null, filterForTickets);
+        BigInteger countOfPages = ticketsPage.getCountOfPages(repository.count(Ticket.class, filterForTickets));
         for (Ticket ticket :
                 tickets) {
             Flight flight = getFlightById(ticket.getFlightId()).get();
@@ -89,9 +90,11 @@ public class TicketService extends AbstractService {
         } else {
             attrId = ticketFlightIdAttrId;
         }
+        Set<Object> ids = new HashSet<>();
         for (BaseEntity entity : filters) {
-            filterEntities.add(new FilterEntity(attrId, new HashSet<>(Arrays.asList(entity.getObjectId()))));
+            ids.add(entity.getObjectId());
         }
+        filterEntities.add(new FilterEntity(attrId, ids));
         return filterEntities;
     }
 
@@ -119,9 +119,11 @@ CREATE SEQUENCE LISTS_lIST_ID
  NOCYCLE;
 
 
+-- INCREMENT BY must be equal to eav.object-id.block-size, every NEXTVAL reserves a whole block of ids.
+-- Ids below 1000 are left for seed data inserted with explicit ids
 CREATE SEQUENCE OBJECTS_OBJECT_ID
- INCREMENT BY 1
- START WITH 1
+ INCREMENT BY 50
+ START WITH 1000
  NOMAXVALUE
  NOCACHE
  NOCYCLE;
@@ -0,0 +1,46 @@
+
+-- Indexes creation, version 1 --
+-- Run after EAV_ tables_create.sql, or once on an existing database.
+-- Indexes that already exist are skipped, so the script can be run again.
+-- An index is also skipped if the same columns are already indexed under another name (ORA-01408).
+-- Keep in sync with EavIndexAdvisor, it reports indexes of this list missing at startup.
+
+
+DECLARE
+  TYPE index_list IS TABLE OF VARCHAR2(200);
+  indexes index_list := index_list(
+    -- wide picky joins: ATTR_ID = ? AND OBJECT_ID = O.OBJECT_ID
+    'IDX_ATTRIBUTES_ATTR_OBJECT ON ATTRIBUTES (ATTR_ID, OBJECT_ID)',
+    'IDX_OBJREFERENCE_OBJECT_ATTR ON OBJREFERENCE (OBJECT_ID, ATTR_ID)',
+    -- cascade deletes of objects
+    'IDX_ATTRIBUTES_OBJECT ON ATTRIBUTES (OBJECT_ID)',
+    -- pushed down filters and range conditions on attribute values
+    'IDX_ATTRIBUTES_ATTR_VALUE ON ATTRIBUTES (ATTR_ID, VALUE)',
+    'IDX_ATTRIBUTES_ATTR_LOWER ON ATTRIBUTES (ATTR_ID, LOWER(VALUE))',
+    'IDX_ATTRIBUTES_ATTR_DATE ON ATTRIBUTES (ATTR_ID, DATE_VALUE)',
+    'IDX_ATTRIBUTES_ATTR_LIST ON ATTRIBUTES (ATTR_ID, LIST_VALUE_ID)',
+    -- objects referencing a given one
+    'IDX_OBJREFERENCE_REFERENCE ON OBJREFERENCE (REFERENCE)',
+    -- objects of a type, children of a parent
+    'IDX_OBJECTS_TYPE ON OBJECTS (OBJECT_TYPE_ID)',
+    'IDX_OBJECTS_PARENT_TYPE ON OBJECTS (PARENT_ID, OBJECT_TYPE_ID)'
+  );
+  v_index_name VARCHAR2(30);
+  v_found      NUMBER;
+BEGIN
+  FOR i IN 1 .. indexes.COUNT LOOP
+    v_index_name := SUBSTR(indexes(i), 1, INSTR(indexes(i), ' ') - 1);
+    SELECT COUNT(*) INTO v_found FROM USER_INDEXES WHERE INDEX_NAME = v_index_name;
+    IF v_found = 0 THEN
+      BEGIN
+        EXECUTE IMMEDIATE 'CREATE INDEX ' || indexes(i);
+      EXCEPTION
+        WHEN OTHERS THEN
+          IF SQLCODE != -1408 THEN
+            RAISE;
+          END IF;
+      END;
+    END IF;
+  END LOOP;
+END;
+/
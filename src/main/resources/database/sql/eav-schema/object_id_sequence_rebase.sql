@@ -0,0 +1,12 @@
+-- Moves OBJECTS_OBJECT_ID past the ids already stored in OBJECTS and makes it hand out
+-- blocks of 50 ids (must be equal to eav.object-id.block-size).
+-- Run once on databases created before ids were allocated in blocks.
+DECLARE
+  next_id NUMBER;
+BEGIN
+  SELECT GREATEST(NVL(MAX(OBJECT_ID), 0) + 1, 1000) INTO next_id FROM OBJECTS;
+  EXECUTE IMMEDIATE 'DROP SEQUENCE OBJECTS_OBJECT_ID';
+  EXECUTE IMMEDIATE 'CREATE SEQUENCE OBJECTS_OBJECT_ID INCREMENT BY 50 START WITH ' || next_id ||
+                    ' NOMAXVALUE NOCACHE NOCYCLE';
+END;
+/
@@ -1,6 +1,10 @@
 package com.nc.airport.backend.eav.filtering;
 
+import com.nc.airport.backend.persistence.eav.exceptions.BadDBRequestException;
+import com.nc.airport.backend.persistence.eav.mutable2query.filtering2sorting.PropertiesEntityType;
 import com.nc.airport.backend.persistence.eav.mutable2query.filtering2sorting.filtering.FilterEntity;
+import com.nc.airport.backend.persistence.eav.mutable2query.filtering2sorting.filtering.FilterRange;
+import com.nc.airport.backend.persistence.eav.mutable2query.filtering2sorting.filtering.FilterSearch;
 import com.nc.airport.backend.persistence.eav.mutable2query.filtering2sorting.filtering.FilteringDescriptor;
 import com.nc.airport.backend.persistence.eav.mutable2query.filtering2sorting.paging.PagingDescriptor;
 import com.nc.airport.backend.persistence.eav.mutable2query.filtering2sorting.sorting.SortEntity;
@@ -13,13 +17,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import java.math.BigDecimal;
 import java.math.BigInteger;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 @SpringBootTest
 @RunWith(SpringRunner.class)
@@ -108,6 +113,132 @@ public class FilteringDescriptorTest {
         assertEquals(expected, result);
     }
 
+    @Test
+    public void givenAttributeAndPropertyFilters_whenPushDown_thenExistsAndPropertyConditions() {
+        filterEntities = new ArrayList<>();
+        filterEntities.add(new FilterEntity(BigInteger.valueOf(7), Collections.singleton("mail")));
+        filterEntities.add(new FilterEntity(BigInteger.valueOf(11), Collections.singleton(new BigInteger("37"))));
+        filterEntities.add(new FilterEntity(PropertiesEntityType.NAME, Collections.singleton("name")));
+
+        Map<String, String> attributeColumns = new HashMap<>();
+        attributeColumns.put("ATTR7", "VALUE");
+        attributeColumns.put("ATTR11", "REFERENCE");
+
+        String expected = "(EXISTS (SELECT 1 FROM ATTRIBUTES F WHERE F.OBJECT_ID = O.OBJECT_ID AND F.ATTR_ID = ? " +
+                "AND (LOWER(F.VALUE) LIKE LOWER(?))) " +
+                "OR EXISTS (SELECT 1 FROM OBJREFERENCE F WHERE F.OBJECT_ID = O.OBJECT_ID AND F.ATTR_ID = ? " +
+                "AND (F.REFERENCE = ?)) " +
+                "OR (LOWER(O.NAME) LIKE LOWER(?)))";
+        String result = filteringDescriptor.doPushedDownFiltering(filterEntities, attributeColumns);
+
+        log.info(result);
+        assertEquals(expected, result);
+
+        List<Object> parameters = new ArrayList<>();
+        filteringDescriptor.addPushedDownParameters(parameters, filterEntities);
+        assertEquals(Arrays.asList(BigInteger.valueOf(7), "mail", BigInteger.valueOf(11), new BigInteger("37"), "name"),
+                parameters);
+    }
+
+    @Test
+    public void givenRangeAndListFilters_whenPushDownConjunction_thenAllConditionsAnded() {
+        LocalDateTime day = LocalDateTime.of(2019, 12, 1, 0, 0);
+        filterEntities = new ArrayList<>();
+        filterEntities.add(new FilterEntity(BigInteger.valueOf(64),
+                Collections.singleton(FilterRange.fromUntil(day, day.plusDays(1)))));
+        filterEntities.add(new FilterEntity(BigInteger.valueOf(9),
+                Collections.singleton(FilterRange.between(new BigDecimal("10"), new BigDecimal("20")))));
+        filterEntities.add(new FilterEntity(BigInteger.valueOf(63), Collections.singleton(BigInteger.valueOf(9))));
+
+        Map<String, String> attributeColumns = new HashMap<>();
+        attributeColumns.put("ATTR64", "DATE_VALUE");
+        attributeColumns.put("ATTR9", "VALUE");
+        attributeColumns.put("ATTR63", "LIST_VALUE_ID");
+
+        String expected = "(EXISTS (SELECT 1 FROM ATTRIBUTES F WHERE F.OBJECT_ID = O.OBJECT_ID AND F.ATTR_ID = ? " +
+                "AND ((F.DATE_VALUE >= ? AND F.DATE_VALUE < ?))) " +
+                "AND EXISTS (SELECT 1 FROM ATTRIBUTES F WHERE F.OBJECT_ID = O.OBJECT_ID AND F.ATTR_ID = ? " +
+                "AND ((TO_NUMBER(F.VALUE) BETWEEN ? AND ?))) " +
+                "AND EXISTS (SELECT 1 FROM ATTRIBUTES F WHERE F.OBJECT_ID = O.OBJECT_ID AND F.ATTR_ID = ? " +
+                "AND (F.LIST_VALUE_ID = ?)))";
+        String result = filteringDescriptor.doPushedDownConjunction(filterEntities, attributeColumns);
+
+        log.info(result);
+        assertEquals(expected, result);
+
+        List<Object> parameters = new ArrayList<>();
+        filteringDescriptor.addPushedDownParameters(parameters, filterEntities);
+        assertEquals(Arrays.asList(BigInteger.valueOf(64), Timestamp.valueOf(day), Timestamp.valueOf(day.plusDays(1)),
+                BigInteger.valueOf(9), new BigDecimal("10"), new BigDecimal("20"),
+                BigInteger.valueOf(63), BigInteger.valueOf(9)), parameters);
+    }
+
+    @Test
+    public void givenSearch_whenPushDown_thenCandidatesFromIndexCheckedWithLike() {
+        filterEntities = Collections.singletonList(new FilterEntity(PropertiesEntityType.OBJECT_ID,
+                Collections.singleton(FilterSearch.of(BigInteger.valueOf(2), " LonD_ "))));
+
+        String expected = "(((O.OBJECT_ID IN (SELECT S.OBJECT_ID FROM ATTRIBUTES S WHERE (S.OBJECT_ID, S.ATTR_ID) IN (" +
+                "SELECT T.OBJECT_ID, T.ATTR_ID FROM SEARCH_TOKENS T WHERE T.OBJECT_TYPE_ID = ? " +
+                "AND (T.TOKEN IN (?, ?, ?, ?)) GROUP BY T.OBJECT_ID, T.ATTR_ID HAVING COUNT(*) = ?) " +
+                "AND LOWER(S.VALUE) LIKE ? ESCAPE '\\'))))";
+        String result = filteringDescriptor.doPushedDownFiltering(filterEntities, new HashMap<>());
+
+        log.info(result);
+        assertEquals(expected, result);
+
+        List<Object> parameters = new ArrayList<>();
+        filteringDescriptor.addPushedDownParameters(parameters, filterEntities);
+        assertEquals(Arrays.asList(BigInteger.valueOf(2), "lon", "ond", "nd_", "nd_", 3, "%lond\\_%"), parameters);
+    }
+
+    @Test
+    public void givenSearchShorterThanToken_whenFlatFiltering_thenTokenPrefix() {
+        filterEntities = Collections.singletonList(new FilterEntity(PropertiesEntityType.OBJECT_ID,
+                Collections.singleton(FilterSearch.of(BigInteger.valueOf(13), "Li"))));
+
+        String result = filteringDescriptor.doFlatFiltering(filterEntities);
+        assertTrue(result.contains("T.TOKEN LIKE ? ESCAPE"));
+
+        List<Object> parameters = new ArrayList<>();
+        filteringDescriptor.addFlatParameters(parameters, filterEntities);
+        assertEquals(Arrays.asList(BigInteger.valueOf(13), "li%", "%li%"), parameters);
+    }
+
+    @Test
+    public void givenSeveralIds_whenFlatFiltering_thenPaddedInList() {
+        Set<Object> ids = new LinkedHashSet<>(Arrays.asList(BigInteger.valueOf(1), BigInteger.valueOf(2), BigInteger.valueOf(3)));
+        filterEntities = Collections.singletonList(new FilterEntity(BigInteger.valueOf(30), ids));
+
+        assertEquals("((O.ATTR30 IN (?, ?, ?, ?)))", filteringDescriptor.doFlatFiltering(filterEntities));
+
+        List<Object> parameters = new ArrayList<>();
+        filteringDescriptor.addFlatParameters(parameters, filterEntities);
+        assertEquals(Arrays.asList(BigInteger.valueOf(1), BigInteger.valueOf(2), BigInteger.valueOf(3), BigInteger.valueOf(3)),
+                parameters);
+    }
+
+    @Test
+    public void givenMoreIdsThanOneInListTakes_whenDoInList_thenSeveralLists() {
+        String result = filteringDescriptor.doInList("F.REFERENCE", 1001);
+
+        assertEquals(2, result.split(" IN ").length - 1);
+        assertEquals(1001, result.length() - result.replace("?", "").length());
+        assertEquals(2, FilteringDescriptor.paddedSize(2));
+        assertEquals(512, FilteringDescriptor.paddedSize(300));
+        assertEquals(1000, FilteringDescriptor.paddedSize(513));
+        assertEquals(1000, FilteringDescriptor.paddedSize(1000));
+        assertEquals(2004, FilteringDescriptor.paddedSize(2003));
+    }
+
+    @Test(expected = BadDBRequestException.class)
+    public void givenFilterOfUnknownAttribute_whenPushDown_thenException() {
+        filterEntities = new ArrayList<>();
+        filterEntities.add(new FilterEntity(BigInteger.valueOf(7), Collections.singleton("mail")));
+
+        filteringDescriptor.doPushedDownFiltering(filterEntities, new HashMap<>());
+    }
+
     @Test
     public void doSorting() {
         String expectedResult = " ORDER BY ATTR3 ASC, ATTR13 DESC";
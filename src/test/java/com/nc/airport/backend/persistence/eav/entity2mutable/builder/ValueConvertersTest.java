@@ -0,0 +1,39 @@
+package com.nc.airport.backend.persistence.eav.entity2mutable.builder;
+
+import com.nc.airport.backend.persistence.eav.entity2mutable.entity.enumfield.TestType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public class ValueConvertersTest {
+    private ValueConverters converters = new ValueConverters();
+
+    @Test
+    public void givenCommonTypes_whenConverted_thenParsed() {
+        Assert.assertEquals(42, converters.converterFor(Integer.class).apply("42"));
+        Assert.assertEquals(new BigDecimal("12.50"), converters.converterFor(BigDecimal.class).apply("12.50"));
+        Assert.assertEquals(Boolean.TRUE, converters.converterFor(Boolean.class).apply("true"));
+        Assert.assertEquals(TestType.STATE2, converters.converterFor(TestType.class).apply("STATE2"));
+    }
+
+    @Test
+    public void givenStringConstructorType_whenConverted_thenSameConverterReused() {
+        Assert.assertEquals(new StringBuilder("abc").toString(),
+                converters.converterFor(StringBuilder.class).apply("abc").toString());
+        Assert.assertSame(converters.converterFor(StringBuilder.class), converters.converterFor(StringBuilder.class));
+    }
+
+    @Test
+    public void givenCustomConverter_whenRegistered_thenUsed() {
+        converters.register(LocalDate.class, LocalDate::parse);
+
+        Assert.assertEquals(LocalDate.of(2019, 1, 15), converters.converterFor(LocalDate.class).apply("2019-01-15"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void givenTypeWithoutStringConstructor_whenResolved_thenException() {
+        converters.converterFor(Object.class);
+    }
+}
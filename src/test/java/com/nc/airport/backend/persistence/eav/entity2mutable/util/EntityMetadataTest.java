@@ -0,0 +1,48 @@
+package com.nc.airport.backend.persistence.eav.entity2mutable.util;
+
+import com.nc.airport.backend.persistence.eav.annotations.attribute.value.ListField;
+import com.nc.airport.backend.persistence.eav.entity2mutable.entity.enumfield.TestType;
+import com.nc.airport.backend.persistence.eav.entity2mutable.entity.enumfield.ValidEnumEntity;
+import com.nc.airport.backend.persistence.eav.entity2mutable.entity.value.ValidValueEntity;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+public class EntityMetadataTest {
+
+    @Test
+    public void givenEnumEntity_whenMetadataTakenTwice_thenSameInstance() {
+        Assert.assertSame(EntityMetadata.of(ValidEnumEntity.class), EntityMetadata.of(ValidEnumEntity.class));
+    }
+
+    @Test
+    public void givenEnumEntity_whenIdsTaken_thenListFieldIdsInDeclarationOrder() {
+        EntityMetadata metadata = EntityMetadata.of(ValidEnumEntity.class);
+
+        Assert.assertEquals(new BigInteger("1"), metadata.getObjectTypeId());
+        Assert.assertEquals(Arrays.asList(new BigInteger("123"), new BigInteger("124")), metadata.getListFieldIds());
+        Assert.assertEquals("type2", metadata.getField(ListField.class, new BigInteger("124")).getName());
+    }
+
+    @Test
+    public void givenEnumEntity_whenEnumMapped_thenBothWaysMatch() {
+        EntityMetadata metadata = EntityMetadata.of(ValidEnumEntity.class);
+        BigInteger fieldId = new BigInteger("123");
+
+        Assert.assertEquals(TestType.STATE2, metadata.getEnum(fieldId, new BigInteger("2")));
+        Assert.assertEquals(new BigInteger("3"), metadata.getListValueId(fieldId, TestType.STATE3));
+        Assert.assertNull(metadata.getEnum(fieldId, new BigInteger("4")));
+    }
+
+    @Test
+    public void givenValueEntity_whenConverterTaken_thenResolvedOnceForField() {
+        EntityMetadata metadata = EntityMetadata.of(ValidValueEntity.class);
+        BigInteger fieldId = new BigInteger("123");
+
+        Assert.assertEquals("name", metadata.getValueConverter(fieldId).apply("name"));
+        Assert.assertSame(metadata.getValueConverter(fieldId), metadata.getValueConverter(fieldId));
+        Assert.assertNull(metadata.getValueConverter(new BigInteger("124")));
+    }
+}
@@ -0,0 +1,49 @@
+package com.nc.airport.backend.persistence.eav.mutable2query.data;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+public class EavIndexAdvisorTest {
+
+    @Test
+    public void givenNoIndexes_whenFindMissing_thenAllMissing() {
+        List<EavIndexAdvisor.IndexDefinition> missing = EavIndexAdvisor.findMissing(new HashMap<>());
+
+        Assert.assertEquals(EavIndexAdvisor.EXPECTED_INDEXES, missing);
+    }
+
+    @Test
+    public void givenIndexStartingWithExpectedColumns_whenFindMissing_thenIndexFound() {
+        Map<String, List<List<String>>> existing = new HashMap<>();
+        existing.put("OBJREFERENCE", Arrays.asList(
+                Arrays.asList("ATTR_ID", "REFERENCE", "OBJECT_ID"),
+                Arrays.asList("REFERENCE", "ATTR_ID")));
+
+        List<String> missing = names(EavIndexAdvisor.findMissing(existing));
+
+        Assert.assertFalse(missing.contains("IDX_OBJREFERENCE_REFERENCE"));
+        Assert.assertTrue(missing.contains("IDX_OBJREFERENCE_OBJECT_ATTR"));
+    }
+
+    @Test
+    public void givenFunctionBasedIndex_whenFindMissing_thenMatchedByExpression() {
+        Map<String, List<List<String>>> existing = new HashMap<>();
+        existing.put("ATTRIBUTES", Collections.singletonList(
+                Arrays.asList("ATTR_ID", EavIndexAdvisor.normalize("LOWER(\"VALUE\")"))));
+
+        List<String> missing = names(EavIndexAdvisor.findMissing(existing));
+
+        Assert.assertFalse(missing.contains("IDX_ATTRIBUTES_ATTR_LOWER"));
+        Assert.assertTrue(missing.contains("IDX_ATTRIBUTES_ATTR_VALUE"));
+    }
+
+    private List<String> names(List<EavIndexAdvisor.IndexDefinition> indexes) {
+        List<String> names = new ArrayList<>();
+        for (EavIndexAdvisor.IndexDefinition index : indexes) {
+            names.add(index.getName());
+        }
+        return names;
+    }
+}
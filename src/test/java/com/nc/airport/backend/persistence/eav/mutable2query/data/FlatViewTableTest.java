@@ -0,0 +1,34 @@
+package com.nc.airport.backend.persistence.eav.mutable2query.data;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class FlatViewTableTest {
+    private final FlatViewTable table = new FlatViewTable("FLAT_FLIGHTS", BigInteger.valueOf(3),
+            ids(62), ids(64, 65), ids(63), ids(8));
+
+    @Test
+    public void givenAttributeWithoutColumn_whenCovers_thenFalse() {
+        Assert.assertTrue(table.covers(ids(62), ids(64), ids(63), Collections.emptyList()));
+        Assert.assertFalse(table.covers(ids(62), ids(64), ids(63), ids(9)));
+        Assert.assertFalse(table.covers(ids(64), Collections.emptyList(), Collections.emptyList(), Collections.emptyList()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void givenTableNameWithQuote_whenCreate_thenException() {
+        new FlatViewTable("FLIGHTS'; DROP", BigInteger.ONE, ids(), ids(), ids(), ids());
+    }
+
+    private static List<BigInteger> ids(int... ids) {
+        BigInteger[] values = new BigInteger[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            values[i] = BigInteger.valueOf(ids[i]);
+        }
+        return Arrays.asList(values);
+    }
+}
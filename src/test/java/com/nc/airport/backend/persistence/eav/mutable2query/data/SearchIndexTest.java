@@ -0,0 +1,32 @@
+package com.nc.airport.backend.persistence.eav.mutable2query.data;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+public class SearchIndexTest {
+    @Test
+    public void givenObjectCondition_whenInsertTokens_thenGeneratorBoundByLongestValueOfObject() {
+        String expected = "INSERT INTO SEARCH_TOKENS (OBJECT_TYPE_ID, TOKEN, OBJECT_ID, ATTR_ID) " +
+                "SELECT DISTINCT O.OBJECT_TYPE_ID, RPAD(SUBSTR(LOWER(A.VALUE), P.N, 3), 3), A.OBJECT_ID, A.ATTR_ID " +
+                "FROM OBJECTS O JOIN ATTRIBUTES A ON A.OBJECT_ID = O.OBJECT_ID AND A.ATTR_ID IN (12, 13) " +
+                "JOIN (SELECT LEVEL N FROM DUAL CONNECT BY LEVEL <= (SELECT MAX(LENGTH(A.VALUE)) " +
+                "FROM OBJECTS O JOIN ATTRIBUTES A ON A.OBJECT_ID = O.OBJECT_ID AND A.ATTR_ID IN (12, 13) " +
+                "WHERE O.OBJECT_ID = ?)) P ON P.N <= LENGTH(A.VALUE) " +
+                "WHERE O.OBJECT_ID = ?";
+
+        Assert.assertEquals(expected, SearchIndex.insertTokensStatement(
+                Arrays.asList(BigInteger.valueOf(12), BigInteger.valueOf(13)), "O.OBJECT_ID = ?"));
+    }
+
+    @Test
+    public void givenType_whenPopulate_thenOldTokensOfTypeDeletedFirst() {
+        String populate = SearchIndex.populateStatement(BigInteger.valueOf(4),
+                Arrays.asList(BigInteger.valueOf(12)));
+
+        Assert.assertTrue(populate.startsWith("DELETE FROM SEARCH_TOKENS WHERE OBJECT_TYPE_ID = 4;\nINSERT INTO"));
+        Assert.assertTrue(populate.endsWith("WHERE O.OBJECT_TYPE_ID = 4"));
+    }
+}
@@ -0,0 +1,28 @@
+package com.nc.airport.backend.persistence.eav.mutable2query.data.acquisition;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FetchSizesTest {
+    private FetchSizes fetchSizes = new FetchSizes(100, 200, 500);
+
+    @Test
+    public void givenKnownRows_whenFetchSize_thenOneRowMoreUpToMax() {
+        Assert.assertEquals(11, fetchSizes.forPage(10));
+        Assert.assertEquals(200, fetchSizes.forPage(10 * 1000L));
+        Assert.assertEquals(2, fetchSizes.forSingle(1));
+        Assert.assertEquals(100, fetchSizes.forSingle(150));
+        Assert.assertEquals(1, fetchSizes.forPage(-1));
+    }
+
+    @Test
+    public void givenUnknownRows_whenFetchSize_thenMaxOfKind() {
+        Assert.assertEquals(200, fetchSizes.forPage());
+        Assert.assertEquals(500, fetchSizes.forStream());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void givenZeroSize_whenCreate_thenException() {
+        new FetchSizes(100, 0, 500);
+    }
+}
@@ -0,0 +1,58 @@
+package com.nc.airport.backend.persistence.eav.mutable2query.data.acquisition;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class QueryCreatorTest {
+    private QueryCreator queryCreator = new QueryCreator();
+
+    @Test
+    public void givenTwoHops_whenJoinedQueryCreated_thenSecondHopJoinedToFirst() {
+        List<ReferenceJoin> joins = Arrays.asList(
+                new ReferenceJoin(0, BigInteger.valueOf(55), Collections.singletonList(BigInteger.valueOf(12)), null, null,
+                        Collections.singletonList(BigInteger.valueOf(13))),
+                new ReferenceJoin(1, BigInteger.valueOf(13), Collections.singletonList(BigInteger.valueOf(20)), null, null, null));
+
+        String query = queryCreator.createWideJoinedQuery(Collections.singletonList(BigInteger.valueOf(51)),
+                Collections.emptyList(), Collections.emptyList(), Collections.singletonList(BigInteger.valueOf(55)), joins)
+                .toString();
+
+        Assert.assertTrue(query.contains("A1.VALUE ATTR51, A2.REFERENCE ATTR55, J1.OBJECT_ID J1_OBJECT_ID"));
+        Assert.assertTrue(query.contains("A3.VALUE J1_ATTR12, A4.REFERENCE J1_ATTR13, J2.OBJECT_ID J2_OBJECT_ID"));
+        Assert.assertTrue(query.contains("A5.VALUE J2_ATTR20  FROM OBJECTS O"));
+        Assert.assertTrue(query.contains("R1.OBJECT_ID = O.OBJECT_ID"));
+        Assert.assertTrue(query.contains("R2.OBJECT_ID = J1.OBJECT_ID"));
+        Assert.assertTrue(query.contains("A5.OBJECT_ID = J2.OBJECT_ID"));
+    }
+
+    @Test
+    public void givenFlatTable_whenFlatQueryCreated_thenColumnsInWidePickyOrder() {
+        String query = queryCreator.createFlatQuery("FLAT_FLIGHTS", Collections.singletonList(BigInteger.valueOf(62)),
+                Collections.singletonList(BigInteger.valueOf(65)), Collections.emptyList(),
+                Collections.singletonList(BigInteger.valueOf(8)))
+                .toString();
+
+        Assert.assertEquals("  SELECT O.OBJECT_ID, O.PARENT_ID, O.OBJECT_TYPE_ID, O.NAME, O.DESCRIPTION, " +
+                "O.ATTR62, O.ATTR65, O.ATTR8  FROM FLAT_FLIGHTS O ", query);
+    }
+
+    @Test
+    public void givenConditionsAndSorting_whenRendered_thenConditionsAndedAndSortedOutside() {
+        String query = queryCreator.createWidePickyQuery(Collections.singletonList(BigInteger.valueOf(51)),
+                Collections.emptyList(), Collections.emptyList(), Collections.emptyList())
+                .where("O.OBJECT_TYPE_ID = ?")
+                .where("(O.NAME = ?)")
+                .wrap("SELECT * FROM (", Arrays.asList("ATTR51 DESC", "O.NAME"))
+                .toString();
+
+        Assert.assertEquals("SELECT * FROM (" +
+                "  SELECT O.OBJECT_ID, O.PARENT_ID, O.OBJECT_TYPE_ID, O.NAME, O.DESCRIPTION, A1.VALUE ATTR51" +
+                "  FROM OBJECTS O  LEFT JOIN ATTRIBUTES A1 ON A1.ATTR_ID = ? AND A1.OBJECT_ID = O.OBJECT_ID " +
+                "WHERE O.OBJECT_TYPE_ID = ? AND (O.NAME = ?))  ORDER BY ATTR51 DESC, O.NAME", query);
+    }
+}
@@ -0,0 +1,71 @@
+package com.nc.airport.backend.persistence.eav.mutable2query.data.modification;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class ObjectIdAllocatorTest {
+    private Connection connection;
+    private PreparedStatement statement;
+    private ResultSet increment;
+
+    @Before
+    public void mockSequence() throws SQLException {
+        connection = mock(Connection.class);
+        statement = mock(PreparedStatement.class);
+        ResultSet nextVal = mock(ResultSet.class);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(nextVal);
+        when(nextVal.next()).thenReturn(true);
+        when(nextVal.getString(1)).thenReturn("1000", "1003");
+
+        PreparedStatement incrementStatement = mock(PreparedStatement.class);
+        increment = mock(ResultSet.class);
+        when(connection.prepareStatement(ObjectIdAllocator.INCREMENT_QUERY)).thenReturn(incrementStatement);
+        when(incrementStatement.executeQuery()).thenReturn(increment);
+        when(increment.next()).thenReturn(true);
+        when(increment.getLong(1)).thenReturn(3L);
+    }
+
+    @Test
+    public void givenBlockSize3_testIdsAreTakenFromOneBlock() throws SQLException {
+        ObjectIdAllocator allocator = new ObjectIdAllocator(3);
+
+        assertEquals(BigInteger.valueOf(1000), allocator.allocate(connection));
+        assertEquals(BigInteger.valueOf(1001), allocator.allocate(connection));
+        assertEquals(BigInteger.valueOf(1002), allocator.allocate(connection));
+        verify(statement, times(1)).executeQuery();
+    }
+
+    @Test
+    public void givenBlockSize3_testAmountLargerThanBlockReservesNextBlock() throws SQLException {
+        ObjectIdAllocator allocator = new ObjectIdAllocator(3);
+
+        List<BigInteger> ids = allocator.allocate(connection, 5);
+
+        assertEquals(Arrays.asList(BigInteger.valueOf(1000), BigInteger.valueOf(1001), BigInteger.valueOf(1002),
+                BigInteger.valueOf(1003), BigInteger.valueOf(1004)), ids);
+        verify(statement, times(2)).executeQuery();
+    }
+
+    @Test
+    public void givenIncrementLessThanBlockSize_testEveryIdIsTakenFromNextVal() throws SQLException {
+        when(increment.getLong(1)).thenReturn(1L);
+        ObjectIdAllocator allocator = new ObjectIdAllocator(3);
+
+        assertEquals(BigInteger.valueOf(1000), allocator.allocate(connection));
+        assertEquals(BigInteger.valueOf(1003), allocator.allocate(connection));
+        verify(statement, times(2)).executeQuery();
+    }
+}
@@ -0,0 +1,33 @@
+package com.nc.airport.backend.persistence.eav.mutable2query.filtering2sorting.filtering;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+public class FilterSearchTest {
+    @Test
+    public void givenText_whenTokens_thenDistinctTrigramsInOrder() {
+        assertEquals(Arrays.asList("aba", "bab"), FilterSearch.tokensOf("ababa"));
+        assertEquals(Collections.singletonList("lon"), FilterSearch.tokensOf("lon"));
+    }
+
+    @Test
+    public void givenTextShorterThanToken_whenTokens_thenNone() {
+        assertEquals(Collections.emptyList(), FilterSearch.tokensOf("li"));
+    }
+
+    @Test
+    public void givenTextWithWildcards_whenParameters_thenEscapedAndTrimmed() {
+        assertEquals(Arrays.asList(BigInteger.ONE, "\\%\\_%", "%\\%\\_%"),
+                FilterSearch.of(BigInteger.ONE, " %_ ").getParameters());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void givenBlankText_whenCreated_thenException() {
+        FilterSearch.of(BigInteger.ONE, "  ");
+    }
+}
@@ -0,0 +1,61 @@
+package com.nc.airport.backend.persistence.eav.mutable2query.filtering2sorting.paging;
+
+import com.nc.airport.backend.persistence.eav.exceptions.BadDBRequestException;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class PagingDescriptorTest {
+    private PagingDescriptor pagingDescriptor = new PagingDescriptor();
+
+    @Test
+    public void givenLastKeyWithNull_whenKeysetPaging_thenSeekConditionAndBindOrder() {
+        List<Object> lastKey = Arrays.asList("Kyiv", null);
+
+        String expected = "SELECT * FROM ( SELECT * FROM (SELECT * FROM OBJECTS) " +
+                "WHERE (ATTR5 > ? OR ATTR5 IS NULL OR (ATTR5 = ? AND (NAME IS NULL AND OBJECT_ID > ?))) " +
+                "ORDER BY ATTR5 ASC NULLS LAST, NAME DESC NULLS LAST, OBJECT_ID ASC) WHERE rownum <= ?";
+        String result = pagingDescriptor.getParameterizedKeysetPaging(new StringBuilder("SELECT * FROM OBJECTS"),
+                Arrays.asList("ATTR5", "NAME"), Arrays.asList(true, false), lastKey);
+        assertEquals(expected, result);
+
+        List<Object> parameters = new ArrayList<>();
+        pagingDescriptor.addKeysetParameters(parameters, lastKey, new BigInteger("1005"));
+        assertEquals(Arrays.asList("Kyiv", "Kyiv", new BigInteger("1005")), parameters);
+    }
+
+    @Test
+    public void givenFirstPage_whenKeysetPaging_thenNoSeekCondition() {
+        String result = pagingDescriptor.getParameterizedKeysetPaging(new StringBuilder("SELECT * FROM OBJECTS"),
+                Collections.singletonList("ATTR5"), Collections.singletonList(null), null);
+
+        assertEquals("SELECT * FROM ( SELECT * FROM (SELECT * FROM OBJECTS) " +
+                "ORDER BY ATTR5 ASC NULLS LAST, OBJECT_ID ASC) WHERE rownum <= ?", result);
+    }
+
+    @Test(expected = BadDBRequestException.class)
+    public void givenLastKeyOfOtherSorting_whenChecked_thenBadRequest() {
+        pagingDescriptor.checkLastKey(Collections.singletonList(String.class),
+                Arrays.asList("Kyiv", new BigInteger("42")), new BigInteger("1005"));
+    }
+
+    @Test(expected = BadDBRequestException.class)
+    public void givenLastKeyValueOfOtherType_whenChecked_thenBadRequest() {
+        pagingDescriptor.checkLastKey(Collections.singletonList(Timestamp.class),
+                Collections.singletonList("2019-01-15"), new BigInteger("1005"));
+    }
+
+    @Test
+    public void givenLastKeyOfSameSorting_whenChecked_thenAccepted() {
+        pagingDescriptor.checkLastKey(Arrays.asList(String.class, BigInteger.class),
+                Arrays.asList(null, new BigInteger("42")), new BigInteger("1005"));
+        pagingDescriptor.checkLastKey(Collections.singletonList(String.class), null, null);
+    }
+}
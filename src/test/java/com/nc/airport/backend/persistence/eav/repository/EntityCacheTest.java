@@ -0,0 +1,135 @@
+package com.nc.airport.backend.persistence.eav.repository;
+
+import com.nc.airport.backend.model.BaseEntity;
+import com.nc.airport.backend.persistence.eav.Mutable;
+import com.nc.airport.backend.persistence.eav.annotations.CachePolicy;
+import com.nc.airport.backend.persistence.eav.annotations.ObjectType;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class EntityCacheTest {
+    private AtomicLong now = new AtomicLong();
+    private EntityCache cache = new EntityCache(true, now::get);
+
+    @Test
+    public void givenCachedClass_whenPutAndGet_thenHitCounted() {
+        Mutable mutable = mutable(1);
+        cache.put(LruEntity.class, mutable);
+
+        Assert.assertSame(mutable, cache.get(LruEntity.class, BigInteger.ONE));
+        Assert.assertNull(cache.get(LruEntity.class, BigInteger.TEN));
+        Assert.assertEquals(1, cache.getHits(LruEntity.class));
+        Assert.assertEquals(1, cache.getMisses(LruEntity.class));
+    }
+
+    @Test
+    public void givenClassWithoutPolicy_whenPut_thenNothingKept() {
+        cache.put(NotCachedEntity.class, mutable(1));
+
+        Assert.assertFalse(cache.isCached(NotCachedEntity.class));
+        Assert.assertNull(cache.get(NotCachedEntity.class, BigInteger.ONE));
+    }
+
+    @Test
+    public void givenExpiredObject_whenGet_thenMiss() {
+        cache.put(LruEntity.class, mutable(1));
+        now.addAndGet(1000);
+
+        Assert.assertNull(cache.get(LruEntity.class, BigInteger.ONE));
+    }
+
+    @Test
+    public void givenFullLruCache_whenPut_thenLeastRecentlyUsedEvicted() {
+        cache.put(LruEntity.class, mutable(1));
+        cache.put(LruEntity.class, mutable(2));
+        cache.get(LruEntity.class, BigInteger.ONE);
+        cache.put(LruEntity.class, mutable(3));
+
+        Assert.assertNotNull(cache.get(LruEntity.class, BigInteger.ONE));
+        Assert.assertNull(cache.get(LruEntity.class, BigInteger.valueOf(2)));
+    }
+
+    @Test
+    public void givenFullLfuCache_whenPut_thenLeastFrequentlyUsedEvicted() {
+        cache.put(LfuEntity.class, mutable(1));
+        cache.put(LfuEntity.class, mutable(2));
+        cache.get(LfuEntity.class, BigInteger.ONE);
+        cache.get(LfuEntity.class, BigInteger.ONE);
+        cache.get(LfuEntity.class, BigInteger.valueOf(2));
+        cache.put(LfuEntity.class, mutable(3));
+
+        Assert.assertNotNull(cache.get(LfuEntity.class, BigInteger.ONE));
+        Assert.assertNull(cache.get(LfuEntity.class, BigInteger.valueOf(2)));
+    }
+
+    @Test
+    public void givenReadThroughClass_whenWritten_thenEvicted() {
+        cache.put(LruEntity.class, mutable(1));
+        cache.written(LruEntity.class, BigInteger.ONE, () -> {
+            throw new AssertionError("Read-through class is not read again");
+        });
+
+        Assert.assertNull(cache.get(LruEntity.class, BigInteger.ONE));
+    }
+
+    @Test
+    public void givenWriteThroughClass_whenWritten_thenCommittedStateCached() {
+        cache.put(LfuEntity.class, mutable(1));
+        Mutable committed = mutable(1);
+        cache.written(LfuEntity.class, BigInteger.ONE, () -> committed);
+
+        Assert.assertSame(committed, cache.get(LfuEntity.class, BigInteger.ONE));
+    }
+
+    @Test
+    public void givenWriteThroughClass_whenWrittenObjectNotReadAgain_thenEvicted() {
+        cache.put(LfuEntity.class, mutable(1));
+        cache.written(LfuEntity.class, BigInteger.ONE, () -> null);
+
+        Assert.assertNull(cache.get(LfuEntity.class, BigInteger.ONE));
+    }
+
+    @Test
+    public void givenOpenTransaction_whenPut_thenNothingKept() {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            cache.put(LruEntity.class, mutable(1));
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+
+        Assert.assertNull(cache.get(LruEntity.class, BigInteger.ONE));
+    }
+
+    @Test
+    public void givenDisabledCache_whenPut_thenNothingKept() {
+        EntityCache disabled = new EntityCache(false, now::get);
+        disabled.put(LruEntity.class, mutable(1));
+
+        Assert.assertNull(disabled.get(LruEntity.class, BigInteger.ONE));
+    }
+
+    private Mutable mutable(long objectId) {
+        Mutable mutable = new Mutable();
+        mutable.setObjectId(BigInteger.valueOf(objectId));
+        return mutable;
+    }
+
+    @ObjectType(ID = "1")
+    @CachePolicy(maxEntries = 2, ttlSeconds = 1)
+    public static class LruEntity extends BaseEntity {
+    }
+
+    @ObjectType(ID = "2")
+    @CachePolicy(maxEntries = 2, eviction = CachePolicy.Eviction.LFU, mode = CachePolicy.Mode.WRITE_THROUGH)
+    public static class LfuEntity extends BaseEntity {
+    }
+
+    @ObjectType(ID = "3")
+    public static class NotCachedEntity extends BaseEntity {
+    }
+}
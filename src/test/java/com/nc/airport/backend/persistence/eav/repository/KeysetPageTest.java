@@ -0,0 +1,53 @@
+package com.nc.airport.backend.persistence.eav.repository;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class KeysetPageTest {
+    @Test
+    public void givenFirstPage_whenTokenParsed_thenFirstPage() {
+        KeysetPage page = KeysetPage.fromToken(KeysetPage.first(15).toToken());
+
+        assertTrue(page.isFirst());
+        assertEquals(15, page.getSize());
+    }
+
+    @Test
+    public void givenKeyOfEveryType_whenTokenParsed_thenSameKey() {
+        Timestamp departure = Timestamp.valueOf("2019-01-15 10:30:00.5");
+        KeysetPage page = KeysetPage.after(10,
+                Arrays.asList("Kyiv. Boryspil", new BigInteger("42"), departure, null), new BigInteger("1005"));
+
+        KeysetPage parsed = KeysetPage.fromToken(page.toToken());
+
+        assertEquals(10, parsed.getSize());
+        assertEquals(new BigInteger("1005"), parsed.getLastObjectId());
+        assertEquals(Arrays.asList("Kyiv. Boryspil", new BigInteger("42"), departure, null), parsed.getLastKey());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void givenMalformedToken_whenParsed_thenException() {
+        KeysetPage.fromToken("10.1005.X");
+    }
+
+    @Test
+    public void givenSize0_whenPageCreated_thenSize10() {
+        assertEquals(10, KeysetPage.first(0).getSize());
+        assertNull(KeysetPage.first(0).getLastKey());
+    }
+
+    @Test
+    public void givenTokenWithHugeSize_whenParsed_thenSizeCapped() {
+        KeysetPage page = KeysetPage.fromToken("1000000000.1005.N");
+
+        assertEquals(KeysetPage.MAX_SIZE, page.getSize());
+        assertEquals(new BigInteger("1005"), page.getLastObjectId());
+    }
+}
@@ -2,6 +2,8 @@ package com.nc.airport.backend.persistence.eav.repository;
 
 import org.junit.Test;
 
+import java.math.BigInteger;
+
 import static org.junit.Assert.assertEquals;
 
 public class PageTest {
@@ -20,4 +22,13 @@ public class PageTest {
         assertEquals(11, page.getFirstRow());
         assertEquals(20, page.getLastRow());
     }
+
+    @Test
+    public void givenSize10_testCountOfPages() {
+        Page page = new Page(0);
+
+        assertEquals(BigInteger.ONE, page.getCountOfPages(BigInteger.ZERO));
+        assertEquals(BigInteger.ONE, page.getCountOfPages(BigInteger.TEN));
+        assertEquals(BigInteger.valueOf(2), page.getCountOfPages(BigInteger.valueOf(11)));
+    }
 }